@@ -0,0 +1,57 @@
+package codes.rafael.asmjdkbridge.benchmark;
+
+import codes.rafael.asmjdkbridge.JdkClassReader;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassReaderBenchmark {
+
+    @Param({"Switches", "TryThrowCatch", "TypeAnnotationsInCode", "BranchesAndStackMapFrames", "String", "Math", "Integer"})
+    public String sample;
+
+    private byte[] classFile;
+
+    @Setup
+    public void setup() throws IOException {
+        classFile = Samples.read(sample);
+    }
+
+    @Benchmark
+    public ClassReader asmParse() {
+        return Samples.asmClassReader(classFile);
+    }
+
+    @Benchmark
+    public JdkClassReader jdkParse() {
+        return new JdkClassReader(classFile);
+    }
+
+    @Benchmark
+    public void asmAccept() {
+        Samples.asmClassReader(classFile).accept(new NoopClassVisitor(), 0);
+    }
+
+    @Benchmark
+    public void jdkAccept() {
+        new JdkClassReader(classFile).accept(new NoopClassVisitor(), 0);
+    }
+}
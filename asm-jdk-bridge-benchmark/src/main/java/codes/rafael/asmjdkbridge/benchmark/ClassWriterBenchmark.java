@@ -0,0 +1,69 @@
+package codes.rafael.asmjdkbridge.benchmark;
+
+import codes.rafael.asmjdkbridge.JdkClassReader;
+import codes.rafael.asmjdkbridge.JdkClassWriter;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassWriterBenchmark {
+
+    @Param({"Switches", "TryThrowCatch", "TypeAnnotationsInCode", "BranchesAndStackMapFrames", "String", "Math", "Integer"})
+    public String sample;
+
+    private byte[] classFile;
+
+    @Setup
+    public void setup() throws IOException {
+        classFile = Samples.read(sample);
+    }
+
+    @Benchmark
+    public byte[] asmRoundTrip() {
+        ClassReader classReader = Samples.asmClassReader(classFile);
+        ClassWriter classWriter = new ClassWriter(classReader, 0);
+        classReader.accept(classWriter, 0);
+        return classWriter.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] jdkRoundTrip() {
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(classWriter, 0);
+        return classWriter.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] asmComputeFrames() {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        Samples.asmClassReader(classFile).accept(classWriter, 0);
+        return classWriter.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] jdkComputeFrames() {
+        JdkClassWriter classWriter = new JdkClassWriter(ClassWriter.COMPUTE_FRAMES);
+        new JdkClassReader(classFile).accept(classWriter, 0);
+        return classWriter.toByteArray();
+    }
+}
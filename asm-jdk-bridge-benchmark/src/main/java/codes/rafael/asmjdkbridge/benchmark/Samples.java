@@ -0,0 +1,56 @@
+package codes.rafael.asmjdkbridge.benchmark;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+
+final class Samples {
+
+    private static final MethodHandle UNCHECKED_CLASS_READER;
+
+    static {
+        try {
+            Constructor<ClassReader> constructor = ClassReader.class.getDeclaredConstructor(byte[].class, int.class, boolean.class);
+            constructor.setAccessible(true);
+            UNCHECKED_CLASS_READER = MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Samples() {
+    }
+
+    static byte[] read(String sample) throws IOException {
+        Class<?> type = switch (sample) {
+            case "String" -> String.class;
+            case "Math" -> Math.class;
+            case "Integer" -> Integer.class;
+            default -> {
+                try {
+                    yield Class.forName("codes.rafael.asmjdkbridge.test." + sample);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("Unknown sample: " + sample, e);
+                }
+            }
+        };
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Cannot locate class file of " + type.getName());
+            }
+            return inputStream.readAllBytes();
+        }
+    }
+
+    static ClassReader asmClassReader(byte[] classFile) {
+        try {
+            return (ClassReader) UNCHECKED_CLASS_READER.invokeExact(classFile, 0, false);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package codes.rafael.asmjdkbridge.test;
 
+import codes.rafael.asmjdkbridge.StableAttribute;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ByteVector;
 import org.objectweb.asm.ClassReader;
@@ -74,4 +75,12 @@ public class AsmTestAttribute extends Attribute {
             return vector;
         }
     }
-}
\ No newline at end of file
+
+    public static class AsmStableTestAttribute extends AsmTestAttribute implements StableAttribute {
+
+        @Override
+        public boolean hasConstantPoolReferences() {
+            return false;
+        }
+    }
+}
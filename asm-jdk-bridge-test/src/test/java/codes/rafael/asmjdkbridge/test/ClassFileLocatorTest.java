@@ -0,0 +1,123 @@
+package codes.rafael.asmjdkbridge.test;
+
+import codes.rafael.asmjdkbridge.ClassFileLocator;
+import codes.rafael.asmjdkbridge.JdkClassReader;
+import codes.rafael.asmjdkbridge.ProbingClassReader;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNull;
+
+public class ClassFileLocatorTest {
+
+    private static final String NAME = Type.getInternalName(Sample.class);
+
+    @Test
+    public void can_locate_from_class_loader() throws IOException {
+        try (ClassFileLocator classFileLocator = new ClassFileLocator.ForClassLoader(Sample.class.getClassLoader())) {
+            assertArrayEquals(toClassFile(), classFileLocator.locate(NAME));
+            assertNull(classFileLocator.locate("does/not/Exist"));
+        }
+    }
+
+    @Test
+    public void can_locate_from_folder() throws IOException {
+        Path folder = Files.createTempDirectory("classes");
+        Path file = folder.resolve(NAME + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, toClassFile());
+        try (ClassFileLocator classFileLocator = new ClassFileLocator.ForFolder(folder)) {
+            assertArrayEquals(toClassFile(), classFileLocator.locate(NAME));
+            assertNull(classFileLocator.locate("does/not/Exist"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void can_locate_from_jar_file() throws IOException {
+        Path jar = Files.createTempFile("classes", ".jar");
+        try (OutputStream outputStream = Files.newOutputStream(jar); ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry(NAME + ".class"));
+            zipOutputStream.write(toClassFile());
+            zipOutputStream.closeEntry();
+        }
+        try (ClassFileLocator classFileLocator = ClassFileLocator.ForJarFile.of(jar)) {
+            assertArrayEquals(toClassFile(), classFileLocator.locate(NAME));
+            assertNull(classFileLocator.locate("does/not/Exist"));
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void can_locate_from_jrt_file_system() throws IOException {
+        try (ClassFileLocator classFileLocator = ClassFileLocator.ForJrtFileSystem.ofCurrentJvm()) {
+            assertEquals("java/lang/Object", new JdkClassReader("java.lang.Object", classFileLocator).getClassName());
+            assertNull(classFileLocator.locate("java/lang/DoesNotExist"));
+            assertNull(classFileLocator.locate("NoPackage"));
+        }
+    }
+
+    @Test
+    public void can_locate_from_compound() throws IOException {
+        try (ClassFileLocator classFileLocator = new ClassFileLocator.Compound(
+                ClassFileLocator.ForJrtFileSystem.ofCurrentJvm(),
+                new ClassFileLocator.ForClassLoader(Sample.class.getClassLoader()))) {
+            assertArrayEquals(toClassFile(), classFileLocator.locate(NAME));
+            assertEquals(NAME, new ProbingClassReader(Sample.class.getName(), classFileLocator).getClassName());
+        }
+    }
+
+    @Test
+    public void can_cache_located_class_files() throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        ClassFileLocator delegate = new ClassFileLocator.ForClassLoader(Sample.class.getClassLoader());
+        try (ClassFileLocator classFileLocator = new ClassFileLocator.Cached(name -> {
+            count.incrementAndGet();
+            return delegate.locate(name);
+        }, 1)) {
+            byte[] classFile = classFileLocator.locate(NAME);
+            assertSame(classFile, classFileLocator.locate(NAME));
+            assertEquals(1, count.get());
+            assertNull(classFileLocator.locate("does/not/Exist"));
+            assertNull(classFileLocator.locate("does/not/Exist"));
+            assertEquals(2, count.get());
+            classFileLocator.locate(NAME);
+            assertEquals(3, count.get());
+        }
+    }
+
+    @Test
+    public void can_resolve_super_class() throws IOException {
+        ClassFileLocator.SuperClassResolver resolver = new ClassFileLocator.SuperClassResolver(ClassFileLocator.ForJrtFileSystem.ofCurrentJvm());
+        assertEquals("java/lang/Number", resolver.apply("java/lang/Integer"));
+        assertNull(resolver.apply("java/lang/Runnable"));
+        assertNull(resolver.apply("java/lang/Object"));
+    }
+
+    @Test(expected = IOException.class)
+    public void cannot_read_missing_class() throws IOException {
+        new JdkClassReader("does.not.Exist", new ClassFileLocator.ForClassLoader(Sample.class.getClassLoader()));
+    }
+
+    private static byte[] toClassFile() throws IOException {
+        try (InputStream inputStream = Sample.class.getResourceAsStream(Sample.class.getName().substring(Sample.class.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    public static class Sample { }
+}
@@ -0,0 +1,88 @@
+package codes.rafael.asmjdkbridge.test;
+
+import codes.rafael.asmjdkbridge.ClassHierarchy;
+import codes.rafael.asmjdkbridge.ClassHierarchyIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClassHierarchyIndexTest {
+
+    private static final String NAME = Type.getInternalName(Sample.class);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void can_resolve_indexed_classes() throws IOException {
+        ClassHierarchyIndex index = new ClassHierarchyIndex.Builder()
+                .add("java/lang/Object", null, false)
+                .add("java/lang/Number", "java/lang/Object", false)
+                .add("java/lang/Integer", "java/lang/Number", false)
+                .add("java/lang/Runnable", "java/lang/Object", true)
+                .add("\u00e9/\u00fc", "java/lang/Number", false)
+                .add(toClassFile())
+                .build();
+        assertEquals(6, index.size());
+        assertEquals("java/lang/Number", index.apply("java/lang/Integer"));
+        assertEquals("java/lang/Object", index.apply("java/lang/Number"));
+        assertEquals("java/lang/Number", index.apply("\u00e9/\u00fc"));
+        assertEquals("java/lang/Object", index.apply(NAME));
+        assertNull(index.apply("java/lang/Object"));
+        assertNull(index.apply("java/lang/Runnable"));
+        assertTrue(index.contains("java/lang/Integer"));
+        assertFalse(index.contains("java/lang/Long"));
+        assertFalse(index.contains("java/lang/Intege"));
+        assertFalse(index.contains("java/lang/Integers"));
+        assertEquals("java/lang/Number", index.orElse(name -> "java/lang/Number").apply("java/lang/Long"));
+        assertEquals("java/lang/Number", new ClassHierarchy(index).getCommonSuperClass("java/lang/Integer", "\u00e9/\u00fc"));
+    }
+
+    @Test(expected = TypeNotPresentException.class)
+    public void cannot_resolve_missing_class() {
+        new ClassHierarchyIndex.Builder().add("java/lang/Object", null, false).build().apply("does/not/Exist");
+    }
+
+    @Test
+    public void can_map_index_file() throws IOException {
+        Path folder = temporaryFolder.newFolder("classes").toPath(), file = folder.resolve(NAME + ".class"), index = temporaryFolder.getRoot().toPath().resolve("classes.idx");
+        Files.createDirectories(file.getParent());
+        Files.write(file, toClassFile());
+        ClassHierarchyIndex.main(index.toString(), folder.toString());
+        ClassHierarchyIndex classHierarchyIndex = ClassHierarchyIndex.of(index);
+        assertEquals(1, classHierarchyIndex.size());
+        assertEquals("java/lang/Object", classHierarchyIndex.apply(NAME));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannot_map_index_file_without_source() throws IOException {
+        ClassHierarchyIndex.main(temporaryFolder.getRoot().toPath().resolve("classes.idx").toString());
+    }
+
+    @Test
+    public void can_index_current_jvm() throws IOException {
+        ClassHierarchyIndex index = new ClassHierarchyIndex.Builder().addCurrentJvm().build();
+        assertEquals("java/lang/Number", index.apply("java/lang/Integer"));
+        assertNull(index.apply("java/lang/Runnable"));
+        assertNull(index.apply("java/lang/Object"));
+    }
+
+    private static byte[] toClassFile() throws IOException {
+        try (InputStream inputStream = Sample.class.getResourceAsStream(Sample.class.getName().substring(Sample.class.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    public static class Sample { }
+}
@@ -0,0 +1,248 @@
+package codes.rafael.asmjdkbridge.test;
+
+import codes.rafael.asmjdkbridge.ClassFileLocator;
+import codes.rafael.asmjdkbridge.ClassHierarchy;
+import codes.rafael.asmjdkbridge.JdkClassFileContext;
+import codes.rafael.asmjdkbridge.JdkClassWriter;
+import codes.rafael.asmjdkbridge.ProbingClassWriter;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassHierarchyTest {
+
+    @Test
+    public void can_resolve_super_class() {
+        ClassHierarchy classHierarchy = ClassHierarchy.ofClassLoader(ClassHierarchyTest.class.getClassLoader());
+        assertEquals("java/lang/Number", classHierarchy.apply("java/lang/Integer"));
+        assertNull(classHierarchy.apply("java/lang/Runnable"));
+        assertNull(classHierarchy.apply("java/lang/Object"));
+        assertTrue(classHierarchy.isInterface("java/lang/Runnable"));
+        assertFalse(classHierarchy.isInterface("java/lang/Integer"));
+    }
+
+    @Test
+    public void can_resolve_common_super_class() {
+        ClassHierarchy classHierarchy = ClassHierarchy.ofClassLoader(ClassHierarchyTest.class.getClassLoader());
+        assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/Long"));
+        assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("java/lang/Number", "java/lang/Long"));
+        assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/Number"));
+        assertEquals("java/lang/Integer", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/Integer"));
+        assertEquals("java/lang/Object", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/String"));
+        assertEquals("java/lang/Object", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/Runnable"));
+        assertEquals("java/lang/Object", classHierarchy.getCommonSuperClass("java/lang/Object", "java/lang/String"));
+    }
+
+    @Test
+    public void resolves_each_type_once() {
+        Map<String, String> superClasses = new HashMap<>();
+        superClasses.put("a/A", "java/lang/Object");
+        superClasses.put("a/B", "a/A");
+        superClasses.put("a/C", "a/B");
+        superClasses.put("a/D", "a/B");
+        superClasses.put("a/E", "a/A");
+        AtomicInteger count = new AtomicInteger();
+        ClassHierarchy classHierarchy = new ClassHierarchy(name -> {
+            count.incrementAndGet();
+            return superClasses.get(name);
+        });
+        assertEquals("a/B", classHierarchy.getCommonSuperClass("a/C", "a/D"));
+        assertEquals("a/A", classHierarchy.getCommonSuperClass("a/C", "a/E"));
+        assertEquals("a/A", classHierarchy.getCommonSuperClass("a/E", "a/D"));
+        assertEquals(5, count.get());
+    }
+
+    @Test
+    public void caches_missing_types() {
+        AtomicInteger count = new AtomicInteger();
+        ClassHierarchy classHierarchy = new ClassHierarchy(name -> {
+            count.incrementAndGet();
+            throw new TypeNotPresentException(name, null);
+        });
+        for (int index = 0; index < 2; index++) {
+            try {
+                classHierarchy.apply("a/Missing");
+                fail();
+            } catch (TypeNotPresentException e) {
+                assertEquals("a.Missing", e.typeName());
+            }
+        }
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void can_resolve_from_class_files() throws IOException {
+        try (ClassFileLocator classFileLocator = new ClassFileLocator.Compound(
+                ClassFileLocator.ForJrtFileSystem.ofCurrentJvm(),
+                new ClassFileLocator.ForClassLoader(ClassHierarchyTest.class.getClassLoader()))) {
+            ClassHierarchy classHierarchy = ClassHierarchy.ofClassFileLocator(classFileLocator);
+            assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("java/lang/Integer", "java/lang/Long"));
+            assertTrue(classHierarchy.isInterface("java/lang/Runnable"));
+            assertEquals("java/lang/Object", classHierarchy.apply("codes/rafael/asmjdkbridge/test/ClassHierarchyTest"));
+            try {
+                classHierarchy.apply("does/not/Exist");
+                fail();
+            } catch (TypeNotPresentException e) {
+                assertEquals("does.not.Exist", e.typeName());
+            }
+        }
+    }
+
+    @Test
+    public void can_resolve_registered_types() throws IOException {
+        try (ClassFileLocator classFileLocator = ClassFileLocator.ForJrtFileSystem.ofCurrentJvm()) {
+            ClassHierarchy classHierarchy = ClassHierarchy.ofClassFileLocator(classFileLocator);
+            classHierarchy.register("generated/Base", "java/lang/Number", false);
+            JdkClassWriter classWriter = new JdkClassWriter(ClassWriter.COMPUTE_FRAMES, classHierarchy);
+            assertEquals(Collections.singletonList("java/lang/Number"), toMergedStack(writeSample(classWriter).toByteArray()));
+            try {
+                classHierarchy.apply("generated/Sample");
+                fail();
+            } catch (TypeNotPresentException e) {
+                assertEquals("generated.Sample", e.typeName());
+            }
+            classHierarchy.register("generated/Sample", "generated/Base", false);
+            assertEquals("generated/Base", classHierarchy.apply("generated/Sample"));
+            assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("generated/Sample", "java/lang/Integer"));
+        }
+    }
+
+    @Test
+    public void probing_writer_does_not_register_written_type() {
+        ClassHierarchy classHierarchy = ClassHierarchy.ofClassLoader(ClassHierarchyTest.class.getClassLoader());
+        classHierarchy.register("generated/Base", "java/lang/Number", false);
+        ProbingClassWriter classWriter = new ProbingClassWriter(ClassWriter.COMPUTE_FRAMES, classHierarchy);
+        assertEquals(Collections.singletonList("java/lang/Number"), toMergedStack(writeSample(classWriter).toByteArray()));
+        try {
+            classHierarchy.apply("generated/Sample");
+            fail();
+        } catch (TypeNotPresentException e) {
+            assertEquals("generated.Sample", e.typeName());
+        }
+    }
+
+    @Test
+    public void registration_replaces_ancestors_of_subtypes() {
+        Map<String, String> superClasses = new HashMap<>();
+        superClasses.put("a/A", "java/lang/Object");
+        superClasses.put("a/B", "a/A");
+        superClasses.put("a/C", "a/B");
+        ClassHierarchy classHierarchy = new ClassHierarchy(superClasses::get);
+        assertEquals("a/A", classHierarchy.getCommonSuperClass("a/C", "a/A"));
+        classHierarchy.register("a/B", "java/lang/Object", false);
+        assertEquals("java/lang/Object", classHierarchy.getCommonSuperClass("a/C", "a/A"));
+        assertEquals("a/B", classHierarchy.getCommonSuperClass("a/C", "a/B"));
+    }
+
+    @Test
+    public void registration_replaces_missing_types() {
+        ClassHierarchy classHierarchy = ClassHierarchy.ofClassLoader(ClassHierarchyTest.class.getClassLoader());
+        try {
+            classHierarchy.apply("a/Missing");
+            fail();
+        } catch (TypeNotPresentException e) {
+            assertEquals("a.Missing", e.typeName());
+        }
+        classHierarchy.register("a/Missing", "java/lang/Number", false);
+        assertEquals("java/lang/Number", classHierarchy.apply("a/Missing"));
+        assertEquals("java/lang/Number", classHierarchy.getCommonSuperClass("a/Missing", "java/lang/Number"));
+    }
+
+    @Test
+    public void can_resolve_super_classes_from_context() {
+        JdkClassFileContext context = new JdkClassFileContext() {
+            @Override
+            protected String getSuperClass(String name) {
+                return name.equals("generated/Base") ? "java/lang/Number" : super.getSuperClass(name);
+            }
+        };
+        JdkClassWriter classWriter = new JdkClassWriter(context, ClassWriter.COMPUTE_FRAMES);
+        assertEquals(Collections.singletonList("java/lang/Number"), toMergedStack(writeSample(classWriter).toByteArray()));
+    }
+
+    @Test
+    public void can_resolve_super_classes_from_writer_with_context() {
+        JdkClassWriter classWriter = new JdkClassWriter(new JdkClassFileContext(), ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getSuperClass(String name) {
+                return name.equals("generated/Base") ? "java/lang/Number" : super.getSuperClass(name);
+            }
+        };
+        assertEquals(Collections.singletonList("java/lang/Number"), toMergedStack(writeSample(classWriter).toByteArray()));
+    }
+
+    @Test(timeout = 10000)
+    public void pipelined_writer_resolves_super_classes_on_visiting_thread() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        JdkClassWriter classWriter = new JdkClassWriter(ClassWriter.COMPUTE_FRAMES | JdkClassWriter.PIPELINED) {
+            @Override
+            protected String getSuperClass(String name) {
+                threads.add(Thread.currentThread());
+                return name.equals("generated/Base") ? "java/lang/Number" : super.getSuperClass(name);
+            }
+        };
+        assertEquals(Collections.singletonList("java/lang/Number"), toMergedStack(writeSample(classWriter).toByteArray()));
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void retains_class_hierarchy() {
+        ClassHierarchy classHierarchy = new ClassHierarchy(name -> null);
+        assertSame(classHierarchy, ClassHierarchy.of(classHierarchy));
+        assertNull(ClassHierarchy.of(null));
+    }
+
+    private static <T extends ClassVisitor> T writeSample(T classWriter) {
+        classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "generated/Sample", null, "generated/Base", null);
+        MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_STATIC, "m", "(ZLgenerated/Sample;Ljava/lang/Integer;)Ljava/lang/Object;", null, null);
+        methodVisitor.visitCode();
+        Label other = new Label(), end = new Label();
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+        methodVisitor.visitJumpInsn(Opcodes.IFEQ, other);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
+        methodVisitor.visitLabel(other);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+        methodVisitor.visitLabel(end);
+        methodVisitor.visitInsn(Opcodes.ARETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+        classWriter.visitEnd();
+        return classWriter;
+    }
+
+    private static List<Object> toMergedStack(byte[] classFile) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile).accept(classNode, 0);
+        List<Object> stack = null;
+        for (AbstractInsnNode instruction : classNode.methods.get(0).instructions) {
+            if (instruction instanceof FrameNode) {
+                stack = ((FrameNode) instruction).stack;
+            }
+        }
+        return stack;
+    }
+}
@@ -1,6 +1,9 @@
 package codes.rafael.asmjdkbridge.test;
 
+import codes.rafael.asmjdkbridge.JdkClassFileContext;
 import codes.rafael.asmjdkbridge.JdkClassReader;
+import codes.rafael.asmjdkbridge.MemberPredicate;
+import codes.rafael.asmjdkbridge.VisitAbortedException;
 import codes.rafael.asmjdkbridge.sample.NoRecordComponents;
 import codes.rafael.asmjdkbridge.sample.RecordComponents;
 import org.junit.Test;
@@ -9,22 +12,37 @@ import org.junit.runners.Parameterized;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.util.TraceClassVisitor;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
 public class JdkClassReaderTest {
 
+    private static final Attribute[] ATTRIBUTE_PROTOTYPES = new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() };
+
     @SuppressWarnings("deprecation")
     @Parameterized.Parameters(name = "{0} (reader={1})")
     public static Collection<Object[]> data() {
@@ -43,6 +61,8 @@ public class JdkClassReaderTest {
                 {BranchesAndStackMapFrames.class, ClassReader.EXPAND_FRAMES},
                 {BranchesAndStackMapFrames.class, ClassReader.SKIP_FRAMES},
                 {BranchesAndStackMapFrames.class, ClassReader.SKIP_CODE},
+                {BranchesAndStackMapFrames.class, ClassReader.SKIP_DEBUG},
+                {BranchesAndStackMapFrames.class, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES},
                 {Switches.class, 0},
                 {TryThrowCatch.class, 0},
                 {RecordComponents.class, 0},
@@ -56,7 +76,8 @@ public class JdkClassReaderTest {
                 {SyntheticParameters.InnerClass.class, 0},
                 {String.class, 0},
                 {Integer.class, 0},
-                {Math.class, 0}
+                {Math.class, 0},
+                {String.class, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES}
         });
     }
 
@@ -71,22 +92,172 @@ public class JdkClassReaderTest {
 
     @Test
     public void parsed_class_files_are_equal() throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = target.getResourceAsStream(target.getName().substring(target.getPackageName().length() + 1) + ".class")) {
-            classFile = inputStream.readAllBytes();
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), ATTRIBUTE_PROTOTYPES, flags);
+        new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES).accept(toVisitor(jdk), flags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_with_shared_attribute_context() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassFileContext context = new JdkClassFileContext(ATTRIBUTE_PROTOTYPES);
+        StringWriter asm = new StringWriter(), first = new StringWriter(), second = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), ATTRIBUTE_PROTOTYPES, flags);
+        JdkClassReader firstReader = new JdkClassReader(context, classFile), secondReader = new JdkClassReader(context, classFile);
+        secondReader.accept(toVisitor(second), flags);
+        firstReader.accept(toVisitor(first), flags);
+        assertEquals(asm.toString(), first.toString());
+        assertEquals(asm.toString(), second.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_after_reading_debug_information() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), ATTRIBUTE_PROTOTYPES, flags);
+        JdkClassReader classReader = new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9) { }, 0);
+        classReader.accept(toVisitor(jdk), flags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void custom_attributes_share_one_view_per_class_reader() throws IOException {
+        byte[] classFile = classFile(target);
+        Set<ClassReader> first = Collections.newSetFromMap(new IdentityHashMap<>()), second = Collections.newSetFromMap(new IdentityHashMap<>());
+        JdkClassFileContext context = new JdkClassFileContext(new RecordingTestAttribute(first, second), new RecordingCodeTestAttribute(first, second));
+        JdkClassReader firstReader = new JdkClassReader(context, classFile), secondReader = new JdkClassReader(context, classFile);
+        firstReader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                secondReader.accept(new ClassVisitor(Opcodes.ASM9) {
+                }, flags); // Interleaves reading both class files.
+                return null;
+            }
+        }, flags);
+        secondReader.accept(new ClassVisitor(Opcodes.ASM9) {
+        }, flags);
+        assertTrue(first.size() <= 1);
+        assertTrue(second.size() <= 1);
+        assertTrue(first.stream().allMatch(classReader -> classReader.b == classFile && !second.contains(classReader)));
+    }
+
+    private static class RecordingTestAttribute extends AsmTestAttribute {
+
+        private final Set<ClassReader> first, second;
+
+        private RecordingTestAttribute(Set<ClassReader> first, Set<ClassReader> second) {
+            this.first = first;
+            this.second = second;
         }
+
+        @Override
+        protected Attribute read(ClassReader classReader, int offset, int length, char[] charBuffer, int codeAttributeOffset, Label[] labels) {
+            (first.isEmpty() || first.contains(classReader) ? first : second).add(classReader);
+            return super.read(classReader, offset, length, charBuffer, codeAttributeOffset, labels);
+        }
+    }
+
+    private static class RecordingCodeTestAttribute extends AsmTestAttribute.AsmCodeTestAttribute {
+
+        private final Set<ClassReader> first, second;
+
+        private RecordingCodeTestAttribute(Set<ClassReader> first, Set<ClassReader> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        protected Attribute read(ClassReader classReader, int offset, int length, char[] charBuffer, int codeAttributeOffset, Label[] labels) {
+            (first.isEmpty() || first.contains(classReader) ? first : second).add(classReader);
+            return super.read(classReader, offset, length, charBuffer, codeAttributeOffset, labels);
+        }
+    }
+
+    @Test
+    public void filtered_class_files_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
         StringWriter asm = new StringWriter(), jdk = new StringWriter();
-        toClassReader(classFile).accept(toVisitor(asm), new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() }, flags);
-        new JdkClassReader(classFile, new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute()).accept(toVisitor(jdk), flags);
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9, toVisitor(asm)) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return (access & Opcodes.ACC_STATIC) == 0 ? super.visitMethod(access, name, descriptor, signature, exceptions) : null;
+            }
+        }, ATTRIBUTE_PROTOTYPES, flags);
+        new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES).accept(toVisitor(jdk),
+                MemberPredicate.NONE,
+                (access, name, descriptor) -> (access & Opcodes.ACC_STATIC) == 0,
+                flags);
         assertEquals(asm.toString(), jdk.toString());
     }
 
     @Test
-    public void properties_are_equal() throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = target.getResourceAsStream(target.getName().substring(target.getPackageName().length() + 1) + ".class")) {
-            classFile = inputStream.readAllBytes();
+    public void filtered_class_files_are_equal_with_flags_of_attributes() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9, toVisitor(asm)) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_DEPRECATED)) == 0 ? super.visitField(access, name, descriptor, signature, value) : null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_DEPRECATED)) == 0 ? super.visitMethod(access, name, descriptor, signature, exceptions) : null;
+            }
+        }, ATTRIBUTE_PROTOTYPES, flags);
+        new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES).accept(toVisitor(jdk),
+                (access, name, descriptor) -> (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_DEPRECATED)) == 0,
+                (access, name, descriptor) -> (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_DEPRECATED)) == 0,
+                flags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void visit_can_be_aborted() throws IOException {
+        byte[] classFile = classFile(target);
+        new JdkClassReader(classFile).accept(new AbortingClassVisitor(), flags);
+    }
+
+    @Test
+    public void class_file_sources_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter expected = new StringWriter();
+        new JdkClassReader(classFile).accept(toVisitor(expected), flags);
+        byte[] padded = new byte[classFile.length + 3];
+        System.arraycopy(classFile, 0, padded, 1, classFile.length);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(classFile.length);
+        buffer.put(classFile).flip();
+        Path path = Files.createTempFile("class", ".class");
+        try {
+            Files.write(path, classFile);
+            try (FileChannel channel = FileChannel.open(path)) {
+                for (JdkClassReader classReader : Arrays.asList(
+                        new JdkClassReader(padded, 1, classFile.length),
+                        new JdkClassReader(buffer),
+                        new JdkClassReader(new ByteArrayInputStream(classFile), 16),
+                        new JdkClassReader(path),
+                        new JdkClassReader(channel))) {
+                    StringWriter actual = new StringWriter();
+                    classReader.accept(toVisitor(actual), flags);
+                    assertEquals(expected.toString(), actual.toString());
+                }
+            }
+        } finally {
+            Files.delete(path);
         }
+    }
+
+    @Test
+    public void properties_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
         ClassReader asm = toClassReader(classFile);
         JdkClassReader jdk = new JdkClassReader(classFile);
         assertEquals(asm.getAccess(), jdk.getAccess());
@@ -95,6 +266,56 @@ public class JdkClassReaderTest {
         assertArrayEquals(asm.getInterfaces(), jdk.getInterfaces());
     }
 
+    @Test
+    public void properties_are_equal_after_visit() throws IOException {
+        byte[] classFile = classFile(target);
+        ClassReader asm = toClassReader(classFile);
+        JdkClassReader jdk = new JdkClassReader(classFile);
+        String[] interfaces = jdk.getInterfaces();
+        if (interfaces.length > 0) {
+            interfaces[0] = null;
+        }
+        jdk.accept(new ClassVisitor(Opcodes.ASM9) {
+        }, flags);
+        assertEquals(asm.getAccess(), jdk.getAccess());
+        assertEquals(asm.getClassName(), jdk.getClassName());
+        assertEquals(asm.getSuperName(), jdk.getSuperName());
+        assertArrayEquals(asm.getInterfaces(), jdk.getInterfaces());
+    }
+
+    static class AbortingClassVisitor extends ClassVisitor {
+
+        AbortingClassVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            throw VisitAbortedException.INSTANCE;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void visitEnd() {
+            throw new AssertionError();
+        }
+    }
+
+    private static byte[] classFile(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
+
     private static ClassVisitor toVisitor(StringWriter writer) {
         return new TraceClassVisitor(new PrintWriter(writer));
     }
@@ -0,0 +1,161 @@
+package codes.rafael.asmjdkbridge.test;
+
+import codes.rafael.asmjdkbridge.JdkClassReader;
+import codes.rafael.asmjdkbridge.sample.NoRecordComponents;
+import codes.rafael.asmjdkbridge.sample.RecordComponents;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.util.TraceClassVisitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Parameterized.class)
+public class JdkClassRemapperTest {
+
+    private static final Attribute[] ATTRIBUTE_PROTOTYPES = new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() };
+
+    @SuppressWarnings("deprecation")
+    @Parameterized.Parameters(name = "{0} (reader={1})")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {Trivial.class, 0},
+                {LoadStoreAndReturn.class, 0},
+                {FieldConstructorAndMethod.class, 0},
+                {Operations.class, 0},
+                {DeprecatedClass.class, 0},
+                {SyntheticConstructor.Inner.class, 0},
+                {ArrayInstructions.class, 0},
+                {Invokedynamic.class, 0},
+                {BranchesAndStackMapFrames.class, 0},
+                {BranchesAndStackMapFrames.class, ClassReader.EXPAND_FRAMES},
+                {Switches.class, 0},
+                {TryThrowCatch.class, 0},
+                {RecordComponents.class, 0},
+                {NoRecordComponents.class, 0},
+                {Annotations.class, 0},
+                {TypeAnnotationsWithoutPath.class, 0},
+                {TypeAnnotationsWithPath.class, 0},
+                {TypeAnnotationsInCode.class, 0},
+                {CustomAttributeExtractable.make(), 0},
+                {SyntheticParameters.class, 0},
+                {SyntheticParameters.InnerClass.class, 0},
+                {String.class, 0},
+                {Integer.class, 0},
+                {Math.class, 0}
+        });
+    }
+
+    private final Class<?> target;
+
+    private final int flags;
+
+    public JdkClassRemapperTest(Class<?> target, int flags) {
+        this.target = target;
+        this.flags = flags;
+    }
+
+    @Test
+    public void remapped_class_files_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        ClassWriter classWriter = new ClassWriter(0);
+        toClassReader(classFile).accept(new ClassRemapper(classWriter, new RelocatingRemapper()), ATTRIBUTE_PROTOTYPES, 0);
+        byte[] remapped = new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES).remap(new RelocatingRemapper());
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(asm), ATTRIBUTE_PROTOTYPES, flags);
+        toClassReader(remapped).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, flags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void remapped_class_files_are_equal_with_mapped_values() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        ClassWriter classWriter = new ClassWriter(0);
+        toClassReader(classFile).accept(new ClassRemapper(classWriter, new ValueMappingRemapper()), ATTRIBUTE_PROTOTYPES, 0);
+        byte[] remapped = new JdkClassReader(classFile, ATTRIBUTE_PROTOTYPES).remap(new ValueMappingRemapper());
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(asm), ATTRIBUTE_PROTOTYPES, flags);
+        toClassReader(remapped).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, flags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void class_files_are_equal_without_remapping() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), remapped = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(new JdkClassReader(classFile).remap(new Remapper() {
+        })).accept(toVisitor(remapped), flags);
+        assertEquals(original.toString(), remapped.toString());
+    }
+
+    static class RelocatingRemapper extends Remapper {
+
+        @Override
+        public String map(String internalName) {
+            return internalName.startsWith("codes/rafael/") || internalName.startsWith("java/util/")
+                    ? "relocated/" + internalName
+                    : internalName;
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            return owner.startsWith("codes/rafael/") && !name.startsWith("<") ? name + "$relocated" : name;
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            return owner.startsWith("codes/rafael/") ? name + "$relocated" : name;
+        }
+    }
+
+    static class ValueMappingRemapper extends RelocatingRemapper {
+
+        @Override
+        public Object mapValue(Object value) {
+            if (value instanceof String) {
+                return value + "$mapped";
+            } else if (value instanceof Integer) {
+                return (Integer) value + 1;
+            } else if (value instanceof Long) {
+                return (Long) value + 1;
+            } else {
+                return super.mapValue(value);
+            }
+        }
+    }
+
+    private static byte[] classFile(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static ClassVisitor toVisitor(StringWriter writer) {
+        return new TraceClassVisitor(new PrintWriter(writer));
+    }
+
+    private static ClassReader toClassReader(byte[] bytes) {
+        try {
+            Constructor<ClassReader> constructor = ClassReader.class.getDeclaredConstructor(byte[].class, int.class, boolean.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(bytes, 0, false);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
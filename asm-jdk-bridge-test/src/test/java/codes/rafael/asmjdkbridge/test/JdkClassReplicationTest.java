@@ -1,5 +1,6 @@
 package codes.rafael.asmjdkbridge.test;
 
+import codes.rafael.asmjdkbridge.JdkClassFileContext;
 import codes.rafael.asmjdkbridge.JdkClassReader;
 import codes.rafael.asmjdkbridge.JdkClassWriter;
 import codes.rafael.asmjdkbridge.sample.NoRecordComponents;
@@ -7,23 +8,47 @@ import codes.rafael.asmjdkbridge.sample.RecordComponents;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.RecordComponentVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.util.Textifier;
 import org.objectweb.asm.util.TraceClassVisitor;
+import org.objectweb.asm.util.TraceMethodVisitor;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
 public class JdkClassReplicationTest {
 
+    private static final Attribute[] ATTRIBUTE_PROTOTYPES = new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() };
+
     @SuppressWarnings("deprecation")
     @Parameterized.Parameters(name = "{0} (reader={1})")
     public static Collection<Object[]> data() {
@@ -55,6 +80,10 @@ public class JdkClassReplicationTest {
         });
     }
 
+    private static final JdkClassFileContext CONTEXT = new JdkClassFileContext();
+
+    private static final Class<? extends MethodVisitor> UNRESOLVABLE_METHOD_VISITOR = makeUnresolvableMethodVisitor();
+
     private final Class<?> target;
 
     private final int flags;
@@ -66,19 +95,450 @@ public class JdkClassReplicationTest {
 
     @Test
     public void parsed_class_files_are_equal() throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = target.getResourceAsStream(target.getName().substring(target.getPackageName().length() + 1) + ".class")) {
-            classFile = inputStream.readAllBytes();
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(classWriter, 0);
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_with_shared_context() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(CONTEXT, classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(CONTEXT, classReader, 0);
+        classReader.accept(classWriter, 0);
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void unchanged_class_files_are_not_rebuilt() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+        }, 0);
+        assertSame(classFile, classWriter.toByteArray());
+    }
+
+    @Test
+    public void unchanged_class_files_with_stable_attributes_are_not_rebuilt() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassReader classReader = new JdkClassReader(classFile, new AsmTestAttribute.AsmStableTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute());
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+        }, 0);
+        assertSame(classFile, classWriter.toByteArray());
+    }
+
+    @Test
+    public void unchanged_class_files_are_not_rebuilt_through_forwarding_visitors() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return new FieldVisitor(Opcodes.ASM9, super.visitField(access, name, descriptor, signature, value)) {
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                };
+            }
+        }, 0);
+        assertSame(classFile, classWriter.toByteArray());
+    }
+
+    @Test
+    public void class_files_are_equal_through_visitors_with_unresolvable_methods() throws Exception {
+        byte[] classFile = classFile(target);
+        Constructor<? extends MethodVisitor> constructor = UNRESOLVABLE_METHOD_VISITOR.getConstructor(MethodVisitor.class);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                try {
+                    return constructor.newInstance(super.visitMethod(access, name, descriptor, signature, exceptions));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }, 0);
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    private static Class<? extends MethodVisitor> makeUnresolvableMethodVisitor() {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, Type.getInternalName(JdkClassReplicationTest.class) + "$UnresolvableMethodVisitor", null, Type.getInternalName(MethodVisitor.class), null);
+        MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(MethodVisitor.class)), null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+        methodVisitor.visitLdcInsn(Opcodes.ASM9);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(MethodVisitor.class), "<init>", Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE, Type.getType(MethodVisitor.class)), false);
+        methodVisitor.visitInsn(Opcodes.RETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+        methodVisitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "unresolvable", "(Lmissing/Unresolvable;)V", null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitInsn(Opcodes.RETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+        classWriter.visitEnd();
+        try {
+            return MethodHandles.lookup().defineClass(classWriter.toByteArray()).asSubclass(MethodVisitor.class);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void instrumented_methods_are_rebuilt_through_overriding_visitors() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                    @Override
+                    public void visitEnd() {
+                        super.visitEnd();
+                    }
+                };
+            }
+        }, 0);
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(original.toString(), replicated.toString());
+        if (!classNode(classFile).methods.isEmpty()) {
+            assertNotSame(classFile, classWriter.toByteArray());
         }
+    }
+
+    private static ClassNode classNode(byte[] classFile) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile).accept(classNode, ClassReader.SKIP_CODE);
+        return classNode;
+    }
+
+    @Test
+    public void methods_with_changed_headers_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
         StringWriter original = new StringWriter(), replicated = new StringWriter();
         JdkClassReader classReader = new JdkClassReader(classFile);
         JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new MethodHeaderChangingVisitor(classWriter), 0);
+        ClassWriter expected = new ClassWriter(0);
+        toClassReader(classFile).accept(new MethodHeaderChangingVisitor(expected), ATTRIBUTE_PROTOTYPES, 0);
+        toClassReader(expected.toByteArray()).accept(toVisitor(original), ATTRIBUTE_PROTOTYPES, flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), ATTRIBUTE_PROTOTYPES, flags);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void unchanged_code_retains_stack_map_frames() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, ClassWriter.COMPUTE_FRAMES, name -> {
+            throw new AssertionError("Unexpected resolution of " + name);
+        });
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                    @Override
+                    public void visitInsn(int opcode) {
+                        super.visitInsn(opcode);
+                    }
+                };
+            }
+        }, 0);
+        toClassReader(classFile).accept(toVisitor(original), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void unchanged_methods_retain_stack_map_frames_next_to_changed_methods() throws IOException {
+        byte[] classFile = classFile(target);
+        Set<String> frameless = new HashSet<>();
+        ClassNode classNode = new ClassNode();
+        toClassReader(classFile).accept(classNode, 0);
+        for (MethodNode methodNode : classNode.methods) {
+            if (methodNode.instructions.size() > 0 && Arrays.stream(methodNode.instructions.toArray()).noneMatch(node -> node instanceof FrameNode)) {
+                frameless.add(methodNode.name + methodNode.desc);
+            }
+        }
+        BiFunction<String, MethodVisitor, MethodVisitor> change = (method, methodVisitor) -> new MethodVisitor(Opcodes.ASM9, methodVisitor) {
+            @Override
+            public void visitCode() {
+                super.visitCode();
+                if (frameless.contains(method)) {
+                    super.visitInsn(Opcodes.NOP);
+                }
+            }
+        };
+        StringWriter expected = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, ClassWriter.COMPUTE_FRAMES, name -> {
+            throw new AssertionError("Unexpected resolution of " + name);
+        }), unlinked = new JdkClassWriter(0);
+        classReader.accept(new MethodChangingVisitor(classWriter, change), 0);
+        new JdkClassReader(classFile).accept(new MethodChangingVisitor(unlinked, change), 0);
+        toClassReader(unlinked.toByteArray()).accept(toVisitor(expected), flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(expected.toString(), replicated.toString());
+    }
+
+    @Test
+    public void changed_instructions_do_not_retain_stack_map_frames() throws IOException {
+        byte[] classFile = classFile(target);
+        Set<String> changed = new HashSet<>();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, ClassWriter.COMPUTE_FRAMES), unlinked = new JdkClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classReader.accept(new MethodChangingVisitor(classWriter, (method, methodVisitor) -> new ConstantWideningMethodVisitor(methodVisitor, () -> changed.add(method))), 0);
+        new JdkClassReader(classFile).accept(new MethodChangingVisitor(unlinked, (method, methodVisitor) -> new ConstantWideningMethodVisitor(methodVisitor, () -> { })), 0);
+        ClassNode expected = new ClassNode(), replicated = new ClassNode();
+        toClassReader(unlinked.toByteArray()).accept(expected, flags);
+        toClassReader(classWriter.toByteArray()).accept(replicated, flags);
+        for (String method : changed) { // Frames of unchanged methods are retained by the linked writer only.
+            assertEquals(toText(expected, method), toText(replicated, method));
+        }
+    }
+
+    @Test
+    public void annotations_are_visited_by_writer_subclasses() throws IOException {
+        byte[] classFile = classFile(target);
+        List<String> expected = new ArrayList<>(), visited = new ArrayList<>();
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                expected.add(descriptor);
+                return null;
+            }
+        }, 0);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                visited.add(descriptor);
+                return super.visitAnnotation(descriptor, visible);
+            }
+        };
         classReader.accept(classWriter, 0);
         toClassReader(classFile).accept(toVisitor(original), flags);
         toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), flags);
+        assertEquals(expected, visited);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void attributes_are_visited_by_writer_subclasses() throws IOException {
+        byte[] classFile = classFile(target);
+        List<String> expected = new ArrayList<>(), visited = new ArrayList<>();
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitAttribute(Attribute attribute) {
+                expected.add(attribute.type);
+            }
+        }, ATTRIBUTE_PROTOTYPES, 0);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile, new AsmTestAttribute.AsmStableTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute());
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0) {
+            @Override
+            public void visitAttribute(Attribute attribute) {
+                visited.add(attribute.type);
+                super.visitAttribute(attribute);
+            }
+        };
+        classReader.accept(classWriter, 0);
+        toClassReader(classFile).accept(toVisitor(original), ATTRIBUTE_PROTOTYPES, flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), ATTRIBUTE_PROTOTYPES, flags);
+        assertEquals(expected, visited);
+        assertEquals(original.toString(), replicated.toString());
+    }
+
+    @Test
+    public void annotations_are_equal_when_added_to_changed_members() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter original = new StringWriter(), replicated = new StringWriter();
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new AnnotationAddingVisitor(classWriter), 0);
+        ClassWriter expected = new ClassWriter(0);
+        toClassReader(classFile).accept(new AnnotationAddingVisitor(expected), ATTRIBUTE_PROTOTYPES, 0);
+        toClassReader(expected.toByteArray()).accept(toVisitor(original), ATTRIBUTE_PROTOTYPES, flags);
+        toClassReader(classWriter.toByteArray()).accept(toVisitor(replicated), ATTRIBUTE_PROTOTYPES, flags);
         assertEquals(original.toString(), replicated.toString());
     }
 
+    @Test
+    public void changed_class_files_are_rebuilt() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassReader classReader = new JdkClassReader(classFile);
+        JdkClassWriter classWriter = new JdkClassWriter(classReader, 0);
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
+            @Override
+            public void visitEnd() {
+                super.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "added", "I", null, null).visitEnd();
+                super.visitEnd();
+            }
+        }, 0);
+        assertNotSame(classFile, classWriter.toByteArray());
+        ClassNode classNode = new ClassNode();
+        toClassReader(classWriter.toByteArray()).accept(classNode, flags);
+        assertTrue(classNode.fields.stream().anyMatch(field -> field.name.equals("added")));
+    }
+
+    private static class MethodHeaderChangingVisitor extends ClassVisitor {
+
+        private MethodHeaderChangingVisitor(ClassVisitor classVisitor) {
+            super(Opcodes.ASM9, classVisitor);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access | Opcodes.ACC_SYNTHETIC, name, descriptor, signature, exceptions)) {
+                @Override
+                public void visitEnd() {
+                    AnnotationVisitor annotationVisitor = visitAnnotation("Lsample/Changed;", false);
+                    if (annotationVisitor != null) {
+                        annotationVisitor.visitEnd();
+                    }
+                    super.visitEnd();
+                }
+            };
+        }
+    }
+
+    private static class AnnotationAddingVisitor extends ClassVisitor {
+
+        private AnnotationAddingVisitor(ClassVisitor classVisitor) {
+            super(Opcodes.ASM9, classVisitor);
+        }
+
+        @Override
+        public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
+            return new RecordComponentVisitor(Opcodes.ASM9, super.visitRecordComponent(name, descriptor, signature)) {
+                @Override
+                public void visitEnd() {
+                    end(visitAnnotation("Lsample/Changed;", false));
+                    super.visitEnd();
+                }
+            };
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            return new FieldVisitor(Opcodes.ASM9, super.visitField(access | Opcodes.ACC_SYNTHETIC, name, descriptor, signature, value)) {
+                @Override
+                public void visitEnd() {
+                    end(visitAnnotation("Lsample/Changed;", true));
+                    super.visitEnd();
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access | Opcodes.ACC_SYNTHETIC, name, descriptor, signature, exceptions)) {
+                @Override
+                public void visitEnd() {
+                    end(visitAnnotation("Lsample/Changed;", false));
+                    if (Type.getArgumentCount(descriptor) > 0) {
+                        end(visitParameterAnnotation(0, "Lsample/Changed;", false));
+                    }
+                    super.visitEnd();
+                }
+            };
+        }
+
+        @Override
+        public void visitEnd() {
+            end(visitAnnotation("Lsample/Changed;", true));
+            super.visitEnd();
+        }
+
+        private static void end(AnnotationVisitor annotationVisitor) {
+            if (annotationVisitor != null) {
+                annotationVisitor.visitEnd();
+            }
+        }
+    }
+
+    private static class MethodChangingVisitor extends ClassVisitor {
+
+        private final BiFunction<String, MethodVisitor, MethodVisitor> change;
+
+        private MethodChangingVisitor(ClassVisitor classVisitor, BiFunction<String, MethodVisitor, MethodVisitor> change) {
+            super(Opcodes.ASM9, classVisitor);
+            this.change = change;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return change.apply(name + descriptor, super.visitMethod(access, name, descriptor, signature, exceptions));
+        }
+    }
+
+    /**
+     * Replaces the first integer constant of a method by an equivalent instruction of a different size.
+     */
+    private static class ConstantWideningMethodVisitor extends MethodVisitor {
+
+        private final Runnable onChange;
+        private boolean changed;
+
+        private ConstantWideningMethodVisitor(MethodVisitor methodVisitor, Runnable onChange) {
+            super(Opcodes.ASM9, methodVisitor);
+            this.onChange = onChange;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (!changed && opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+                changed = true;
+                onChange.run();
+                super.visitIntInsn(Opcodes.BIPUSH, opcode - Opcodes.ICONST_0);
+            } else {
+                super.visitInsn(opcode);
+            }
+        }
+    }
+
+    private static byte[] classFile(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static String toText(ClassNode classNode, String method) {
+        Textifier textifier = new Textifier();
+        classNode.methods.stream()
+                .filter(methodNode -> (methodNode.name + methodNode.desc).equals(method))
+                .forEach(methodNode -> methodNode.accept(new TraceMethodVisitor(textifier)));
+        StringWriter writer = new StringWriter();
+        textifier.print(new PrintWriter(writer));
+        return writer.toString();
+    }
+
     private static ClassVisitor toVisitor(StringWriter writer) {
         return new TraceClassVisitor(new PrintWriter(writer));
     }
@@ -1,5 +1,7 @@
 package codes.rafael.asmjdkbridge.test;
 
+import codes.rafael.asmjdkbridge.JdkClassFileContext;
+import codes.rafael.asmjdkbridge.JdkClassReader;
 import codes.rafael.asmjdkbridge.JdkClassWriter;
 import codes.rafael.asmjdkbridge.sample.NoRecordComponents;
 import codes.rafael.asmjdkbridge.sample.RecordComponents;
@@ -10,21 +12,33 @@ import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.util.TraceClassVisitor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.Collection;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
 public class JdkClassWriterTest {
 
+    private static final Attribute[] ATTRIBUTE_PROTOTYPES = new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() };
+
     @SuppressWarnings("deprecation")
     @Parameterized.Parameters(name = "{0} (reader={1}, writer={2})")
     public static Collection<Object[]> data() {
@@ -58,6 +72,8 @@ public class JdkClassWriterTest {
         });
     }
 
+    private static final JdkClassFileContext CONTEXT = new JdkClassFileContext();
+
     private final Class<?> target;
     private final int readerFlags, writerFlags;
 
@@ -69,16 +85,202 @@ public class JdkClassWriterTest {
 
     @Test
     public void parsed_class_files_are_equal() throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = target.getResourceAsStream(target.getName().substring(target.getPackageName().length() + 1) + ".class")) {
-            classFile = inputStream.readAllBytes();
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags);
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void tree_class_files_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        ClassNode classNode = new ClassNode();
+        toClassReader(classFile).accept(classNode, ATTRIBUTE_PROTOTYPES, readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags);
+        classNode.accept(writer);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_when_label_info_is_replaced() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags);
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new LabelReplacingMethodVisitor(super.visitMethod(access, name, descriptor, signature, exceptions));
+            }
+        }, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_with_shared_context() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(CONTEXT, writerFlags);
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_when_pipelined() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags | JdkClassWriter.PIPELINED);
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void pipelined_class_files_can_be_reset_when_aborted() throws IOException {
+        byte[] classFile = classFile(target);
+        StringWriter asm = new StringWriter(), jdk = new StringWriter();
+        toClassReader(classFile).accept(toVisitor(asm), readerFlags);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags | JdkClassWriter.PIPELINED);
+        toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public void visitEnd() {
+            }
+        }, readerFlags);
+        try {
+            writer.toByteArray();
+            fail();
+        } catch (IllegalStateException ignored) {
         }
+        writer.reset();
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
+        assertEquals(asm.toString(), jdk.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void pipelined_class_files_can_be_closed_when_failed() throws IOException {
+        byte[] classFile = classFile(target);
+        RuntimeException exception = new RuntimeException();
+        try (JdkClassWriter writer = new JdkClassWriter(writerFlags | JdkClassWriter.PIPELINED)) {
+            toClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    throw exception;
+                }
+
+                @Override
+                public void visitEnd() {
+                    throw exception;
+                }
+            }, readerFlags);
+            fail();
+        } catch (RuntimeException e) {
+            assertSame(exception, e);
+        }
+    }
+
+    @Test
+    public void written_class_files_are_equal() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags);
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        byte[] expected = writer.toByteArray();
+        assertEquals(expected.length, writer.size());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(outputStream);
+        assertArrayEquals(expected, outputStream.toByteArray());
+        outputStream.reset();
+        writer.writeTo(Channels.newChannel(outputStream));
+        assertArrayEquals(expected, outputStream.toByteArray());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(writer.size());
+        writer.writeTo(buffer);
+        assertEquals(0, buffer.remaining());
+        byte[] written = new byte[expected.length];
+        buffer.flip().get(written);
+        assertArrayEquals(expected, written);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void written_class_files_are_released() throws IOException {
+        byte[] classFile = classFile(target);
+        JdkClassWriter writer = new JdkClassWriter(writerFlags | JdkClassWriter.RELEASE_ON_WRITE);
+        toClassReader(classFile).accept(writer, readerFlags);
+        writer.writeTo(new ByteArrayOutputStream());
+        writer.toByteArray();
+    }
+
+    @Test
+    public void parsed_class_files_are_equal_after_reset() throws IOException {
+        byte[] classFile = classFile(target), previousClassFile = classFile(Operations.class);
         StringWriter asm = new StringWriter(), jdk = new StringWriter();
         toClassReader(classFile).accept(toVisitor(asm), readerFlags);
         JdkClassWriter writer = new JdkClassWriter(writerFlags);
-        toClassReader(classFile).accept(writer, new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() }, readerFlags);
-        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), new Attribute[]{ new AsmTestAttribute(), new AsmTestAttribute.AsmCodeTestAttribute() }, readerFlags);
+        toClassReader(previousClassFile).accept(writer, readerFlags);
+        byte[] previous = writer.toByteArray();
+        writer.reset();
+        toClassReader(classFile).accept(writer, ATTRIBUTE_PROTOTYPES, readerFlags);
+        toClassReader(writer.toByteArray()).accept(toVisitor(jdk), ATTRIBUTE_PROTOTYPES, readerFlags);
         assertEquals(asm.toString(), jdk.toString());
+        assertEquals(new ClassReader(previousClassFile).getClassName(), new ClassReader(previous).getClassName());
+    }
+
+    @Test
+    public void reset_class_files_do_not_retain_constant_pool() throws IOException {
+        byte[] classFile = classFile(target), previousClassFile = classFile(Operations.class);
+        JdkClassReader classReader = new JdkClassReader(previousClassFile);
+        JdkClassWriter writer = new JdkClassWriter(classReader, writerFlags), expected = new JdkClassWriter(writerFlags);
+        classReader.accept(writer, 0);
+        writer.toByteArray();
+        writer.reset();
+        toClassReader(classFile).accept(writer, readerFlags);
+        toClassReader(classFile).accept(expected, readerFlags);
+        assertArrayEquals(expected.toByteArray(), writer.toByteArray());
+    }
+
+    /**
+     * Replaces the info of every label after it was visited, as a tree API method node does in a tee.
+     */
+    private static class LabelReplacingMethodVisitor extends MethodVisitor {
+
+        private LabelReplacingMethodVisitor(MethodVisitor methodVisitor) {
+            super(Opcodes.ASM9, methodVisitor);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            super.visitLabel(label);
+            label.info = new Object();
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            super.visitJumpInsn(opcode, label);
+            label.info = new Object();
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            super.visitTryCatchBlock(start, end, handler, type);
+            start.info = new Object();
+            end.info = new Object();
+            handler.info = new Object();
+        }
+    }
+
+    private static byte[] classFile(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
     }
 
     private static ClassVisitor toVisitor(StringWriter writer) {
@@ -1,22 +1,128 @@
 package codes.rafael.asmjdkbridge.test;
 
+import codes.rafael.asmjdkbridge.ClassHierarchy;
+import codes.rafael.asmjdkbridge.MemberPredicate;
 import codes.rafael.asmjdkbridge.ProbingClassReader;
+import codes.rafael.asmjdkbridge.ProbingClassWriter;
 import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ProbingTest {
 
     @Test
     public void can_probe_supported_version() throws Exception {
-        byte[] classFile;
-        try (InputStream inputStream = Sample.class.getResourceAsStream(Sample.class.getName().substring(Sample.class.getPackageName().length() + 1) + ".class")) {
-            classFile = inputStream.readAllBytes();
-        }
+        byte[] classFile = classFile(Sample.class);
         ProbingClassReader classReader = new ProbingClassReader(classFile);
         ProbingClassReader.ClassWriterContainer<?> classWriter = classReader.toClassWriter(0);
         classReader.accept(classWriter.getClassVisitor(), 0);
     }
 
+    @Test
+    public void can_probe_with_member_predicates() throws Exception {
+        byte[] classFile = classFile(Sample.class);
+        ProbingClassReader classReader = new ProbingClassReader(classFile);
+        ClassNode classNode = new ClassNode();
+        classReader.accept(classNode, MemberPredicate.ALL, (access, name, descriptor) -> !name.equals("<init>"), 0);
+        assertEquals(0, classNode.methods.size());
+    }
+
+    @Test
+    public void can_probe_remapping() throws Exception {
+        byte[] classFile = classFile(Sample.class);
+        byte[] remapped = new ProbingClassReader(classFile).remap(new JdkClassRemapperTest.RelocatingRemapper());
+        assertEquals("relocated/" + Type.getInternalName(Sample.class), new ProbingClassReader(remapped).getClassName());
+    }
+
+    @Test
+    public void can_probe_with_aborted_visit() throws Exception {
+        byte[] classFile = classFile(Sample.class);
+        new ProbingClassReader(classFile).accept(new JdkClassReaderTest.AbortingClassVisitor(), 0);
+    }
+
+    @Test
+    public void can_probe_array_range() throws Exception {
+        byte[] classFile = classFile(Sample.class);
+        byte[] padded = new byte[classFile.length + 3];
+        System.arraycopy(classFile, 0, padded, 1, classFile.length);
+        ProbingClassReader classReader = new ProbingClassReader(padded, 1, classFile.length);
+        assertEquals(Type.getInternalName(Sample.class), classReader.getClassName());
+        ProbingClassReader.ClassWriterContainer<?> classWriter = classReader.toClassWriter(0);
+        classReader.accept(classWriter.getClassVisitor(), 0);
+    }
+
+    @Test
+    public void can_probe_with_class_hierarchy() throws Exception {
+        byte[] classFile = classFile(Merging.class);
+        AtomicInteger count = new AtomicInteger();
+        ClassHierarchy delegate = ClassHierarchy.ofClassLoader(Merging.class.getClassLoader());
+        ClassHierarchy classHierarchy = new ClassHierarchy(name -> {
+            count.incrementAndGet();
+            return delegate.apply(name);
+        });
+        ProbingClassReader classReader = new ProbingClassReader(classFile);
+        classReader.accept(new ProbingClassWriter(ClassWriter.COMPUTE_FRAMES, classHierarchy), 0);
+        int resolved = count.get();
+        assertTrue(resolved > 0);
+        classReader.accept(new ProbingClassWriter(ClassWriter.COMPUTE_FRAMES, classHierarchy), 0);
+        assertEquals(resolved, count.get());
+    }
+
+    @Test
+    public void can_write_probed_class_file() throws Exception {
+        byte[] classFile = classFile(Sample.class);
+        ProbingClassWriter classWriter = new ProbingClassWriter(0);
+        new ProbingClassReader(classFile).accept(classWriter, 0);
+        byte[] expected = classWriter.toByteArray();
+        assertSame(expected, classWriter.toByteArray());
+        assertEquals(expected.length, classWriter.size());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        classWriter.writeTo(outputStream);
+        assertArrayEquals(expected, outputStream.toByteArray());
+        outputStream.reset();
+        classWriter.writeTo(Channels.newChannel(outputStream));
+        assertArrayEquals(expected, outputStream.toByteArray());
+    }
+
+    @Test
+    public void can_probe_with_reflective_super_class_resolver() throws Exception {
+        byte[] classFile = classFile(Merging.class);
+        ProbingClassWriter classWriter = new ProbingClassWriter(ClassWriter.COMPUTE_FRAMES,
+                ProbingTest.class.getMethod("getSuperClass", String.class),
+                null);
+        new ProbingClassReader(classFile).accept(classWriter, 0);
+        assertTrue(classWriter.toByteArray().length > 0);
+    }
+
+    public static String getSuperClass(String name) {
+        return ClassHierarchy.ofClassLoader(ProbingTest.class.getClassLoader()).apply(name);
+    }
+
     public static class Sample { }
+
+    public static class Merging {
+
+        int m(boolean v) {
+            Number number = v ? (Number) Integer.valueOf(1) : Long.valueOf(2);
+            return number.intValue();
+        }
+    }
+
+    private static byte[] classFile(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return inputStream.readAllBytes();
+        }
+    }
 }
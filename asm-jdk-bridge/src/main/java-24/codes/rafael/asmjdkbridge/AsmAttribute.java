@@ -37,14 +37,18 @@ import java.lang.constant.MethodHandleDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.constant.ModuleDesc;
 import java.lang.constant.PackageDesc;
+import java.util.function.Function;
 import java.util.function.IntFunction;
-import java.util.function.Supplier;
 
 class AsmAttribute extends CustomAttribute<AsmAttribute> {
 
     final Attribute attribute;
 
     static AsmAttribute of(Attribute attribute) {
+        return of(attribute, _ -> null);
+    }
+
+    static AsmAttribute of(Attribute attribute, Function<ClassReader, ClassReaderCache> caches) {
         return new AsmAttribute(new AttributeMapper<>() {
 
             @Override
@@ -54,17 +58,9 @@ class AsmAttribute extends CustomAttribute<AsmAttribute> {
 
             @Override
             public AsmAttribute readAttribute(AttributedElement attributedElement, ClassReader classReader, int payloadStart) {
+                ClassReaderCache cache = caches.apply(classReader);
                 return new AsmAttribute(this, Attribute.read(attribute,
-                        new DelegatingClassReader(classReader.readBytes(0, classReader.classfileLength()),
-                                classReader,
-                                () -> switch (attributedElement) {
-                                    case ClassModel model -> model;
-                                    case CodeModel model ->
-                                            model.parent().orElseThrow(IllegalStateException::new).parent().orElseThrow(IllegalStateException::new);
-                                    case FieldModel model -> model.parent().orElseThrow(IllegalStateException::new);
-                                    case MethodModel model -> model.parent().orElseThrow(IllegalStateException::new);
-                                    case RecordComponentInfo _ -> throw new IllegalStateException();
-                                }),
+                        (cache == null ? ClassReaderCache.NONE : cache).get(classReader, attributedElement),
                         payloadStart,
                         classReader.readInt(payloadStart - 4),
                         null,
@@ -87,6 +83,9 @@ class AsmAttribute extends CustomAttribute<AsmAttribute> {
 
             @Override
             public AttributeStability stability() {
+                if (attribute instanceof StableAttribute stableAttribute) {
+                    return stableAttribute.hasConstantPoolReferences() ? AttributeStability.CP_REFS : AttributeStability.STATELESS;
+                }
                 return attribute.isUnknown() ? AttributeStability.UNKNOWN : AttributeStability.UNSTABLE;
             }
         }, attribute);
@@ -97,15 +96,50 @@ class AsmAttribute extends CustomAttribute<AsmAttribute> {
         this.attribute = attribute;
     }
 
+    static class ClassReaderCache {
+
+        private static final ClassReaderCache NONE = new ClassReaderCache(null);
+
+        private final byte[] classFile;
+
+        private volatile DelegatingClassReader classReader;
+
+        ClassReaderCache(byte[] classFile) {
+            this.classFile = classFile;
+        }
+
+        private DelegatingClassReader get(ClassReader delegate, AttributedElement attributedElement) {
+            DelegatingClassReader classReader;
+            if (classFile == null) { // Without a known class file, any class might be read such that no view is retained.
+                classReader = new DelegatingClassReader(delegate.readBytes(0, delegate.classfileLength()), delegate);
+            } else {
+                classReader = this.classReader;
+                if (classReader == null) { // All parses of the class file resolve the same constant pool, such that any of them can back the view.
+                    classReader = new DelegatingClassReader(classFile, delegate);
+                    this.classReader = classReader;
+                }
+            }
+            if (classReader.model == null) {
+                classReader.model = switch (attributedElement) {
+                    case ClassModel model -> model;
+                    case CodeModel model -> model.parent().flatMap(MethodModel::parent).orElse(null);
+                    case FieldModel model -> model.parent().orElse(null);
+                    case MethodModel model -> model.parent().orElse(null);
+                    case RecordComponentInfo _ -> null;
+                };
+            }
+            return classReader;
+        }
+    }
+
     private static class DelegatingClassReader extends org.objectweb.asm.ClassReader {
 
         private final java.lang.classfile.ClassReader delegate;
-        private final Supplier<ClassModel> model;
+        private volatile ClassModel model;
 
-        private DelegatingClassReader(byte[] bytes, java.lang.classfile.ClassReader delegate, Supplier<ClassModel> model) {
+        private DelegatingClassReader(byte[] bytes, java.lang.classfile.ClassReader delegate) {
             super(bytes);
             this.delegate = delegate;
-            this.model = model;
         }
 
         @Override
@@ -125,7 +159,10 @@ class AsmAttribute extends CustomAttribute<AsmAttribute> {
 
         @Override
         public String[] getInterfaces() {
-            return model.get().interfaces().stream().map(ClassEntry::asInternalName).toArray(String[]::new);
+            if (model == null) {
+                throw new IllegalStateException();
+            }
+            return model.interfaces().stream().map(ClassEntry::asInternalName).toArray(String[]::new);
         }
 
         @Override
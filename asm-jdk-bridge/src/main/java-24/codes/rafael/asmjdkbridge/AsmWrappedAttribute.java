@@ -28,7 +28,7 @@ abstract class AsmWrappedAttribute<A extends java.lang.classfile.Attribute<?>> e
     }
 
     static <T> T unwrap(Attribute attribute, Class<T> type) {
-        return type.cast(attribute instanceof AsmWrappedAttribute<?> wrappedAttribute
+        return type.cast(attribute instanceof AsmWrappedAttribute<?> wrappedAttribute && type.isInstance(wrappedAttribute.attribute)
                 ? type.cast(wrappedAttribute.attribute)
                 : type.cast(AsmAttribute.of(attribute)));
     }
@@ -0,0 +1,166 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.Attribute;
+
+import java.lang.classfile.AttributeMapper;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassReader;
+import java.lang.classfile.constantpool.ConstantPool;
+import java.lang.classfile.constantpool.Utf8Entry;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * A context for reading and writing class files with the JDK class file API. A context holds the mapping of
+ * ASM attribute prototypes, the {@code ClassFile} instances that are used by class readers and the class hierarchy
+ * that is used by class writers, such that these are only created once. Custom attributes that are read by the same
+ * class reader share a view of its class file, which is not retained by the context. A context is thread-safe and can
+ * be shared among any number of readers and writers, given that the supplied super class resolver is thread-safe.
+ */
+public class JdkClassFileContext {
+
+    static final JdkClassFileContext DEFAULT = new JdkClassFileContext();
+
+    static final ClassFile WRITING = ClassFile.of(ClassFile.DeadCodeOption.KEEP_DEAD_CODE, ClassFile.StackMapsOption.DROP_STACK_MAPS);
+
+    private final AttributeFunction attributes;
+
+    private final Function<String, String> getSuperClass;
+
+    private final ClassHierarchy classHierarchy;
+
+    /**
+     * Creates a new context where super classes are resolved by {@link #getSuperClass(String)}.
+     *
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassFileContext(Attribute... attributePrototypes) {
+        this(null, attributePrototypes);
+    }
+
+    /**
+     * Creates a new context.
+     *
+     * @param getSuperClass       A resolver for the supplied internal class name's internal super class name. If
+     *                            a class is an interface, {@code null} should be returned. If {@code null}, super
+     *                            classes are resolved by loading classes from {@link #getClassLoader()}. If
+     *                            a {@link ClassHierarchy}, the hierarchy is used as is.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassFileContext(Function<String, String> getSuperClass, Attribute... attributePrototypes) {
+        attributes = new AttributeFunction(attributePrototypes.clone());
+        this.getSuperClass = getSuperClass;
+        classHierarchy = getSuperClass instanceof ClassHierarchy
+                ? (ClassHierarchy) getSuperClass
+                : new ClassHierarchy(this::getSuperClass);
+    }
+
+    static ClassFile ofFrames(Function<String, String> getSuperClass) {
+        ClassHierarchy classHierarchy = ClassHierarchy.of(getSuperClass);
+        return ClassFile.of(ClassFile.DeadCodeOption.PATCH_DEAD_CODE, ClassFile.StackMapsOption.STACK_MAPS_WHEN_REQUIRED, ClassFile.ClassHierarchyResolverOption.of(classDesc -> {
+            if (!classDesc.isClassOrInterface()) {
+                return null;
+            } else if (classDesc.equals(ConstantDescs.CD_Object)) {
+                return ClassHierarchyResolver.ClassHierarchyInfo.ofClass(null);
+            }
+            String descriptor = classDesc.descriptorString(), superClass = classHierarchy.apply(descriptor.substring(1, descriptor.length()  - 1));
+            return superClass == null ? ClassHierarchyResolver.ClassHierarchyInfo.ofInterface() : ClassHierarchyResolver.ClassHierarchyInfo.ofClass(ClassDesc.ofInternalName(superClass));
+        }));
+    }
+
+    static JdkClassFileContext of(Attribute[] attributePrototypes) {
+        return attributePrototypes.length == 0 ? DEFAULT : new JdkClassFileContext(attributePrototypes);
+    }
+
+    /**
+     * Returns the super class of the class that is provided by name. The default implementation applies the
+     * resolver that was supplied to this context or, if no resolver was supplied, loads the class from
+     * {@link #getClassLoader()} without initializing it. Resolved super classes are memoized by this context.
+     * <p>
+     * This is used for generating stack map frames.
+     *
+     * @param name The name of the class for which to resolve the super class.
+     * @return The name of the resolved super class.
+     */
+    protected String getSuperClass(String name) {
+        if (getSuperClass != null) {
+            return getSuperClass.apply(name);
+        }
+        return JdkClassWriter.getSuperClass(getClassLoader(), name);
+    }
+
+    /**
+     * Returns the class loader to use for resolving the super class of a discovered class. The default
+     * implementation returns the class loader of this context's class, which is the class loader of
+     * this library unless the context is subclassed.
+     *
+     * @return The class loader to use for resolving a super class's name.
+     */
+    protected ClassLoader getClassLoader() {
+        return getClass().getClassLoader();
+    }
+
+    AttributeFunction getAttributes() {
+        return attributes;
+    }
+
+    ClassHierarchy getClassHierarchy() {
+        return classHierarchy;
+    }
+
+    ClassHierarchy getClassHierarchy(String name, String superName, boolean isInterface) {
+        return name == null ? classHierarchy : classHierarchy.local(name, superName, isInterface);
+    }
+
+    static class AttributeFunction implements Function<Utf8Entry, AttributeMapper<?>> {
+
+        final Map<String, AsmAttribute> mappers;
+
+        final AsmAttribute[] prototypes;
+
+        private final ClassFile reading, readingWithoutDebug;
+
+        private final Map<ConstantPool, WeakReference<AsmAttribute.ClassReaderCache>> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+        private AttributeFunction(Attribute[] attributePrototypes) {
+            mappers = new HashMap<>();
+            for (Attribute attributePrototype : attributePrototypes) {
+                if (mappers.put(attributePrototype.type, AsmAttribute.of(attributePrototype, this::getCache)) != null) {
+                    throw new IllegalStateException("Duplicate attribute prototype: " + attributePrototype.type);
+                }
+            }
+            prototypes = mappers.values().toArray(AsmAttribute[]::new);
+            reading = ClassFile.of(ClassFile.AttributeMapperOption.of(this));
+            readingWithoutDebug = ClassFile.of(ClassFile.AttributeMapperOption.of(this),
+                    ClassFile.DebugElementsOption.DROP_DEBUG,
+                    ClassFile.LineNumbersOption.DROP_LINE_NUMBERS);
+        }
+
+        ClassModel parse(byte[] classFile, boolean dropDebug, AsmAttribute.ClassReaderCache cache) {
+            ClassModel classModel = (dropDebug ? readingWithoutDebug : reading).parse(classFile);
+            if (prototypes.length > 0) { // Attributes are read lazily, such that the cache is registered before it is looked up.
+                caches.put(classModel.constantPool(), new WeakReference<>(cache));
+            }
+            return classModel;
+        }
+
+        private AsmAttribute.ClassReaderCache getCache(ClassReader classReader) {
+            WeakReference<AsmAttribute.ClassReaderCache> reference = caches.get(classReader); // The cache is retained by its class reader, not by this context.
+            return reference == null ? null : reference.get();
+        }
+
+        @Override
+        public AttributeMapper<?> apply(Utf8Entry entry) {
+            AsmAttribute attribute = mappers.get(entry.stringValue());
+            return attribute == null ? null : attribute.attributeMapper();
+        }
+    }
+}
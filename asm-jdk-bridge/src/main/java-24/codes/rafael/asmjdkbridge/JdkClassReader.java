@@ -14,16 +14,15 @@ import org.objectweb.asm.RecordComponentVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.TypePath;
 import org.objectweb.asm.TypeReference;
+import org.objectweb.asm.commons.Remapper;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.classfile.Annotation;
 import java.lang.classfile.AnnotationElement;
 import java.lang.classfile.AnnotationValue;
-import java.lang.classfile.AttributeMapper;
 import java.lang.classfile.AttributedElement;
 import java.lang.classfile.Attributes;
-import java.lang.classfile.ClassFile;
 import java.lang.classfile.ClassModel;
 import java.lang.classfile.CodeElement;
 import java.lang.classfile.FieldModel;
@@ -32,11 +31,14 @@ import java.lang.classfile.Label;
 import java.lang.classfile.MethodModel;
 import java.lang.classfile.Opcode;
 import java.lang.classfile.TypeAnnotation;
+import java.lang.classfile.attribute.CharacterRangeTableAttribute;
+import java.lang.classfile.attribute.CodeAttribute;
 import java.lang.classfile.attribute.RuntimeInvisibleParameterAnnotationsAttribute;
 import java.lang.classfile.attribute.RuntimeInvisibleTypeAnnotationsAttribute;
 import java.lang.classfile.attribute.RuntimeVisibleParameterAnnotationsAttribute;
 import java.lang.classfile.attribute.RuntimeVisibleTypeAnnotationsAttribute;
 import java.lang.classfile.attribute.StackMapFrameInfo;
+import java.lang.classfile.attribute.StackMapTableAttribute;
 import java.lang.classfile.attribute.UnknownAttribute;
 import java.lang.classfile.constantpool.ClassEntry;
 import java.lang.classfile.constantpool.Utf8Entry;
@@ -79,10 +81,13 @@ import java.lang.constant.DynamicConstantDesc;
 import java.lang.constant.MethodHandleDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.reflect.AccessFlag;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -92,13 +97,12 @@ import java.util.Optional;
 import java.util.SequencedMap;
 import java.util.Set;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 /**
- * A reader for class files that uses the JDK class file API. The created class reader is immutable.
+ * A reader for class files that uses the JDK class file API. The created class reader is immutable. The access
+ * flags, class name, super class name and interface names are decoded from the class file's header, the class
+ * file is only parsed in its entirety when it is first visited.
  */
 public class JdkClassReader {
 
@@ -106,8 +110,12 @@ public class JdkClassReader {
             SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247,
             SAME_EXTENDED = 251;
 
-    private final ClassModel classModel;
-    private final AttributeFunction attributes;
+    private final byte[] bytes;
+    private final ClassHeader header;
+    private final JdkClassFileContext.AttributeFunction attributes;
+    private final AsmAttribute.ClassReaderCache attributeCache;
+
+    private volatile ClassModel classModel, debugFreeClassModel;
 
     /**
      * Creates a new class reader.
@@ -116,8 +124,31 @@ public class JdkClassReader {
      * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
      */
     public JdkClassReader(byte[] classFile, Attribute... attributePrototypes) {
-        attributes = new AttributeFunction(attributePrototypes);
-        classModel = ClassFile.of(ClassFile.AttributeMapperOption.of(attributes)).parse(classFile);
+        this(JdkClassFileContext.of(attributePrototypes), classFile);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param classFile           An array that contains the class file to represent. The array is only copied if
+     *                            the class file does not span the entire array.
+     * @param offset              The offset of the class file within the array.
+     * @param length              The length of the class file.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassReader(byte[] classFile, int offset, int length, Attribute... attributePrototypes) {
+        this(ClassFileBytes.of(classFile, offset, length), attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param buffer              A buffer that contains the class file to represent between its position and its
+     *                            limit. The buffer's position is not altered.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassReader(ByteBuffer buffer, Attribute... attributePrototypes) {
+        this(ClassFileBytes.of(buffer), attributePrototypes);
     }
 
     /**
@@ -131,6 +162,40 @@ public class JdkClassReader {
         this(inputStream.readAllBytes(), attributePrototypes);
     }
 
+    /**
+     * Creates a new class reader.
+     *
+     * @param inputStream         An input stream of the class file to represent.
+     * @param sizeHint            The expected size of the class file in bytes.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the stream cannot be read.
+     */
+    public JdkClassReader(InputStream inputStream, int sizeHint, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(inputStream, sizeHint), attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param path                The path of the class file to represent.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be read.
+     */
+    public JdkClassReader(Path path, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(path), attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param channel             A file channel from whose current position the class file is read.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the channel cannot be read.
+     */
+    public JdkClassReader(FileChannel channel, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(channel), attributePrototypes);
+    }
+
     /**
      * Creates a new class reader.
      *
@@ -139,24 +204,131 @@ public class JdkClassReader {
      * @throws IOException If the class file cannot be read.
      */
     public JdkClassReader(String className, Attribute... attributePrototypes) throws IOException {
-        attributes = new AttributeFunction(attributePrototypes);
-        ClassFile classFile = ClassFile.of(ClassFile.AttributeMapperOption.of(attributes));
-        try (InputStream inputStream = ClassLoader.getSystemResourceAsStream(className.replace('.', '/') + ".class")) {
-            classModel = classFile.parse(inputStream.readAllBytes());
-        }
+        this(ClassFileBytes.of(className), attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param className           The name of the class to represent.
+     * @param classFileLocator    The class file locator to resolve the class file from.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public JdkClassReader(String className, ClassFileLocator classFileLocator, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(classFileLocator, className), attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context   The context to use for parsing the class file.
+     * @param classFile The class file to represent.
+     */
+    public JdkClassReader(JdkClassFileContext context, byte[] classFile) {
+        attributes = context.getAttributes();
+        attributeCache = new AsmAttribute.ClassReaderCache(classFile);
+        bytes = classFile;
+        header = new ClassHeader(classFile);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context   The context to use for parsing the class file.
+     * @param classFile An array that contains the class file to represent. The array is only copied if
+     *                  the class file does not span the entire array.
+     * @param offset    The offset of the class file within the array.
+     * @param length    The length of the class file.
+     */
+    public JdkClassReader(JdkClassFileContext context, byte[] classFile, int offset, int length) {
+        this(context, ClassFileBytes.of(classFile, offset, length));
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context The context to use for parsing the class file.
+     * @param buffer  A buffer that contains the class file to represent between its position and its
+     *                limit. The buffer's position is not altered.
+     */
+    public JdkClassReader(JdkClassFileContext context, ByteBuffer buffer) {
+        this(context, ClassFileBytes.of(buffer));
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context     The context to use for parsing the class file.
+     * @param inputStream An input stream of the class file to represent.
+     * @throws IOException If the stream cannot be read.
+     */
+    public JdkClassReader(JdkClassFileContext context, InputStream inputStream) throws IOException {
+        this(context, inputStream.readAllBytes());
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context The context to use for parsing the class file.
+     * @param path    The path of the class file to represent.
+     * @throws IOException If the class file cannot be read.
+     */
+    public JdkClassReader(JdkClassFileContext context, Path path) throws IOException {
+        this(context, ClassFileBytes.of(path));
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context          The context to use for parsing the class file.
+     * @param className        The name of the class to represent.
+     * @param classFileLocator The class file locator to resolve the class file from.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public JdkClassReader(JdkClassFileContext context, String className, ClassFileLocator classFileLocator) throws IOException {
+        this(context, ClassFileBytes.of(classFileLocator, className));
+    }
+
+    byte[] getBytes() {
+        return bytes;
     }
 
     ClassModel getClassModel() {
+        ClassModel classModel = this.classModel;
+        if (classModel == null) {
+            synchronized (this) {
+                classModel = this.classModel;
+                if (classModel == null) {
+                    classModel = attributes.parse(bytes, false, attributeCache);
+                    this.classModel = classModel;
+                }
+            }
+        }
         return classModel;
     }
 
+    private ClassModel getDebugFreeClassModel() {
+        ClassModel debugFreeClassModel = this.debugFreeClassModel;
+        if (debugFreeClassModel == null) {
+            synchronized (this) {
+                debugFreeClassModel = this.debugFreeClassModel;
+                if (debugFreeClassModel == null) {
+                    debugFreeClassModel = attributes.parse(bytes, true, attributeCache);
+                    this.debugFreeClassModel = debugFreeClassModel;
+                }
+            }
+        }
+        return debugFreeClassModel;
+    }
+
     /**
      * Returns the access flags of this class as stored in the class file.
      *
      * @return The access flags of this class as stored in the class file.
      */
     public int getAccess() {
-        return classModel.flags().flagsMask();
+        return header.getAccess();
     }
 
     /**
@@ -165,7 +337,7 @@ public class JdkClassReader {
      * @return The internal name of this class.
      */
     public String getClassName() {
-        return classModel.thisClass().asInternalName();
+        return header.getClassName();
     }
 
     /**
@@ -174,7 +346,7 @@ public class JdkClassReader {
      * @return The internal super class name of this class or {@code null} for {@link Object}.
      */
     public String getSuperName() {
-        return classModel.superclass().map(ClassEntry::asInternalName).orElse(null);
+        return header.getSuperName();
     }
 
     /**
@@ -183,17 +355,56 @@ public class JdkClassReader {
      * @return The internal interface names of this class.
      */
     public String[] getInterfaces() {
-        return classModel.interfaces().stream().map(ClassEntry::asInternalName).toArray(String[]::new);
+        return header.getInterfaces().clone();
     }
 
     /**
      * Accepts a class visitor for the represented class file.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
      *
      * @param classVisitor The class visitor to delegate calls to.
      * @param flags        The ASM flags to consider when visiting the class file.
      */
     public void accept(ClassVisitor classVisitor, int flags) {
-        Map<Label, org.objectweb.asm.Label> labels = new HashMap<>();
+        accept(classVisitor, MemberPredicate.ALL, MemberPredicate.ALL, flags);
+    }
+
+    /**
+     * Accepts a class visitor for the represented class file where only selected fields and methods are visited.
+     * Members that are not selected are skipped without being processed.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
+     *
+     * @param classVisitor    The class visitor to delegate calls to.
+     * @param fieldPredicate  A predicate to select the fields to visit.
+     * @param methodPredicate A predicate to select the methods to visit.
+     * @param flags           The ASM flags to consider when visiting the class file.
+     */
+    public void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+        try {
+            doAccept(classVisitor, fieldPredicate, methodPredicate, flags);
+        } catch (VisitAbortedException ignored) {
+        }
+    }
+
+    /**
+     * Remaps the represented class file with the supplied remapper. The class file is transformed by the class file
+     * API directly, without translating it to ASM visitor calls. The result is equivalent to visiting the class file
+     * with ASM's {@code ClassRemapper}, where fields and methods that do not reference any remapped name are copied
+     * as they are. Using this method requires {@code asm-commons} to be available.
+     *
+     * @param remapper The remapper to apply.
+     * @return The remapped class file.
+     */
+    public byte[] remap(Remapper remapper) {
+        return JdkClassRemapper.remap(getClassModel(), remapper);
+    }
+
+    private void doAccept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+        // Debug elements are dropped by the parser such that they are never materialized, unless the class was already parsed with them.
+        ClassModel classModel = (flags & ClassReader.SKIP_DEBUG) != 0 && (this.classModel == null || debugFreeClassModel != null)
+                ? getDebugFreeClassModel()
+                : getClassModel();
+        LabelTable labels = new LabelTable();
         classVisitor.visit(classModel.minorVersion() << 16 | classModel.majorVersion(),
                 getAccess()
                         | (classModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
@@ -219,7 +430,7 @@ public class JdkClassReader {
             int moduleFlags = module.moduleFlagsMask();
             String moduleVersion = module.moduleVersion().map(Utf8Entry::stringValue).orElse(null);
             ModuleVisitor moduleVisitor = classVisitor.visitModule(moduleName, moduleFlags, moduleVersion);
-            if (moduleVisitor instanceof JdkClassWriter.WritingModuleVisitor writingModuleVisitor && writingModuleVisitor.has(classModel, moduleName, moduleFlags, moduleVersion)) {
+            if (ForwardingVisitors.unwrap(moduleVisitor) instanceof JdkClassWriter.WritingModuleVisitor writingModuleVisitor && writingModuleVisitor.has(classModel, moduleName, moduleFlags, moduleVersion)) {
                 classModel.findAttribute(Attributes.moduleMainClass()).ifPresent(writingModuleVisitor::add);
                 classModel.findAttribute(Attributes.modulePackages()).ifPresent(writingModuleVisitor::add);
                 writingModuleVisitor.add(module);
@@ -251,12 +462,20 @@ public class JdkClassReader {
         classModel.findAttribute(Attributes.enclosingMethod()).ifPresent(enclosingMethod -> classVisitor.visitOuterClass(enclosingMethod.enclosingClass().asInternalName(),
                 enclosingMethod.enclosingMethod().map(value -> value.name().stringValue()).orElse(null),
                 enclosingMethod.enclosingMethod().map(value -> value.type().stringValue()).orElse(null)));
-        acceptAnnotations(classModel, classVisitor::visitAnnotation, classVisitor::visitTypeAnnotation);
+        if (ForwardingVisitors.unwrapAnnotations(classVisitor) instanceof JdkClassWriter classWriter && ForwardingVisitors.isForwardingAnnotations(classWriter) && classWriter.hasAttributes(classModel)) {
+            acceptAnnotations(classModel, classWriter::addAttribute);
+        } else {
+            acceptAnnotations(classModel, classVisitor::visitAnnotation, classVisitor::visitTypeAnnotation);
+        }
         classModel.findAttribute(Attributes.sourceId()).ifPresent(sourceIDAttribute -> classVisitor.visitAttribute(new AsmWrappedAttribute.AsmSourceIdAttribute(sourceIDAttribute)));
         classModel.findAttribute(Attributes.compilationId()).ifPresent(sourceIDAttribute -> classVisitor.visitAttribute(new AsmWrappedAttribute.AsmCompilationIdAttribute(sourceIDAttribute)));
         classModel.findAttribute(Attributes.moduleResolution()).ifPresent(moduleResolutionAttribute -> classVisitor.visitAttribute(new AsmWrappedAttribute.AsmModuleResolutionAttribute(moduleResolutionAttribute)));
         classModel.findAttribute(Attributes.moduleHashes()).ifPresent(moduleResolutionAttribute -> classVisitor.visitAttribute(new AsmWrappedAttribute.AsmModuleHashesAttribute(moduleResolutionAttribute)));
-        acceptAttributes(classModel, false, classVisitor::visitAttribute);
+        if (ForwardingVisitors.unwrapAttributes(classVisitor) instanceof JdkClassWriter classWriter && ForwardingVisitors.isForwardingAttributes(classWriter) && classWriter.hasAttributes(classModel)) {
+            acceptAttributes(classModel, false, classVisitor::visitAttribute, classWriter::addAttribute);
+        } else {
+            acceptAttributes(classModel, false, classVisitor::visitAttribute, null);
+        }
         classModel.findAttribute(Attributes.nestMembers()).stream()
                 .flatMap(nestMembers -> nestMembers.nestMembers().stream())
                 .forEach(nestMember -> classVisitor.visitNestMember(nestMember.asInternalName()));
@@ -272,42 +491,71 @@ public class JdkClassReader {
         classModel.findAttribute(Attributes.record()).stream()
                 .flatMap(record -> record.components().stream())
                 .forEach(recordComponent -> {
-                    RecordComponentVisitor recordComponentVisitor = classVisitor.visitRecordComponent(recordComponent.name().stringValue(),
-                            recordComponent.descriptor().stringValue(),
-                            recordComponent.findAttribute(Attributes.signature()).map(signature -> signature.signature().stringValue()).orElse(null));
-                    if (recordComponentVisitor != null) {
-                        acceptAnnotations(recordComponent, recordComponentVisitor::visitAnnotation, recordComponentVisitor::visitTypeAnnotation);
-                        acceptAttributes(recordComponent, false, recordComponentVisitor::visitAttribute);
+                    String recordComponentName = recordComponent.name().stringValue();
+                    String recordComponentType = recordComponent.descriptor().stringValue();
+                    String recordComponentSignature = recordComponent.findAttribute(Attributes.signature()).map(signature -> signature.signature().stringValue()).orElse(null);
+                    RecordComponentVisitor recordComponentVisitor = classVisitor.visitRecordComponent(recordComponentName, recordComponentType, recordComponentSignature);
+                    if (ForwardingVisitors.unwrap(recordComponentVisitor) instanceof JdkClassWriter.WritingRecordComponentVisitor writingRecordComponentVisitor
+                            && writingRecordComponentVisitor.has(classModel, recordComponentName, recordComponentType, recordComponentSignature)) {
+                        writingRecordComponentVisitor.add(recordComponent);
+                    } else if (recordComponentVisitor != null) {
+                        if (ForwardingVisitors.unwrapAnnotations(recordComponentVisitor) instanceof JdkClassWriter.WritingRecordComponentVisitor writingRecordComponentVisitor
+                                && writingRecordComponentVisitor.hasAttributes(classModel)) {
+                            acceptAnnotations(recordComponent, writingRecordComponentVisitor::addAttribute);
+                        } else {
+                            acceptAnnotations(recordComponent, recordComponentVisitor::visitAnnotation, recordComponentVisitor::visitTypeAnnotation);
+                        }
+                        if (ForwardingVisitors.unwrapAttributes(recordComponentVisitor) instanceof JdkClassWriter.WritingRecordComponentVisitor writingRecordComponentVisitor && writingRecordComponentVisitor.hasAttributes(classModel)) {
+                            acceptAttributes(recordComponent, false, recordComponentVisitor::visitAttribute, writingRecordComponentVisitor::addAttribute);
+                        } else {
+                            acceptAttributes(recordComponent, false, recordComponentVisitor::visitAttribute, null);
+                        }
                         recordComponentVisitor.visitEnd();
                     }
                 });
         for (FieldModel fieldModel : classModel.fields()) {
-            int fieldFlags = fieldModel.flags().flagsMask()
-                    | (fieldModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
-                    | (fieldModel.findAttribute(Attributes.synthetic()).isPresent() ? Opcodes.ACC_SYNTHETIC : 0);
+            int fieldFlags = fieldModel.flags().flagsMask();
             String fieldName = fieldModel.fieldName().stringValue();
             String fieldType = fieldModel.fieldType().stringValue();
+            fieldFlags |= (fieldModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
+                    | (fieldModel.findAttribute(Attributes.synthetic()).isPresent() ? Opcodes.ACC_SYNTHETIC : 0);
+            if (!fieldPredicate.test(fieldFlags, fieldName, fieldType)) {
+                continue;
+            }
             String fieldSignature = fieldModel.findAttribute(Attributes.signature()).map(signature -> signature.signature().stringValue()).orElse(null);
             Object fieldConstant = fieldModel.findAttribute(Attributes.constantValue()).map(constantValue -> toAsmConstant(constantValue.constant().constantValue())).orElse(null);
             FieldVisitor fieldVisitor = classVisitor.visitField(fieldFlags, fieldName, fieldType, fieldSignature, fieldConstant);
-            if (fieldVisitor instanceof JdkClassWriter.WritingFieldVisitor writingFieldVisitor && writingFieldVisitor.has(classModel, fieldFlags, fieldName, fieldType, fieldSignature, fieldConstant)) {
+            if (ForwardingVisitors.unwrap(fieldVisitor) instanceof JdkClassWriter.WritingFieldVisitor writingFieldVisitor && writingFieldVisitor.has(classModel, fieldFlags, fieldName, fieldType, fieldSignature, fieldConstant)) {
                 writingFieldVisitor.add(fieldModel);
             } else if (fieldVisitor != null) {
-                acceptAnnotations(fieldModel, fieldVisitor::visitAnnotation, fieldVisitor::visitTypeAnnotation);
-                acceptAttributes(fieldModel, false, fieldVisitor::visitAttribute);
+                if (ForwardingVisitors.unwrapAnnotations(fieldVisitor) instanceof JdkClassWriter.WritingFieldVisitor writingFieldVisitor && writingFieldVisitor.hasAttributes(classModel)) {
+                    acceptAnnotations(fieldModel, writingFieldVisitor::addAttribute);
+                } else {
+                    acceptAnnotations(fieldModel, fieldVisitor::visitAnnotation, fieldVisitor::visitTypeAnnotation);
+                }
+                if (ForwardingVisitors.unwrapAttributes(fieldVisitor) instanceof JdkClassWriter.WritingFieldVisitor writingFieldVisitor && writingFieldVisitor.hasAttributes(classModel)) {
+                    acceptAttributes(fieldModel, false, fieldVisitor::visitAttribute, writingFieldVisitor::addAttribute);
+                } else {
+                    acceptAttributes(fieldModel, false, fieldVisitor::visitAttribute, null);
+                }
                 fieldVisitor.visitEnd();
             }
         }
-        for (MethodModel methodModel : classModel.methods()) {
-            int methodFlags = methodModel.flags().flagsMask()
-                    | (methodModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
-                    | (methodModel.findAttribute(Attributes.synthetic()).isPresent() ? Opcodes.ACC_SYNTHETIC : 0);
+        List<MethodModel> methodModels = classModel.methods();
+        for (int index = 0; index < methodModels.size(); index++) {
+            MethodModel methodModel = methodModels.get(index);
+            int methodFlags = methodModel.flags().flagsMask();
             String methodName = methodModel.methodName().stringValue();
             String methodType = methodModel.methodType().stringValue();
+            methodFlags |= (methodModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
+                    | (methodModel.findAttribute(Attributes.synthetic()).isPresent() ? Opcodes.ACC_SYNTHETIC : 0);
+            if (!methodPredicate.test(methodFlags, methodName, methodType)) {
+                continue;
+            }
             String methodSignature = methodModel.findAttribute(Attributes.signature()).map(signature -> signature.signature().stringValue()).orElse(null);
             String[] methodExceptions = methodModel.findAttribute(Attributes.exceptions()).map(exceptions -> exceptions.exceptions().stream().map(ClassEntry::asInternalName).toArray(String[]::new)).orElse(null);
             MethodVisitor methodVisitor = classVisitor.visitMethod(methodFlags, methodName, methodType, methodSignature, methodExceptions);
-            if (methodVisitor instanceof JdkClassWriter.WritingMethodVisitor writingMethodVisitor && writingMethodVisitor.has(classModel, methodFlags, methodName, methodType, methodSignature, methodExceptions)) {
+            if (ForwardingVisitors.unwrap(methodVisitor) instanceof JdkClassWriter.WritingMethodVisitor writingMethodVisitor && writingMethodVisitor.has(classModel, methodFlags, methodName, methodType, methodSignature, methodExceptions)) {
                 writingMethodVisitor.add(methodModel);
             } else if (methodVisitor != null) {
                 if ((flags & ClassReader.SKIP_DEBUG) == 0) {
@@ -315,230 +563,329 @@ public class JdkClassReader {
                             .flatMap(methodParameters -> methodParameters.parameters().stream())
                             .forEach(methodParameter -> methodVisitor.visitParameter(methodParameter.name().map(Utf8Entry::stringValue).orElse(null), methodParameter.flagsMask()));
                 }
-                methodModel.findAttribute(Attributes.annotationDefault()).ifPresent(annotationDefault -> {
-                    AnnotationVisitor annotationVisitor = methodVisitor.visitAnnotationDefault();
-                    if (annotationVisitor != null) {
-                        appendAnnotationValue(annotationVisitor, null, annotationDefault.defaultValue());
-                        annotationVisitor.visitEnd();
+                if (ForwardingVisitors.unwrapAnnotations(methodVisitor) instanceof JdkClassWriter.WritingMethodVisitor writingMethodVisitor && writingMethodVisitor.hasAttributes(classModel)) {
+                    methodModel.findAttribute(Attributes.annotationDefault()).ifPresent(writingMethodVisitor::addAttribute);
+                    acceptAnnotations(methodModel, writingMethodVisitor::addAttribute);
+                    methodModel.findAttribute(Attributes.runtimeVisibleParameterAnnotations()).ifPresent(writingMethodVisitor::addAttribute);
+                    methodModel.findAttribute(Attributes.runtimeInvisibleParameterAnnotations()).ifPresent(writingMethodVisitor::addAttribute);
+                } else {
+                    methodModel.findAttribute(Attributes.annotationDefault()).ifPresent(annotationDefault -> {
+                        AnnotationVisitor annotationVisitor = methodVisitor.visitAnnotationDefault();
+                        if (annotationVisitor != null) {
+                            appendAnnotationValue(annotationVisitor, null, annotationDefault.defaultValue());
+                            annotationVisitor.visitEnd();
+                        }
+                    });
+                    acceptAnnotations(methodModel, methodVisitor::visitAnnotation, methodVisitor::visitTypeAnnotation);
+                    acceptParameterAnnotations(methodModel, methodVisitor, true);
+                    acceptParameterAnnotations(methodModel, methodVisitor, false);
+                }
+                if (ForwardingVisitors.unwrapAttributes(methodVisitor) instanceof JdkClassWriter.WritingMethodVisitor writingMethodVisitor && writingMethodVisitor.hasAttributes(classModel)) {
+                    acceptAttributes(methodModel, false, methodVisitor::visitAttribute, writingMethodVisitor::addAttribute);
+                } else {
+                    acceptAttributes(methodModel, false, methodVisitor::visitAttribute, null);
+                }
+                if ((flags & ClassReader.SKIP_CODE) == 0) {
+                    CodeAttribute code = methodModel.findAttribute(Attributes.code()).orElse(null);
+                    boolean debug = classModel != debugFreeClassModel;
+                    if (code != null && !debug && isTypeAnnotated(code)) {
+                        code = getClassModel().methods().get(index).findAttribute(Attributes.code()).orElse(null); // Type annotations in code are only delivered as elements if debug elements are retained.
+                        debug = true;
                     }
-                });
-                acceptAnnotations(methodModel, methodVisitor::visitAnnotation, methodVisitor::visitTypeAnnotation);
-                acceptParameterAnnotations(methodModel, methodVisitor, true);
-                acceptParameterAnnotations(methodModel, methodVisitor, false);
-                acceptAttributes(methodModel, false, methodVisitor::visitAttribute);
-                methodModel.findAttribute(Attributes.code()).filter(_ -> (flags & ClassReader.SKIP_CODE) == 0).ifPresent(code -> {
-                    int localVariablesSize = Type.getMethodType(methodModel.methodType().stringValue()).getArgumentTypes().length + (methodModel.flags().has(AccessFlag.STATIC) ? 0 : 1);
-                    Map<Label, StackMapFrameInfo> frames = (flags & ClassReader.SKIP_FRAMES) == 0 ? code.findAttribute(Attributes.stackMapTable())
-                            .map(stackMapTable -> stackMapTable.entries().stream().collect(Collectors.toMap(StackMapFrameInfo::target, Function.identity())))
-                            .orElse(Collections.emptyMap()) : Map.of();
-                    SequencedMap<MergedLocalVariableKey, MergedLocalVariableValue> localVariables = new LinkedHashMap<>();
-                    Map<org.objectweb.asm.Label, List<Map.Entry<TypeAnnotation, Boolean>>> offsetTypeAnnotations = new IdentityHashMap<>();
-                    List<Map.Entry<TypeAnnotation, Boolean>> localVariableAnnotations = new ArrayList<>();
-                    List<CharacterRange> characterRanges = new ArrayList<>();
-                    methodVisitor.visitCode();
-                    org.objectweb.asm.Label currentPositionLabel = null;
-                    PushbackIterator<CodeElement> it = new PushbackIterator<>(code.iterator());
-                    while (it.hasNext()) {
-                        CodeElement element = it.next();
-                        switch (element) {
-                            case MonitorInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case TypeCheckInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.type().asInternalName());
-                            case LoadInstruction value -> methodVisitor.visitVarInsn(switch (value.typeKind()) {
-                                case BOOLEAN, BYTE, CHAR, SHORT, INT -> Opcodes.ILOAD;
-                                case LONG -> Opcodes.LLOAD;
-                                case FLOAT -> Opcodes.FLOAD;
-                                case DOUBLE -> Opcodes.DLOAD;
-                                case REFERENCE -> Opcodes.ALOAD;
-                                default -> throw new IllegalStateException("Unexpected type: " + value.typeKind());
-                            }, value.slot());
-                            case OperatorInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case ReturnInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case InvokeInstruction value -> methodVisitor.visitMethodInsn(value.opcode().bytecode(),
-                                    value.owner().asInternalName(),
-                                    value.name().stringValue(),
-                                    value.type().stringValue(),
-                                    value.isInterface());
-                            case IncrementInstruction value -> methodVisitor.visitIincInsn(value.slot(), value.constant());
-                            case FieldInstruction value -> methodVisitor.visitFieldInsn(value.opcode().bytecode(),
-                                    value.owner().asInternalName(),
-                                    value.name().stringValue(),
-                                    value.type().stringValue());
-                            case InvokeDynamicInstruction value -> methodVisitor.visitInvokeDynamicInsn(value.name().stringValue(),
-                                    value.type().stringValue(),
-                                    (Handle) toAsmConstant(value.bootstrapMethod()),
-                                    value.bootstrapArgs().stream().map(JdkClassReader::toAsmConstant).toArray());
-                            case BranchInstruction value -> methodVisitor.visitJumpInsn(
-                                    value.opcode() == Opcode.GOTO_W ? Opcodes.GOTO : value.opcode().bytecode(),
-                                    labels.computeIfAbsent(value.target(), _ -> new org.objectweb.asm.Label()));
-                            case StoreInstruction value -> methodVisitor.visitVarInsn(switch (value.typeKind()) {
-                                case BOOLEAN, BYTE, CHAR, SHORT, INT -> Opcodes.ISTORE;
-                                case LONG -> Opcodes.LSTORE;
-                                case FLOAT -> Opcodes.FSTORE;
-                                case DOUBLE -> Opcodes.DSTORE;
-                                case REFERENCE -> Opcodes.ASTORE;
-                                default -> throw new IllegalStateException("Unexpected type: " + value.typeKind());
-                            }, value.slot());
-                            case NewReferenceArrayInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.componentType().asInternalName());
-                            case LookupSwitchInstruction value -> {
-                                methodVisitor.visitLookupSwitchInsn(labels.computeIfAbsent(value.defaultTarget(), _ -> new org.objectweb.asm.Label()),
-                                    value.cases().stream().mapToInt(SwitchCase::caseValue).toArray(),
-                                    value.cases().stream().map(aCase -> labels.computeIfAbsent(aCase.target(), _ -> new org.objectweb.asm.Label())).toArray(org.objectweb.asm.Label[]::new));
-                            }
-                            case TableSwitchInstruction value -> {
-                                Map<Integer, SwitchCase> cases = value.cases().stream().collect(Collectors.toMap(SwitchCase::caseValue, Function.identity()));
-                                org.objectweb.asm.Label dflt = labels.computeIfAbsent(value.defaultTarget(), _ -> new org.objectweb.asm.Label());
-                                methodVisitor.visitTableSwitchInsn(value.lowValue(),
-                                    value.highValue(),
-                                    dflt,
-                                    IntStream.rangeClosed(value.lowValue(), value.highValue()).mapToObj(index -> {
-                                        SwitchCase switchCase = cases.get(index);
-                                        return switchCase == null ? dflt : labels.computeIfAbsent(switchCase.target(), _ -> new org.objectweb.asm.Label());
-                                    }).toArray(org.objectweb.asm.Label[]::new));
-                            }
-                            case ArrayStoreInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case ArrayLoadInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case ConstantInstruction value -> {
-                                switch (value.opcode()) {
-                                    case LDC, LDC_W, LDC2_W -> methodVisitor.visitLdcInsn(toAsmConstant(value.constantValue()));
-                                    case BIPUSH, SIPUSH -> methodVisitor.visitIntInsn(value.opcode().bytecode(), (Integer) value.constantValue());
-                                    default -> methodVisitor.visitInsn(value.opcode().bytecode());
-                                }
-                            }
-                            case StackInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case NopInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case ThrowInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case NewObjectInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.className().asInternalName());
-                            case ConvertInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
-                            case NewMultiArrayInstruction value -> methodVisitor.visitMultiANewArrayInsn(value.arrayType().asInternalName(), value.dimensions());
-                            case NewPrimitiveArrayInstruction value -> methodVisitor.visitIntInsn(value.opcode().bytecode(), value.typeKind().newarrayCode());
-                            case LocalVariableType value -> localVariables.compute(new MergedLocalVariableKey(
-                                    labels.computeIfAbsent(value.startScope(), _ -> new org.objectweb.asm.Label()),
-                                    labels.computeIfAbsent(value.endScope(), _ -> new org.objectweb.asm.Label()),
-                                    value.name().stringValue(),
-                                    value.slot()
-                            ), (_, values) -> new MergedLocalVariableValue(values == null ? null : values.descriptor, value.signature().stringValue()));
-                            case ExceptionCatch value -> methodVisitor.visitTryCatchBlock(labels.computeIfAbsent(value.tryStart(), _ -> new org.objectweb.asm.Label()),
-                                    labels.computeIfAbsent(value.tryEnd(), _ -> new org.objectweb.asm.Label()),
-                                    labels.computeIfAbsent(value.handler(), _ -> new org.objectweb.asm.Label()),
-                                    value.catchType().map(ClassEntry::asInternalName).orElse(null));
-                            case LocalVariable value -> localVariables.compute(new MergedLocalVariableKey(
-                                    labels.computeIfAbsent(value.startScope(), _ -> new org.objectweb.asm.Label()),
-                                    labels.computeIfAbsent(value.endScope(), _ -> new org.objectweb.asm.Label()),
-                                    value.name().stringValue(),
-                                    value.slot()
-                            ), (_, values) -> new MergedLocalVariableValue(value.typeSymbol().descriptorString(), values == null ? null : values.signature));
-                            case LineNumber value -> {
-                                if ((flags & ClassReader.SKIP_DEBUG) == 0) {
-                                    if (currentPositionLabel == null) {
-                                        currentPositionLabel = new org.objectweb.asm.Label();
-                                        methodVisitor.visitLabel(currentPositionLabel);
-                                    }
-                                    methodVisitor.visitLineNumber(value.line(), currentPositionLabel);
-                                }
-                            }
-                            case LabelTarget value -> {
-                                currentPositionLabel = labels.computeIfAbsent(value.label(), _ -> new org.objectweb.asm.Label());
-                                methodVisitor.visitLabel(currentPositionLabel);
-                                StackMapFrameInfo frame = frames.get(value.label());
-                                if (frame != null) {
-                                    if ((flags & ClassReader.SKIP_DEBUG) == 0 && it.hasNext()) { // Assure same ordering of ASM and JDK class reader with respect to line numbers and frames.
-                                        CodeElement next = it.next();
-                                        if (next instanceof LineNumber line) {
-                                            methodVisitor.visitLineNumber(line.line(), currentPositionLabel);
-                                        } else {
-                                            it.push(next);
-                                        }
-                                    }
-                                    if ((flags & ClassReader.EXPAND_FRAMES) != 0) {
-                                        methodVisitor.visitFrame(Opcodes.F_NEW,
-                                                frame.locals().size(),
-                                                frame.locals().isEmpty() ? null : frame.locals().stream()
-                                                        .map(verificationTypeInfo -> toAsmFrameValue(verificationTypeInfo, labels))
-                                                        .toArray(),
-                                                frame.stack().size(),
-                                                frame.stack().isEmpty() ? null : frame.stack().stream()
-                                                        .map(verificationTypeInfo -> toAsmFrameValue(verificationTypeInfo, labels))
-                                                        .toArray());
-                                    } else if (frame.frameType() < 64) {
-                                        methodVisitor.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-                                    } else if (frame.frameType() < 128) {
-                                        methodVisitor.visitFrame(Opcodes.F_SAME1,
-                                                0, null,
-                                                1, new Object[]{toAsmFrameValue(frame.stack().getFirst(), labels)});
-                                    } else if (frame.frameType() < SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
-                                        throw new IllegalArgumentException("Invalid stackmap frame type: " + frame.frameType());
-                                    } else if (frame.frameType() == SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
-                                        methodVisitor.visitFrame(Opcodes.F_SAME1,
-                                                0, null,
-                                                1, new Object[]{toAsmFrameValue(frame.stack().getFirst(), labels)});
-                                    } else if (frame.frameType() < SAME_EXTENDED) {
-                                        methodVisitor.visitFrame(Opcodes.F_CHOP,
-                                                localVariablesSize - frame.locals().size(), null,
-                                                0, null);
-                                        localVariablesSize = frame.locals().size();
-                                    } else if (frame.frameType() == SAME_EXTENDED) {
-                                        methodVisitor.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-                                    } else if (frame.frameType() < SAME_EXTENDED + 4) {
-                                        int appended = frame.locals().size() - localVariablesSize;
-                                        methodVisitor.visitFrame(Opcodes.F_APPEND,
-                                                appended, frame.locals().stream().skip(localVariablesSize).map(verificationTypeInfo -> toAsmFrameValue(verificationTypeInfo, labels)).toArray(),
-                                                0, null);
-                                        localVariablesSize = frame.locals().size();
-                                    } else {
-                                        methodVisitor.visitFrame(Opcodes.F_FULL,
-                                                frame.locals().size(), frame.locals().stream().map(verificationTypeInfo -> toAsmFrameValue(verificationTypeInfo, labels)).toArray(),
-                                                frame.stack().size(), frame.stack().stream().map(verificationTypeInfo -> toAsmFrameValue(verificationTypeInfo, labels)).toArray());
-                                        localVariablesSize = frame.locals().size();
-                                    }
-                                }
+                    if (code != null) {
+                        JdkClassWriter.WritingMethodVisitor writingMethodVisitor = (flags & (ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES)) == 0
+                                ? toWritingMethodVisitor(methodVisitor, classModel, methodFlags, methodName, methodType)
+                                : null;
+                        if (writingMethodVisitor != null && ForwardingVisitors.unwrapCode(methodVisitor) == writingMethodVisitor) {
+                            writingMethodVisitor.add(code);
+                        } else {
+                            acceptCode(methodModel, code, debug, writingMethodVisitor == null
+                                    ? methodVisitor
+                                    : writingMethodVisitor.expect(code, methodVisitor), flags, labels); // The writer records the original code while it is visited.
+                        }
+                    }
+                }
+                methodVisitor.visitEnd();
+            }
+        }
+        classVisitor.visitEnd();
+    }
+
+    private void acceptCode(MethodModel methodModel, CodeAttribute code, boolean debug, MethodVisitor methodVisitor, int flags, LabelTable labels) {
+        labels.reset(code);
+        int localVariablesSize = Type.getArgumentCount(methodModel.methodType().stringValue()) + (methodModel.flags().has(AccessFlag.STATIC) ? 0 : 1);
+        List<StackMapFrameInfo> frames = (flags & ClassReader.SKIP_FRAMES) == 0
+                ? code.findAttribute(Attributes.stackMapTable()).map(StackMapTableAttribute::entries).orElse(List.of())
+                : List.of();
+        int frameIndex = 0, frameOffset = frames.isEmpty() ? -1 : code.labelToBci(frames.getFirst().target());
+        SequencedMap<MergedLocalVariableKey, MergedLocalVariableValue> localVariables = null;
+        Map<org.objectweb.asm.Label, List<Map.Entry<TypeAnnotation, Boolean>>> offsetTypeAnnotations = null;
+        List<Map.Entry<TypeAnnotation, Boolean>> localVariableAnnotations = null;
+        List<CharacterRange> characterRanges = null;
+        methodVisitor.visitCode();
+        org.objectweb.asm.Label currentPositionLabel = null;
+        PushbackIterator<CodeElement> it = new PushbackIterator<>(debug && (flags & ClassReader.SKIP_DEBUG) != 0
+                ? toDebugFreeElements(code).iterator()
+                : code.iterator());
+        while (it.hasNext()) {
+            CodeElement element = it.next();
+            switch (element) { // Cases are ordered by their typical frequency as the type switch is resolved sequentially.
+                case LoadInstruction value -> methodVisitor.visitVarInsn(switch (value.typeKind()) {
+                    case BOOLEAN, BYTE, CHAR, SHORT, INT -> Opcodes.ILOAD;
+                    case LONG -> Opcodes.LLOAD;
+                    case FLOAT -> Opcodes.FLOAD;
+                    case DOUBLE -> Opcodes.DLOAD;
+                    case REFERENCE -> Opcodes.ALOAD;
+                    default -> throw new IllegalStateException("Unexpected type: " + value.typeKind());
+                }, value.slot());
+                case InvokeInstruction value -> methodVisitor.visitMethodInsn(value.opcode().bytecode(),
+                        value.owner().asInternalName(),
+                        value.name().stringValue(),
+                        value.type().stringValue(),
+                        value.isInterface());
+                case FieldInstruction value -> methodVisitor.visitFieldInsn(value.opcode().bytecode(),
+                        value.owner().asInternalName(),
+                        value.name().stringValue(),
+                        value.type().stringValue());
+                case LabelTarget value -> {
+                    int offset = code.labelToBci(value.label());
+                    currentPositionLabel = labels.get(offset);
+                    methodVisitor.visitLabel(currentPositionLabel);
+                    if (offset == frameOffset) {
+                        StackMapFrameInfo frame = frames.get(frameIndex++);
+                        frameOffset = frameIndex < frames.size() ? code.labelToBci(frames.get(frameIndex).target()) : -1;
+                        if ((flags & ClassReader.SKIP_DEBUG) == 0 && it.hasNext()) { // Assure same ordering of ASM and JDK class reader with respect to line numbers and frames.
+                            CodeElement next = it.next();
+                            if (next instanceof LineNumber line) {
+                                methodVisitor.visitLineNumber(line.line(), currentPositionLabel);
+                            } else {
+                                it.push(next);
                             }
-                            case CharacterRange characterRange -> characterRanges.add(characterRange);
-                            case RuntimeVisibleTypeAnnotationsAttribute value -> appendCodeAnnotations(value.annotations(), true, methodVisitor, labels, localVariableAnnotations, offsetTypeAnnotations);
-                            case RuntimeInvisibleTypeAnnotationsAttribute value -> appendCodeAnnotations(value.annotations(), false, methodVisitor, labels, localVariableAnnotations, offsetTypeAnnotations);
-                            case DiscontinuedInstruction.JsrInstruction value -> methodVisitor.visitJumpInsn(
-                                (value.opcode() == Opcode.JSR_W ? Opcode.JSR : value.opcode()).bytecode(),
-                                    labels.computeIfAbsent(value.target(), _ -> new org.objectweb.asm.Label()));
-                            case DiscontinuedInstruction.RetInstruction value -> methodVisitor.visitVarInsn(
-                                (value.opcode() == Opcode.RET_W ? Opcode.RET : value.opcode()).bytecode(),
-                                    value.slot());
-                            default -> throw new UnsupportedOperationException("Unknown value: " + element);
                         }
-                        if (element instanceof Instruction) {
-                            offsetTypeAnnotations.getOrDefault(currentPositionLabel, Collections.emptyList()).forEach(entry -> appendAnnotationValues(methodVisitor.visitInsnAnnotation(
+                        if ((flags & ClassReader.EXPAND_FRAMES) != 0) {
+                            methodVisitor.visitFrame(Opcodes.F_NEW,
+                                    frame.locals().size(),
+                                    frame.locals().isEmpty() ? null : toAsmFrameValues(frame.locals(), 0, labels),
+                                    frame.stack().size(),
+                                    frame.stack().isEmpty() ? null : toAsmFrameValues(frame.stack(), 0, labels));
+                        } else if (frame.frameType() < 64) {
+                            methodVisitor.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+                        } else if (frame.frameType() < 128) {
+                            methodVisitor.visitFrame(Opcodes.F_SAME1,
+                                    0, null,
+                                    1, new Object[]{toAsmFrameValue(frame.stack().getFirst(), labels)});
+                        } else if (frame.frameType() < SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+                            throw new IllegalArgumentException("Invalid stackmap frame type: " + frame.frameType());
+                        } else if (frame.frameType() == SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+                            methodVisitor.visitFrame(Opcodes.F_SAME1,
+                                    0, null,
+                                    1, new Object[]{toAsmFrameValue(frame.stack().getFirst(), labels)});
+                        } else if (frame.frameType() < SAME_EXTENDED) {
+                            methodVisitor.visitFrame(Opcodes.F_CHOP,
+                                    localVariablesSize - frame.locals().size(), null,
+                                    0, null);
+                            localVariablesSize = frame.locals().size();
+                        } else if (frame.frameType() == SAME_EXTENDED) {
+                            methodVisitor.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+                        } else if (frame.frameType() < SAME_EXTENDED + 4) {
+                            int appended = frame.locals().size() - localVariablesSize;
+                            methodVisitor.visitFrame(Opcodes.F_APPEND,
+                                    appended, toAsmFrameValues(frame.locals(), localVariablesSize, labels),
+                                    0, null);
+                            localVariablesSize = frame.locals().size();
+                        } else {
+                            methodVisitor.visitFrame(Opcodes.F_FULL,
+                                    frame.locals().size(), toAsmFrameValues(frame.locals(), 0, labels),
+                                    frame.stack().size(), toAsmFrameValues(frame.stack(), 0, labels));
+                            localVariablesSize = frame.locals().size();
+                        }
+                    }
+                }
+                case StoreInstruction value -> methodVisitor.visitVarInsn(switch (value.typeKind()) {
+                    case BOOLEAN, BYTE, CHAR, SHORT, INT -> Opcodes.ISTORE;
+                    case LONG -> Opcodes.LSTORE;
+                    case FLOAT -> Opcodes.FSTORE;
+                    case DOUBLE -> Opcodes.DSTORE;
+                    case REFERENCE -> Opcodes.ASTORE;
+                    default -> throw new IllegalStateException("Unexpected type: " + value.typeKind());
+                }, value.slot());
+                case ConstantInstruction value -> {
+                    switch (value.opcode()) {
+                        case LDC, LDC_W, LDC2_W -> methodVisitor.visitLdcInsn(toAsmConstant(value.constantValue()));
+                        case BIPUSH, SIPUSH -> methodVisitor.visitIntInsn(value.opcode().bytecode(), (Integer) value.constantValue());
+                        default -> methodVisitor.visitInsn(value.opcode().bytecode());
+                    }
+                }
+                case LineNumber value -> {
+                    if ((flags & ClassReader.SKIP_DEBUG) == 0) {
+                        if (currentPositionLabel == null) {
+                            currentPositionLabel = new org.objectweb.asm.Label();
+                            methodVisitor.visitLabel(currentPositionLabel);
+                        }
+                        methodVisitor.visitLineNumber(value.line(), currentPositionLabel);
+                    }
+                }
+                case BranchInstruction value -> methodVisitor.visitJumpInsn(
+                        value.opcode() == Opcode.GOTO_W ? Opcodes.GOTO : value.opcode().bytecode(),
+                        labels.get(value.target()));
+                case StackInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case ReturnInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case OperatorInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case NewObjectInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.className().asInternalName());
+                case TypeCheckInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.type().asInternalName());
+                case IncrementInstruction value -> methodVisitor.visitIincInsn(value.slot(), value.constant());
+                case ArrayLoadInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case ArrayStoreInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case ConvertInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case ThrowInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case InvokeDynamicInstruction value -> {
+                    List<ConstantDesc> bootstrapArguments = value.bootstrapArgs();
+                    Object[] arguments = new Object[bootstrapArguments.size()];
+                    for (int index = 0; index < arguments.length; index++) {
+                        arguments[index] = toAsmConstant(bootstrapArguments.get(index));
+                    }
+                    methodVisitor.visitInvokeDynamicInsn(value.name().stringValue(),
+                            value.type().stringValue(),
+                            (Handle) toAsmConstant(value.bootstrapMethod()),
+                            arguments);
+                }
+                case ExceptionCatch value -> methodVisitor.visitTryCatchBlock(labels.get(value.tryStart()),
+                        labels.get(value.tryEnd()),
+                        labels.get(value.handler()),
+                        value.catchType().map(ClassEntry::asInternalName).orElse(null));
+                case LocalVariable value -> {
+                    if (localVariables == null) {
+                        localVariables = new LinkedHashMap<>();
+                    }
+                    localVariables.compute(new MergedLocalVariableKey(
+                            labels.get(value.startScope()),
+                            labels.get(value.endScope()),
+                            value.name().stringValue(),
+                            value.slot()
+                    ), (_, values) -> new MergedLocalVariableValue(value.typeSymbol().descriptorString(), values == null ? null : values.signature));
+                }
+                case LocalVariableType value -> {
+                    if (localVariables == null) {
+                        localVariables = new LinkedHashMap<>();
+                    }
+                    localVariables.compute(new MergedLocalVariableKey(
+                            labels.get(value.startScope()),
+                            labels.get(value.endScope()),
+                            value.name().stringValue(),
+                            value.slot()
+                    ), (_, values) -> new MergedLocalVariableValue(values == null ? null : values.descriptor, value.signature().stringValue()));
+                }
+                case TableSwitchInstruction value -> {
+                    org.objectweb.asm.Label dflt = labels.get(value.defaultTarget());
+                    org.objectweb.asm.Label[] targets = new org.objectweb.asm.Label[value.highValue() - value.lowValue() + 1];
+                    Arrays.fill(targets, dflt);
+                    List<SwitchCase> cases = value.cases();
+                    for (int index = 0; index < cases.size(); index++) {
+                        SwitchCase switchCase = cases.get(index);
+                        targets[switchCase.caseValue() - value.lowValue()] = labels.get(switchCase.target());
+                    }
+                    methodVisitor.visitTableSwitchInsn(value.lowValue(), value.highValue(), dflt, targets);
+                }
+                case LookupSwitchInstruction value -> {
+                    org.objectweb.asm.Label dflt = labels.get(value.defaultTarget());
+                    List<SwitchCase> cases = value.cases();
+                    int[] keys = new int[cases.size()];
+                    org.objectweb.asm.Label[] targets = new org.objectweb.asm.Label[cases.size()];
+                    for (int index = 0; index < keys.length; index++) {
+                        SwitchCase switchCase = cases.get(index);
+                        keys[index] = switchCase.caseValue();
+                        targets[index] = labels.get(switchCase.target());
+                    }
+                    methodVisitor.visitLookupSwitchInsn(dflt, keys, targets);
+                }
+                case NewReferenceArrayInstruction value -> methodVisitor.visitTypeInsn(value.opcode().bytecode(), value.componentType().asInternalName());
+                case NewPrimitiveArrayInstruction value -> methodVisitor.visitIntInsn(value.opcode().bytecode(), value.typeKind().newarrayCode());
+                case NewMultiArrayInstruction value -> methodVisitor.visitMultiANewArrayInsn(value.arrayType().asInternalName(), value.dimensions());
+                case MonitorInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case NopInstruction value -> methodVisitor.visitInsn(value.opcode().bytecode());
+                case CharacterRange characterRange -> {
+                    if (characterRanges == null) {
+                        characterRanges = new ArrayList<>();
+                    }
+                    characterRanges.add(characterRange);
+                }
+                case RuntimeVisibleTypeAnnotationsAttribute value -> {
+                    if (offsetTypeAnnotations == null) {
+                        offsetTypeAnnotations = new IdentityHashMap<>();
+                        localVariableAnnotations = new ArrayList<>();
+                    }
+                    appendCodeAnnotations(value.annotations(), true, methodVisitor, labels, localVariableAnnotations, offsetTypeAnnotations);
+                }
+                case RuntimeInvisibleTypeAnnotationsAttribute value -> {
+                    if (offsetTypeAnnotations == null) {
+                        offsetTypeAnnotations = new IdentityHashMap<>();
+                        localVariableAnnotations = new ArrayList<>();
+                    }
+                    appendCodeAnnotations(value.annotations(), false, methodVisitor, labels, localVariableAnnotations, offsetTypeAnnotations);
+                }
+                case DiscontinuedInstruction.JsrInstruction value -> methodVisitor.visitJumpInsn(
+                        (value.opcode() == Opcode.JSR_W ? Opcode.JSR : value.opcode()).bytecode(),
+                        labels.get(value.target()));
+                case DiscontinuedInstruction.RetInstruction value -> methodVisitor.visitVarInsn(
+                        (value.opcode() == Opcode.RET_W ? Opcode.RET : value.opcode()).bytecode(),
+                        value.slot());
+                default -> throw new UnsupportedOperationException("Unknown value: " + element);
+            }
+            if (element instanceof Instruction) {
+                if (offsetTypeAnnotations != null && currentPositionLabel != null) {
+                    List<Map.Entry<TypeAnnotation, Boolean>> typeAnnotations = offsetTypeAnnotations.get(currentPositionLabel);
+                    if (typeAnnotations != null) {
+                        for (Map.Entry<TypeAnnotation, Boolean> entry : typeAnnotations) {
+                            appendAnnotationValues(methodVisitor.visitInsnAnnotation(
                                     TypeReference.newTypeReference(entry.getKey().targetInfo().targetType().targetTypeValue()).getValue(),
                                     toTypePath(entry.getKey().targetPath()),
                                     entry.getKey().annotation().className().stringValue(),
-                                    entry.getValue()), entry.getKey().annotation().elements()));
-                            currentPositionLabel = null;
+                                    entry.getValue()), entry.getKey().annotation().elements());
                         }
                     }
-                    if ((flags & ClassReader.SKIP_DEBUG) == 0) {
-                        localVariables.forEach((key, value) -> methodVisitor.visitLocalVariable(key.name(),
-                                value.descriptor(),
-                                value.signature(),
-                                key.start(),
-                                key.end(),
-                                key.slot()));
-                    }
-                    localVariableAnnotations.forEach(entry -> {
-                        TypeAnnotation.LocalVarTarget target = (TypeAnnotation.LocalVarTarget) entry.getKey().targetInfo();
-                        appendAnnotationValues(methodVisitor.visitLocalVariableAnnotation(
-                                TypeReference.newTypeReference(entry.getKey().targetInfo().targetType().targetTypeValue()).getValue(),
-                                toTypePath(entry.getKey().targetPath()),
-                                target.table().stream().map(localVarTargetInfo -> labels.get(localVarTargetInfo.startLabel())).toArray(org.objectweb.asm.Label[]::new),
-                                target.table().stream().map(localVarTargetInfo -> labels.get(localVarTargetInfo.endLabel())).toArray(org.objectweb.asm.Label[]::new),
-                                target.table().stream().mapToInt(TypeAnnotation.LocalVarTargetInfo::index).toArray(),
-                                entry.getKey().annotation().className().stringValue(),
-                                entry.getValue()), entry.getKey().annotation().elements());
-                    });
-                    code.findAttribute(Attributes.characterRangeTable()).ifPresent(_ -> methodVisitor.visitAttribute(AsmWrappedAttribute.AsmCharacterRangeTableAttribute.of(characterRanges, code)));
-                    acceptAttributes(code, true, methodVisitor::visitAttribute);
-                    methodVisitor.visitMaxs(code.maxStack(), code.maxLocals());
-                });
-                methodVisitor.visitEnd();
+                }
+                currentPositionLabel = null;
             }
         }
-        classVisitor.visitEnd();
+        if ((flags & ClassReader.SKIP_DEBUG) == 0 && localVariables != null) {
+            for (Map.Entry<MergedLocalVariableKey, MergedLocalVariableValue> entry : localVariables.entrySet()) {
+                methodVisitor.visitLocalVariable(entry.getKey().name(),
+                        entry.getValue().descriptor(),
+                        entry.getValue().signature(),
+                        entry.getKey().start(),
+                        entry.getKey().end(),
+                        entry.getKey().slot());
+            }
+        }
+        if (localVariableAnnotations != null) {
+            for (Map.Entry<TypeAnnotation, Boolean> entry : localVariableAnnotations) {
+                List<TypeAnnotation.LocalVarTargetInfo> table = ((TypeAnnotation.LocalVarTarget) entry.getKey().targetInfo()).table();
+                org.objectweb.asm.Label[] start = new org.objectweb.asm.Label[table.size()], end = new org.objectweb.asm.Label[table.size()];
+                int[] index = new int[table.size()];
+                for (int position = 0; position < index.length; position++) {
+                    TypeAnnotation.LocalVarTargetInfo localVarTargetInfo = table.get(position);
+                    start[position] = labels.get(localVarTargetInfo.startLabel());
+                    end[position] = labels.get(localVarTargetInfo.endLabel());
+                    index[position] = localVarTargetInfo.index();
+                }
+                appendAnnotationValues(methodVisitor.visitLocalVariableAnnotation(
+                        TypeReference.newTypeReference(entry.getKey().targetInfo().targetType().targetTypeValue()).getValue(),
+                        toTypePath(entry.getKey().targetPath()),
+                        start,
+                        end,
+                        index,
+                        entry.getKey().annotation().className().stringValue(),
+                        entry.getValue()), entry.getKey().annotation().elements());
+            }
+        }
+        CharacterRangeTableAttribute characterRangeTable = code.findAttribute(Attributes.characterRangeTable()).orElse(null);
+        if (characterRangeTable != null) {
+            methodVisitor.visitAttribute((flags & ClassReader.SKIP_DEBUG) == 0
+                    ? AsmWrappedAttribute.AsmCharacterRangeTableAttribute.of(characterRanges == null ? List.of() : characterRanges, code)
+                    : new AsmWrappedAttribute.AsmCharacterRangeTableAttribute(characterRangeTable));
+        }
+        acceptAttributes(code, true, methodVisitor::visitAttribute, null);
+        methodVisitor.visitMaxs(code.maxStack(), code.maxLocals());
     }
 
     private void acceptAnnotations(AttributedElement element, AnnotationVisitorSource annotationVisitorSource, TypeAnnotationVisitorSource typeAnnotationVisitorSource) {
@@ -562,6 +909,13 @@ public class JdkClassReader {
                         false), annotation.annotation().elements()));
     }
 
+    private static void acceptAnnotations(AttributedElement element, Consumer<java.lang.classfile.Attribute<?>> consumer) {
+        element.findAttribute(Attributes.runtimeVisibleAnnotations()).ifPresent(consumer);
+        element.findAttribute(Attributes.runtimeInvisibleAnnotations()).ifPresent(consumer);
+        element.findAttribute(Attributes.runtimeVisibleTypeAnnotations()).ifPresent(consumer);
+        element.findAttribute(Attributes.runtimeInvisibleTypeAnnotations()).ifPresent(consumer);
+    }
+
     private void acceptParameterAnnotations(MethodModel methodModel, MethodVisitor methodVisitor, boolean visible) {
         int count = methodModel.findAttribute(Attributes.methodParameters())
                 .map(parameters -> (int) parameters.parameters().stream().filter(parameter -> !parameter.has(AccessFlag.SYNTHETIC) && !parameter.has(AccessFlag.MANDATED)).count())
@@ -579,15 +933,32 @@ public class JdkClassReader {
         });
     }
 
-    private void acceptAttributes(AttributedElement element, boolean code, Consumer<Attribute> consumer) {
-        attributes.mappers.forEach((_, value) -> element
-                .findAttributes(value.attributeMapper())
-                .forEach(attribute -> consumer.accept(attribute.attribute)));
+    private void acceptAttributes(AttributedElement element, boolean code, Consumer<Attribute> consumer, Consumer<java.lang.classfile.Attribute<?>> stableConsumer) {
+        for (AsmAttribute prototype : attributes.prototypes) {
+            if (stableConsumer != null && switch (prototype.attributeMapper().stability()) {
+                case STATELESS, CP_REFS -> true;
+                default -> false;
+            }) {
+                element.findAttributes(prototype.attributeMapper()).forEach(stableConsumer);
+            } else {
+                element.findAttributes(prototype.attributeMapper()).forEach(attribute -> consumer.accept(attribute.attribute));
+            }
+        }
         element.attributes().stream()
                 .filter(attribute -> attribute instanceof java.lang.classfile.attribute.UnknownAttribute)
                 .forEach(attribute -> consumer.accept(new AsmWrappedAttribute.AsmUnknownAttribute((UnknownAttribute) attribute, code)));
     }
 
+    private static JdkClassWriter.WritingMethodVisitor toWritingMethodVisitor(MethodVisitor methodVisitor, ClassModel classModel, int methodFlags, String methodName, String methodType) {
+        while (methodVisitor != null) {
+            if (methodVisitor instanceof JdkClassWriter.WritingMethodVisitor writingMethodVisitor) {
+                return writingMethodVisitor.hasCode(classModel, methodFlags, methodName, methodType) ? writingMethodVisitor : null;
+            }
+            methodVisitor = methodVisitor.getDelegate();
+        }
+        return null;
+    }
+
     private void appendAnnotationValues(AnnotationVisitor annotationVisitor, List<AnnotationElement> elements) {
         if (annotationVisitor != null) {
             elements.forEach(element -> appendAnnotationValue(annotationVisitor, element.name().stringValue(), element.value()));
@@ -596,7 +967,8 @@ public class JdkClassReader {
     }
 
     private void appendAnnotationValue(AnnotationVisitor annotationVisitor, String name, AnnotationValue annotationValue) {
-        if (annotationVisitor instanceof JdkClassWriter.WritingAnnotationVisitor writingAnnotationVisitor && writingAnnotationVisitor.has(classModel)) {
+        ClassModel classModel = this.classModel; // Writers are only linked to the model with debug elements, which is not parsed to skip them.
+        if (classModel != null && ForwardingVisitors.unwrap(annotationVisitor) instanceof JdkClassWriter.WritingAnnotationVisitor writingAnnotationVisitor && writingAnnotationVisitor.has(classModel)) {
             writingAnnotationVisitor.add(name, annotationValue);
             return;
         }
@@ -614,74 +986,10 @@ public class JdkClassReader {
             case AnnotationValue.OfAnnotation value -> appendAnnotationValues(annotationVisitor.visitAnnotation(name, value.annotation().className().stringValue()), value.annotation().elements());
             case AnnotationValue.OfEnum value -> annotationVisitor.visitEnum(name, value.className().stringValue(), value.constantName().stringValue());
             case AnnotationValue.OfArray value -> {
-                Set<Integer> tags = value.values().stream().map(AnnotationValue::tag).collect(Collectors.toSet());
-                if (tags.size() == 1) { // Handle arrays of primitive types as direct values.
-                    switch (tags.iterator().next()) {
-                        case AnnotationValue.TAG_BOOLEAN: {
-                            boolean[] array = new boolean[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfBoolean) value.values().get(index)).booleanValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_BYTE: {
-                            byte[] array = new byte[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfByte) value.values().get(index)).byteValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_SHORT: {
-                            short[] array = new short[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfShort) value.values().get(index)).shortValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_CHAR: {
-                            char[] array = new char[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfChar) value.values().get(index)).charValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_INT: {
-                            int[] array = new int[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfInt) value.values().get(index)).intValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_LONG: {
-                            long[] array = new long[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfLong) value.values().get(index)).longValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_FLOAT: {
-                            float[] array = new float[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfFloat) value.values().get(index)).floatValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                        case AnnotationValue.TAG_DOUBLE: {
-                            double[] array = new double[value.values().size()];
-                            for (int index = 0; index < value.values().size(); index++) {
-                                array[index] = ((AnnotationValue.OfConstant.OfDouble) value.values().get(index)).doubleValue();
-                            }
-                            annotationVisitor.visit(name, array);
-                            return;
-                        }
-                    }
+                Object array = toAsmArray(value);
+                if (array != null) {
+                    annotationVisitor.visit(name, array);
+                    return;
                 }
                 AnnotationVisitor nested = annotationVisitor.visitArray(name);
                 if (nested != null) {
@@ -693,18 +1001,139 @@ public class JdkClassReader {
         }
     }
 
+    static Object toAsmArray(AnnotationValue.OfArray value) {
+        Set<Integer> tags = value.values().stream().map(AnnotationValue::tag).collect(Collectors.toSet());
+        if (tags.size() == 1) { // Handle arrays of primitive types as direct values.
+            switch (tags.iterator().next()) {
+                case AnnotationValue.TAG_BOOLEAN: {
+                    boolean[] array = new boolean[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfBoolean) value.values().get(index)).booleanValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_BYTE: {
+                    byte[] array = new byte[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfByte) value.values().get(index)).byteValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_SHORT: {
+                    short[] array = new short[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfShort) value.values().get(index)).shortValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_CHAR: {
+                    char[] array = new char[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfChar) value.values().get(index)).charValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_INT: {
+                    int[] array = new int[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfInt) value.values().get(index)).intValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_LONG: {
+                    long[] array = new long[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfLong) value.values().get(index)).longValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_FLOAT: {
+                    float[] array = new float[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfFloat) value.values().get(index)).floatValue();
+                    }
+                    return array;
+                }
+                case AnnotationValue.TAG_DOUBLE: {
+                    double[] array = new double[value.values().size()];
+                    for (int index = 0; index < value.values().size(); index++) {
+                        array[index] = ((AnnotationValue.OfConstant.OfDouble) value.values().get(index)).doubleValue();
+                    }
+                    return array;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTypeAnnotated(CodeAttribute code) {
+        return code.findAttribute(Attributes.runtimeVisibleTypeAnnotations()).isPresent() || code.findAttribute(Attributes.runtimeInvisibleTypeAnnotations()).isPresent();
+    }
+
+    private static List<CodeElement> toDebugFreeElements(CodeAttribute code) {
+        List<CodeElement> elements = code.elementList();
+        BitSet targets = null;
+        if (!isTypeAnnotated(code)) { // Labels are otherwise retained as if the code was read from a debug-free model.
+            targets = new BitSet(code.codeLength() + 1);
+            for (CodeElement element : elements) {
+                switch (element) {
+                    case BranchInstruction value -> targets.set(code.labelToBci(value.target()));
+                    case TableSwitchInstruction value -> {
+                        targets.set(code.labelToBci(value.defaultTarget()));
+                        for (SwitchCase switchCase : value.cases()) {
+                            targets.set(code.labelToBci(switchCase.target()));
+                        }
+                    }
+                    case LookupSwitchInstruction value -> {
+                        targets.set(code.labelToBci(value.defaultTarget()));
+                        for (SwitchCase switchCase : value.cases()) {
+                            targets.set(code.labelToBci(switchCase.target()));
+                        }
+                    }
+                    case ExceptionCatch value -> {
+                        targets.set(code.labelToBci(value.tryStart()));
+                        targets.set(code.labelToBci(value.tryEnd()));
+                        targets.set(code.labelToBci(value.handler()));
+                    }
+                    default -> {
+                    }
+                }
+            }
+            for (StackMapFrameInfo frame : code.findAttribute(Attributes.stackMapTable()).map(StackMapTableAttribute::entries).orElse(List.of())) {
+                targets.set(code.labelToBci(frame.target()));
+                for (StackMapFrameInfo.VerificationTypeInfo type : frame.locals()) {
+                    if (type instanceof StackMapFrameInfo.UninitializedVerificationTypeInfo value) {
+                        targets.set(code.labelToBci(value.newTarget()));
+                    }
+                }
+                for (StackMapFrameInfo.VerificationTypeInfo type : frame.stack()) {
+                    if (type instanceof StackMapFrameInfo.UninitializedVerificationTypeInfo value) {
+                        targets.set(code.labelToBci(value.newTarget()));
+                    }
+                }
+            }
+        }
+        List<CodeElement> debugFreeElements = new ArrayList<>(elements.size());
+        for (CodeElement element : elements) {
+            if (element instanceof LabelTarget value
+                    ? targets == null || targets.get(code.labelToBci(value.label()))
+                    : !(element instanceof LineNumber || element instanceof LocalVariable || element instanceof LocalVariableType || element instanceof CharacterRange)) {
+                debugFreeElements.add(element);
+            }
+        }
+        return debugFreeElements;
+    }
+
     private void appendCodeAnnotations(List<TypeAnnotation> typeAnnotations,
                                        boolean visible,
                                        MethodVisitor methodVisitor,
-                                       Map<Label, org.objectweb.asm.Label> labels,
+                                       LabelTable labels,
                                        List<Map.Entry<TypeAnnotation, Boolean>> localVariableAnnotations,
                                        Map<org.objectweb.asm.Label, List<Map.Entry<TypeAnnotation, Boolean>>> offsetTypeAnnotations) {
-        typeAnnotations.forEach(typeAnnotation -> {
+        for (TypeAnnotation typeAnnotation : typeAnnotations) {
             switch (typeAnnotation.targetInfo()) {
                 case TypeAnnotation.LocalVarTarget ignored -> localVariableAnnotations.add(Map.entry(typeAnnotation, visible));
-                case TypeAnnotation.OffsetTarget value -> offsetTypeAnnotations.merge(labels.computeIfAbsent(value.target(), _ -> new org.objectweb.asm.Label()),
-                        Collections.singletonList(Map.entry(typeAnnotation, visible)),
-                        (left, right) -> Stream.of(left.stream(), right.stream()).flatMap(Function.identity()).collect(Collectors.toList()));
+                case TypeAnnotation.OffsetTarget value -> offsetTypeAnnotations.computeIfAbsent(labels.get(value.target()), _ -> new ArrayList<>()).add(Map.entry(typeAnnotation, visible));
                 case TypeAnnotation.CatchTarget value -> appendAnnotationValues(methodVisitor.visitTryCatchAnnotation(
                         TypeReference.newTypeReference(value.targetType().targetTypeValue()).getValue(),
                         toTypePath(typeAnnotation.targetPath()),
@@ -712,7 +1141,7 @@ public class JdkClassReader {
                         visible), typeAnnotation.annotation().elements());
                 default -> throw new UnsupportedOperationException("Unexpected target: " + typeAnnotation.targetInfo());
             }
-        });
+        }
     }
 
     static Object toAsmConstant(ConstantDesc constant) {
@@ -769,11 +1198,19 @@ public class JdkClassReader {
         }).collect(Collectors.joining()));
     }
 
-    private static Object toAsmFrameValue(StackMapFrameInfo.VerificationTypeInfo verificationTypeInfo, Map<Label, org.objectweb.asm.Label> labels) {
+    private static Object[] toAsmFrameValues(List<StackMapFrameInfo.VerificationTypeInfo> verificationTypeInfos, int from, LabelTable labels) {
+        Object[] values = new Object[verificationTypeInfos.size() - from];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = toAsmFrameValue(verificationTypeInfos.get(from + index), labels);
+        }
+        return values;
+    }
+
+    private static Object toAsmFrameValue(StackMapFrameInfo.VerificationTypeInfo verificationTypeInfo, LabelTable labels) {
         return switch (verificationTypeInfo) {
             case StackMapFrameInfo.SimpleVerificationTypeInfo value -> value.tag();
             case StackMapFrameInfo.ObjectVerificationTypeInfo value -> value.className().asInternalName();
-            case StackMapFrameInfo.UninitializedVerificationTypeInfo value -> labels.computeIfAbsent(value.newTarget(), ignored -> new org.objectweb.asm.Label());
+            case StackMapFrameInfo.UninitializedVerificationTypeInfo value -> labels.get(value.newTarget());
         };
     }
 
@@ -801,6 +1238,35 @@ public class JdkClassReader {
     ) {
     }
 
+    private static class LabelTable {
+
+        private org.objectweb.asm.Label[] labels = new org.objectweb.asm.Label[64];
+        private CodeAttribute code;
+        private int length;
+
+        private void reset(CodeAttribute code) {
+            Arrays.fill(labels, 0, length, null);
+            length = code.codeLength() + 1;
+            if (labels.length < length) {
+                labels = new org.objectweb.asm.Label[Math.max(length, labels.length * 2)];
+            }
+            this.code = code;
+        }
+
+        private org.objectweb.asm.Label get(Label label) {
+            return get(code.labelToBci(label));
+        }
+
+        private org.objectweb.asm.Label get(int offset) {
+            org.objectweb.asm.Label label = labels[offset];
+            if (label == null) {
+                label = new org.objectweb.asm.Label();
+                labels[offset] = label;
+            }
+            return label;
+        }
+    }
+
     private static class PushbackIterator<T> implements Iterator<T> {
 
         private final Iterator<T> it;
@@ -833,22 +1299,4 @@ public class JdkClassReader {
             }
         }
     }
-
-    private static class AttributeFunction implements Function<Utf8Entry, AttributeMapper<?>> {
-
-        private final Map<String, AsmAttribute> mappers;
-
-        private AttributeFunction(Attribute[] attributePrototypes) {
-            mappers = Stream.of(attributePrototypes).collect(Collectors.toMap(
-                    prototype -> prototype.type,
-                    AsmAttribute::of
-            ));
-        }
-
-        @Override
-        public AttributeMapper<?> apply(Utf8Entry entry) {
-            AsmAttribute attribute = mappers.get(entry.stringValue());
-            return attribute == null ? null : attribute.attributeMapper();
-        }
-    }
 }
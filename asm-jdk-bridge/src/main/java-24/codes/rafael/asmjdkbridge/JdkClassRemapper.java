@@ -0,0 +1,521 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.commons.Remapper;
+
+import java.lang.classfile.Annotation;
+import java.lang.classfile.AnnotationElement;
+import java.lang.classfile.AnnotationValue;
+import java.lang.classfile.Attribute;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassBuilder;
+import java.lang.classfile.ClassElement;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassTransform;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeModel;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.FieldElement;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.Interfaces;
+import java.lang.classfile.MethodElement;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.Opcode;
+import java.lang.classfile.Superclass;
+import java.lang.classfile.TypeAnnotation;
+import java.lang.classfile.attribute.AnnotationDefaultAttribute;
+import java.lang.classfile.attribute.ConstantValueAttribute;
+import java.lang.classfile.attribute.EnclosingMethodAttribute;
+import java.lang.classfile.attribute.ExceptionsAttribute;
+import java.lang.classfile.attribute.InnerClassInfo;
+import java.lang.classfile.attribute.InnerClassesAttribute;
+import java.lang.classfile.attribute.ModuleAttribute;
+import java.lang.classfile.attribute.ModuleExportInfo;
+import java.lang.classfile.attribute.ModuleMainClassAttribute;
+import java.lang.classfile.attribute.ModuleOpenInfo;
+import java.lang.classfile.attribute.ModulePackagesAttribute;
+import java.lang.classfile.attribute.ModuleProvideInfo;
+import java.lang.classfile.attribute.ModuleRequireInfo;
+import java.lang.classfile.attribute.NestHostAttribute;
+import java.lang.classfile.attribute.NestMembersAttribute;
+import java.lang.classfile.attribute.PermittedSubclassesAttribute;
+import java.lang.classfile.attribute.RecordAttribute;
+import java.lang.classfile.attribute.RecordComponentInfo;
+import java.lang.classfile.attribute.RuntimeInvisibleAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeInvisibleParameterAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeInvisibleTypeAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeVisibleAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeVisibleParameterAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeVisibleTypeAnnotationsAttribute;
+import java.lang.classfile.attribute.SignatureAttribute;
+import java.lang.classfile.attribute.StackMapFrameInfo;
+import java.lang.classfile.attribute.StackMapTableAttribute;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.classfile.constantpool.ConstantPoolBuilder;
+import java.lang.classfile.constantpool.LoadableConstantEntry;
+import java.lang.classfile.constantpool.MemberRefEntry;
+import java.lang.classfile.constantpool.ModuleEntry;
+import java.lang.classfile.constantpool.NameAndTypeEntry;
+import java.lang.classfile.constantpool.PackageEntry;
+import java.lang.classfile.constantpool.Utf8Entry;
+import java.lang.classfile.instruction.ConstantInstruction;
+import java.lang.classfile.instruction.ExceptionCatch;
+import java.lang.classfile.instruction.FieldInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.LocalVariable;
+import java.lang.classfile.instruction.LocalVariableType;
+import java.lang.classfile.instruction.NewMultiArrayInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.classfile.instruction.NewReferenceArrayInstruction;
+import java.lang.classfile.instruction.TypeCheckInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDesc;
+import java.lang.constant.DirectMethodHandleDesc;
+import java.lang.constant.DynamicCallSiteDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+class JdkClassRemapper implements ClassTransform {
+
+    private final Remapper remapper;
+
+    private final String owner;
+
+    private JdkClassRemapper(Remapper remapper, String owner) {
+        this.remapper = remapper;
+        this.owner = owner;
+    }
+
+    static byte[] remap(ClassModel classModel, Remapper remapper) {
+        String name = classModel.thisClass().asInternalName();
+        return JdkClassFileContext.WRITING.transformClass(classModel,
+                ClassDesc.ofInternalName(remapper.mapType(name)),
+                new JdkClassRemapper(remapper, name));
+    }
+
+    @Override
+    public void accept(ClassBuilder classBuilder, ClassElement element) {
+        ConstantPoolBuilder pool = classBuilder.constantPool();
+        switch (element) {
+            case FieldModel fieldModel -> acceptField(classBuilder, fieldModel);
+            case MethodModel methodModel -> acceptMethod(classBuilder, methodModel);
+            case Superclass value -> {
+                ClassEntry superClass = mapClass(pool, value.superclassEntry());
+                classBuilder.with(superClass == value.superclassEntry() ? value : Superclass.of(superClass));
+            }
+            case Interfaces value -> {
+                List<ClassEntry> interfaces = mapAll(value.interfaces(), entry -> mapClass(pool, entry));
+                classBuilder.with(interfaces == value.interfaces() ? value : Interfaces.of(interfaces));
+            }
+            case Attribute<?> attribute -> classBuilder.with((ClassElement) mapAttribute(pool, attribute, false));
+            default -> classBuilder.with(element);
+        }
+    }
+
+    private void acceptField(ClassBuilder classBuilder, FieldModel fieldModel) {
+        ConstantPoolBuilder pool = classBuilder.constantPool();
+        Utf8Entry name = mapUtf8(pool, fieldModel.fieldName(), remapper.mapFieldName(owner,
+                fieldModel.fieldName().stringValue(),
+                fieldModel.fieldType().stringValue()));
+        Utf8Entry descriptor = mapUtf8(pool, fieldModel.fieldType(), remapper.mapDesc(fieldModel.fieldType().stringValue()));
+        List<FieldElement> original = fieldModel.elementList(), elements = mapAll(original, element -> element instanceof Attribute<?> attribute
+                ? (FieldElement) mapAttribute(pool, attribute, true)
+                : element);
+        if (name == fieldModel.fieldName() && descriptor == fieldModel.fieldType() && elements == original) {
+            classBuilder.with(fieldModel);
+        } else {
+            classBuilder.withField(name, descriptor, fieldBuilder -> elements.forEach(fieldBuilder::with));
+        }
+    }
+
+    private void acceptMethod(ClassBuilder classBuilder, MethodModel methodModel) {
+        ConstantPoolBuilder pool = classBuilder.constantPool();
+        Utf8Entry name = mapUtf8(pool, methodModel.methodName(), remapper.mapMethodName(owner,
+                methodModel.methodName().stringValue(),
+                methodModel.methodType().stringValue()));
+        Utf8Entry descriptor = mapUtf8(pool, methodModel.methodType(), remapper.mapMethodDesc(methodModel.methodType().stringValue()));
+        List<MethodElement> original = methodModel.elementList(), elements = mapAll(original, element -> element instanceof Attribute<?> attribute && !(element instanceof CodeModel)
+                ? (MethodElement) mapAttribute(pool, attribute, false)
+                : element);
+        boolean codeChanged = methodModel.code().filter(code -> isChanged(pool, code)).isPresent();
+        if (name == methodModel.methodName() && descriptor == methodModel.methodType() && elements == original && !codeChanged) {
+            classBuilder.with(methodModel);
+        } else {
+            classBuilder.withMethod(name, descriptor, methodModel.flags().flagsMask(), methodBuilder -> elements.forEach(element -> {
+                if (codeChanged && element instanceof CodeModel code) {
+                    methodBuilder.transformCode(code, new CodeTransform() {
+                        @Override
+                        public void accept(CodeBuilder codeBuilder, CodeElement codeElement) {
+                            codeBuilder.with(mapCode(codeBuilder.constantPool(), codeElement));
+                        }
+
+                        @Override
+                        public void atEnd(CodeBuilder codeBuilder) {
+                            // Stack map frames are not streamed as code elements and are dropped when writing, they are therefore added explicitly.
+                            // The frames are always rebuilt, as a copy of the original attribute would retain offsets that change with the code.
+                            code.findAttribute(Attributes.stackMapTable()).ifPresent(attribute -> codeBuilder.with(StackMapTableAttribute.of(mapFrames(codeBuilder.constantPool(), attribute).entries())));
+                        }
+                    });
+                } else {
+                    methodBuilder.with(element);
+                }
+            }));
+        }
+    }
+
+    private boolean isChanged(ConstantPoolBuilder pool, CodeModel code) {
+        return code.elementStream().anyMatch(element -> mapCode(pool, element) != element)
+                || code.findAttribute(Attributes.stackMapTable()).filter(attribute -> mapFrames(pool, attribute) != attribute).isPresent();
+    }
+
+    private CodeElement mapCode(ConstantPoolBuilder pool, CodeElement element) {
+        return switch (element) {
+            case FieldInstruction value -> {
+                String owner = value.owner().asInternalName(), name = value.name().stringValue(), type = value.type().stringValue();
+                ClassEntry mappedOwner = mapClass(pool, value.owner());
+                Utf8Entry mappedName = mapUtf8(pool, value.name(), remapper.mapFieldName(owner, name, type));
+                Utf8Entry mappedType = mapUtf8(pool, value.type(), remapper.mapDesc(type));
+                yield mappedOwner == value.owner() && mappedName == value.name() && mappedType == value.type()
+                        ? value
+                        : FieldInstruction.of(value.opcode(), pool.fieldRefEntry(mappedOwner, pool.nameAndTypeEntry(mappedName, mappedType)));
+            }
+            case InvokeInstruction value -> {
+                String owner = value.owner().asInternalName(), name = value.name().stringValue(), type = value.type().stringValue();
+                ClassEntry mappedOwner = mapClass(pool, value.owner());
+                Utf8Entry mappedName = mapUtf8(pool, value.name(), remapper.mapMethodName(owner, name, type));
+                Utf8Entry mappedType = mapUtf8(pool, value.type(), remapper.mapMethodDesc(type));
+                if (mappedOwner == value.owner() && mappedName == value.name() && mappedType == value.type()) {
+                    yield value;
+                }
+                NameAndTypeEntry nameAndType = pool.nameAndTypeEntry(mappedName, mappedType);
+                MemberRefEntry method = value.isInterface()
+                        ? pool.interfaceMethodRefEntry(mappedOwner, nameAndType)
+                        : pool.methodRefEntry(mappedOwner, nameAndType);
+                yield InvokeInstruction.of(value.opcode(), method);
+            }
+            case InvokeDynamicInstruction value -> {
+                String name = value.name().stringValue(), type = value.type().stringValue();
+                String mappedName = remapper.mapInvokeDynamicMethodName(name, type), mappedType = remapper.mapMethodDesc(type);
+                Object bootstrapMethod = JdkClassReader.toAsmConstant(value.bootstrapMethod()), mappedBootstrapMethod = remapper.mapValue(bootstrapMethod);
+                boolean changed = !name.equals(mappedName) || !type.equals(mappedType) || !bootstrapMethod.equals(mappedBootstrapMethod);
+                List<ConstantDesc> arguments = value.bootstrapArgs();
+                ConstantDesc[] mappedArguments = new ConstantDesc[arguments.size()];
+                for (int index = 0; index < arguments.size(); index++) {
+                    Object argument = JdkClassReader.toAsmConstant(arguments.get(index)), mappedArgument = remapper.mapValue(argument);
+                    if (argument.equals(mappedArgument)) {
+                        mappedArguments[index] = arguments.get(index);
+                    } else {
+                        mappedArguments[index] = JdkClassWriter.toConstantDesc(mappedArgument);
+                        changed = true;
+                    }
+                }
+                yield changed ? InvokeDynamicInstruction.of(pool.invokeDynamicEntry(DynamicCallSiteDesc.of(
+                        (DirectMethodHandleDesc) JdkClassWriter.toConstantDesc(mappedBootstrapMethod),
+                        mappedName,
+                        MethodTypeDesc.ofDescriptor(mappedType),
+                        mappedArguments))) : value;
+            }
+            case TypeCheckInstruction value -> {
+                ClassEntry type = mapClass(pool, value.type());
+                yield type == value.type() ? value : TypeCheckInstruction.of(value.opcode(), type);
+            }
+            case NewObjectInstruction value -> {
+                ClassEntry type = mapClass(pool, value.className());
+                yield type == value.className() ? value : NewObjectInstruction.of(type);
+            }
+            case NewReferenceArrayInstruction value -> {
+                ClassEntry type = mapClass(pool, value.componentType());
+                yield type == value.componentType() ? value : NewReferenceArrayInstruction.of(type);
+            }
+            case NewMultiArrayInstruction value -> {
+                ClassEntry type = mapClass(pool, value.arrayType());
+                yield type == value.arrayType() ? value : NewMultiArrayInstruction.of(type, value.dimensions());
+            }
+            case ConstantInstruction.LoadConstantInstruction value -> switch (value.constantEntry()) {
+                case ClassEntry entry -> {
+                    ClassEntry type = mapClass(pool, entry);
+                    yield type == entry ? value : toLoad(type);
+                }
+                default -> {
+                    Object constant = JdkClassReader.toAsmConstant(value.constantValue()), mappedConstant = remapper.mapValue(constant);
+                    yield constant.equals(mappedConstant)
+                            ? value
+                            : toLoad(pool.loadableConstantEntry(JdkClassWriter.toConstantDesc(mappedConstant))); // Mapped constants might require a wide index.
+                }
+            };
+            case ExceptionCatch value -> {
+                Optional<ClassEntry> type = value.catchType().map(entry -> mapClass(pool, entry));
+                yield type.equals(value.catchType()) ? value : ExceptionCatch.of(value.handler(), value.tryStart(), value.tryEnd(), type);
+            }
+            case LocalVariable value -> {
+                Utf8Entry type = mapUtf8(pool, value.type(), remapper.mapDesc(value.type().stringValue()));
+                yield type == value.type() ? value : LocalVariable.of(value.slot(), value.name(), type, value.startScope(), value.endScope());
+            }
+            case LocalVariableType value -> {
+                Utf8Entry signature = mapUtf8(pool, value.signature(), remapper.mapSignature(value.signature().stringValue(), true));
+                yield signature == value.signature() ? value : LocalVariableType.of(value.slot(), value.name(), signature, value.startScope(), value.endScope());
+            }
+            case Attribute<?> attribute -> (CodeElement) mapAttribute(pool, attribute, true);
+            default -> element;
+        };
+    }
+
+    private StackMapTableAttribute mapFrames(ConstantPoolBuilder pool, StackMapTableAttribute attribute) {
+        List<StackMapFrameInfo> original = attribute.entries(), frames = mapAll(original, frame -> {
+            List<StackMapFrameInfo.VerificationTypeInfo> locals = mapAll(frame.locals(), type -> mapVerificationType(pool, type));
+            List<StackMapFrameInfo.VerificationTypeInfo> stack = mapAll(frame.stack(), type -> mapVerificationType(pool, type));
+            return locals == frame.locals() && stack == frame.stack() ? frame : StackMapFrameInfo.of(frame.target(), locals, stack);
+        });
+        return frames == original ? attribute : StackMapTableAttribute.of(frames);
+    }
+
+    private StackMapFrameInfo.VerificationTypeInfo mapVerificationType(ConstantPoolBuilder pool, StackMapFrameInfo.VerificationTypeInfo type) {
+        if (type instanceof StackMapFrameInfo.ObjectVerificationTypeInfo value) {
+            ClassEntry className = mapClass(pool, value.className());
+            return className == value.className() ? type : StackMapFrameInfo.ObjectVerificationTypeInfo.of(className);
+        }
+        return type;
+    }
+
+    private Attribute<?> mapAttribute(ConstantPoolBuilder pool, Attribute<?> attribute, boolean typeSignature) {
+        return switch (attribute) {
+            case SignatureAttribute value -> {
+                Utf8Entry signature = mapUtf8(pool, value.signature(), remapper.mapSignature(value.signature().stringValue(), typeSignature));
+                yield signature == value.signature() ? value : SignatureAttribute.of(signature);
+            }
+            case ExceptionsAttribute value -> {
+                List<ClassEntry> exceptions = mapAll(value.exceptions(), entry -> mapClass(pool, entry));
+                yield exceptions == value.exceptions() ? value : ExceptionsAttribute.of(exceptions);
+            }
+            case InnerClassesAttribute value -> {
+                List<InnerClassInfo> classes = mapAll(value.classes(), innerClass -> {
+                    ClassEntry type = mapClass(pool, innerClass.innerClass());
+                    Optional<ClassEntry> outerType = innerClass.outerClass().map(entry -> mapClass(pool, entry));
+                    Optional<Utf8Entry> innerName = innerClass.innerName().map(entry -> mapUtf8(pool, entry, remapper.mapInnerClassName(
+                            innerClass.innerClass().asInternalName(),
+                            innerClass.outerClass().map(ClassEntry::asInternalName).orElse(null),
+                            entry.stringValue())));
+                    return type == innerClass.innerClass() && outerType.equals(innerClass.outerClass()) && innerName.equals(innerClass.innerName())
+                            ? innerClass
+                            : InnerClassInfo.of(type, outerType, innerName, innerClass.flagsMask());
+                });
+                yield classes == value.classes() ? value : InnerClassesAttribute.of(classes);
+            }
+            case EnclosingMethodAttribute value -> {
+                ClassEntry type = mapClass(pool, value.enclosingClass());
+                Optional<NameAndTypeEntry> method = value.enclosingMethod().map(entry -> {
+                    Utf8Entry name = mapUtf8(pool, entry.name(), remapper.mapMethodName(value.enclosingClass().asInternalName(),
+                            entry.name().stringValue(),
+                            entry.type().stringValue()));
+                    Utf8Entry descriptor = mapUtf8(pool, entry.type(), remapper.mapMethodDesc(entry.type().stringValue()));
+                    return name == entry.name() && descriptor == entry.type() ? entry : pool.nameAndTypeEntry(name, descriptor);
+                });
+                yield type == value.enclosingClass() && method.equals(value.enclosingMethod()) ? value : EnclosingMethodAttribute.of(type, method);
+            }
+            case NestHostAttribute value -> {
+                ClassEntry type = mapClass(pool, value.nestHost());
+                yield type == value.nestHost() ? value : NestHostAttribute.of(type);
+            }
+            case NestMembersAttribute value -> {
+                List<ClassEntry> members = mapAll(value.nestMembers(), entry -> mapClass(pool, entry));
+                yield members == value.nestMembers() ? value : NestMembersAttribute.of(members);
+            }
+            case PermittedSubclassesAttribute value -> {
+                List<ClassEntry> subclasses = mapAll(value.permittedSubclasses(), entry -> mapClass(pool, entry));
+                yield subclasses == value.permittedSubclasses() ? value : PermittedSubclassesAttribute.of(subclasses);
+            }
+            case RecordAttribute value -> {
+                List<RecordComponentInfo> components = mapAll(value.components(), component -> {
+                    Utf8Entry name = mapUtf8(pool, component.name(), remapper.mapRecordComponentName(owner,
+                            component.name().stringValue(),
+                            component.descriptor().stringValue()));
+                    Utf8Entry descriptor = mapUtf8(pool, component.descriptor(), remapper.mapDesc(component.descriptor().stringValue()));
+                    List<Attribute<?>> attributes = mapAll(component.attributes(), nested -> mapAttribute(pool, nested, true));
+                    return name == component.name() && descriptor == component.descriptor() && attributes == component.attributes()
+                            ? component
+                            : RecordComponentInfo.of(name, descriptor, attributes);
+                });
+                yield components == value.components() ? value : RecordAttribute.of(components);
+            }
+            case ModuleAttribute value -> {
+                ModuleEntry name = mapModule(pool, value.moduleName());
+                List<ModuleRequireInfo> requires = mapAll(value.requires(), require -> {
+                    ModuleEntry module = mapModule(pool, require.requires());
+                    return module == require.requires()
+                            ? require
+                            : ModuleRequireInfo.of(module, require.requiresFlagsMask(), require.requiresVersion().orElse(null));
+                });
+                List<ModuleExportInfo> exports = mapAll(value.exports(), export -> {
+                    PackageEntry target = mapPackage(pool, export.exportedPackage());
+                    List<ModuleEntry> modules = mapAll(export.exportsTo(), entry -> mapModule(pool, entry));
+                    return target == export.exportedPackage() && modules == export.exportsTo()
+                            ? export
+                            : ModuleExportInfo.of(target, export.exportsFlagsMask(), modules);
+                });
+                List<ModuleOpenInfo> opens = mapAll(value.opens(), open -> {
+                    PackageEntry target = mapPackage(pool, open.openedPackage());
+                    List<ModuleEntry> modules = mapAll(open.opensTo(), entry -> mapModule(pool, entry));
+                    return target == open.openedPackage() && modules == open.opensTo()
+                            ? open
+                            : ModuleOpenInfo.of(target, open.opensFlagsMask(), modules);
+                });
+                List<ClassEntry> uses = mapAll(value.uses(), entry -> mapClass(pool, entry));
+                List<ModuleProvideInfo> provides = mapAll(value.provides(), provide -> {
+                    ClassEntry service = mapClass(pool, provide.provides());
+                    List<ClassEntry> implementations = mapAll(provide.providesWith(), entry -> mapClass(pool, entry));
+                    return service == provide.provides() && implementations == provide.providesWith()
+                            ? provide
+                            : ModuleProvideInfo.of(service, implementations);
+                });
+                yield name == value.moduleName()
+                        && requires == value.requires()
+                        && exports == value.exports()
+                        && opens == value.opens()
+                        && uses == value.uses()
+                        && provides == value.provides() ? value : ModuleAttribute.of(name,
+                        value.moduleFlagsMask(),
+                        value.moduleVersion().orElse(null),
+                        requires,
+                        exports,
+                        opens,
+                        uses,
+                        provides);
+            }
+            case ModulePackagesAttribute value -> {
+                List<PackageEntry> packages = mapAll(value.packages(), entry -> mapPackage(pool, entry));
+                yield packages == value.packages() ? value : ModulePackagesAttribute.of(packages);
+            }
+            case ModuleMainClassAttribute value -> {
+                ClassEntry type = mapClass(pool, value.mainClass());
+                yield type == value.mainClass() ? value : ModuleMainClassAttribute.of(type);
+            }
+            case AnnotationDefaultAttribute value -> {
+                AnnotationValue defaultValue = mapValue(value.defaultValue());
+                yield defaultValue == value.defaultValue() ? value : AnnotationDefaultAttribute.of(defaultValue);
+            }
+            case RuntimeVisibleAnnotationsAttribute value -> {
+                List<Annotation> annotations = mapAll(value.annotations(), this::mapAnnotation);
+                yield annotations == value.annotations() ? value : RuntimeVisibleAnnotationsAttribute.of(annotations);
+            }
+            case RuntimeInvisibleAnnotationsAttribute value -> {
+                List<Annotation> annotations = mapAll(value.annotations(), this::mapAnnotation);
+                yield annotations == value.annotations() ? value : RuntimeInvisibleAnnotationsAttribute.of(annotations);
+            }
+            case RuntimeVisibleTypeAnnotationsAttribute value -> {
+                List<TypeAnnotation> annotations = mapAll(value.annotations(), this::mapTypeAnnotation);
+                yield annotations == value.annotations() ? value : RuntimeVisibleTypeAnnotationsAttribute.of(annotations);
+            }
+            case RuntimeInvisibleTypeAnnotationsAttribute value -> {
+                List<TypeAnnotation> annotations = mapAll(value.annotations(), this::mapTypeAnnotation);
+                yield annotations == value.annotations() ? value : RuntimeInvisibleTypeAnnotationsAttribute.of(annotations);
+            }
+            case RuntimeVisibleParameterAnnotationsAttribute value -> {
+                List<List<Annotation>> annotations = mapAll(value.parameterAnnotations(), parameter -> mapAll(parameter, this::mapAnnotation));
+                yield annotations == value.parameterAnnotations() ? value : RuntimeVisibleParameterAnnotationsAttribute.of(annotations);
+            }
+            case RuntimeInvisibleParameterAnnotationsAttribute value -> {
+                List<List<Annotation>> annotations = mapAll(value.parameterAnnotations(), parameter -> mapAll(parameter, this::mapAnnotation));
+                yield annotations == value.parameterAnnotations() ? value : RuntimeInvisibleParameterAnnotationsAttribute.of(annotations);
+            }
+            case ConstantValueAttribute value -> {
+                Object constant = JdkClassReader.toAsmConstant(value.constant().constantValue()), mappedConstant = remapper.mapValue(constant);
+                yield constant.equals(mappedConstant) ? value : ConstantValueAttribute.of(pool.constantValueEntry(JdkClassWriter.toConstantDesc(mappedConstant)));
+            }
+            default -> attribute;
+        };
+    }
+
+    private TypeAnnotation mapTypeAnnotation(TypeAnnotation typeAnnotation) {
+        Annotation annotation = mapAnnotation(typeAnnotation.annotation());
+        return annotation == typeAnnotation.annotation()
+                ? typeAnnotation
+                : TypeAnnotation.of(typeAnnotation.targetInfo(), typeAnnotation.targetPath(), annotation);
+    }
+
+    private Annotation mapAnnotation(Annotation annotation) {
+        String descriptor = annotation.className().stringValue(), mappedDescriptor = remapper.mapDesc(descriptor);
+        List<AnnotationElement> elements = mapAll(annotation.elements(), element -> {
+            String name = element.name().stringValue(), mappedName = remapper.mapAnnotationAttributeName(descriptor, name);
+            AnnotationValue value = mapValue(element.value());
+            return name.equals(mappedName) && value == element.value() ? element : AnnotationElement.of(mappedName, value);
+        });
+        return descriptor.equals(mappedDescriptor) && elements == annotation.elements()
+                ? annotation
+                : Annotation.of(ClassDesc.ofDescriptor(mappedDescriptor), elements);
+    }
+
+    private AnnotationValue mapValue(AnnotationValue value) {
+        return switch (value) {
+            case AnnotationValue.OfAnnotation nested -> {
+                Annotation annotation = mapAnnotation(nested.annotation());
+                yield annotation == nested.annotation() ? value : AnnotationValue.ofAnnotation(annotation);
+            }
+            case AnnotationValue.OfArray array -> {
+                Object constant = JdkClassReader.toAsmArray(array);
+                if (constant != null) { // Arrays of primitive values are mapped as a whole, as ASM reports them as a single value.
+                    Object mappedConstant = remapper.mapValue(constant);
+                    yield Objects.deepEquals(constant, mappedConstant) ? value : JdkClassWriter.toAnnotationValue(mappedConstant);
+                }
+                List<AnnotationValue> values = mapAll(array.values(), this::mapValue);
+                yield values == array.values() ? value : AnnotationValue.ofArray(values);
+            }
+            case AnnotationValue.OfConstant constant -> {
+                Object resolvedValue = constant.resolvedValue(), mappedValue = remapper.mapValue(resolvedValue);
+                yield resolvedValue.equals(mappedValue) ? value : JdkClassWriter.toAnnotationValue(mappedValue);
+            }
+            case AnnotationValue.OfClass type -> {
+                String descriptor = type.className().stringValue(), mappedDescriptor = remapper.mapDesc(descriptor);
+                yield descriptor.equals(mappedDescriptor) ? value : AnnotationValue.ofClass(ClassDesc.ofDescriptor(mappedDescriptor));
+            }
+            case AnnotationValue.OfEnum constant -> {
+                String descriptor = constant.className().stringValue(), mappedDescriptor = remapper.mapDesc(descriptor);
+                yield descriptor.equals(mappedDescriptor)
+                        ? value
+                        : AnnotationValue.ofEnum(ClassDesc.ofDescriptor(mappedDescriptor), constant.constantName().stringValue());
+            }
+            default -> value;
+        };
+    }
+
+    private static ConstantInstruction toLoad(LoadableConstantEntry entry) {
+        return ConstantInstruction.ofLoad(entry.typeKind().slotSize() == 2 ? Opcode.LDC2_W : entry.index() > 0xFF ? Opcode.LDC_W : Opcode.LDC, entry);
+    }
+
+    private ClassEntry mapClass(ConstantPoolBuilder pool, ClassEntry entry) {
+        String name = entry.asInternalName(), mappedName = remapper.mapType(name);
+        return name.equals(mappedName) ? entry : pool.classEntry(pool.utf8Entry(mappedName));
+    }
+
+    private ModuleEntry mapModule(ConstantPoolBuilder pool, ModuleEntry entry) {
+        Utf8Entry name = mapUtf8(pool, entry.name(), remapper.mapModuleName(entry.name().stringValue()));
+        return name == entry.name() ? entry : pool.moduleEntry(name);
+    }
+
+    private PackageEntry mapPackage(ConstantPoolBuilder pool, PackageEntry entry) {
+        Utf8Entry name = mapUtf8(pool, entry.name(), remapper.mapPackageName(entry.name().stringValue()));
+        return name == entry.name() ? entry : pool.packageEntry(name);
+    }
+
+    private static Utf8Entry mapUtf8(ConstantPoolBuilder pool, Utf8Entry entry, String value) {
+        return entry.equalsString(value) ? entry : pool.utf8Entry(value);
+    }
+
+    private static <T> List<T> mapAll(List<T> values, UnaryOperator<T> mapper) {
+        List<T> mapped = null;
+        for (int index = 0; index < values.size(); index++) {
+            T value = values.get(index), mappedValue = mapper.apply(value);
+            if (mapped == null && mappedValue != value) {
+                mapped = new ArrayList<>(values.subList(0, index));
+            }
+            if (mapped != null) {
+                mapped.add(mappedValue);
+            }
+        }
+        return mapped == null ? values : mapped;
+    }
+}
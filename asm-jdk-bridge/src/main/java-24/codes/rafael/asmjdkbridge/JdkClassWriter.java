@@ -17,12 +17,12 @@ import org.objectweb.asm.TypePath;
 import org.objectweb.asm.TypeReference;
 
 import java.lang.classfile.Annotation;
+import java.lang.classfile.Attributes;
 import java.lang.classfile.AnnotationElement;
 import java.lang.classfile.AnnotationValue;
 import java.lang.classfile.ClassBuilder;
 import java.lang.classfile.ClassElement;
 import java.lang.classfile.ClassFile;
-import java.lang.classfile.ClassHierarchyResolver;
 import java.lang.classfile.ClassModel;
 import java.lang.classfile.ClassSignature;
 import java.lang.classfile.CodeBuilder;
@@ -36,6 +36,9 @@ import java.lang.classfile.Signature;
 import java.lang.classfile.TypeAnnotation;
 import java.lang.classfile.TypeKind;
 import java.lang.classfile.attribute.AnnotationDefaultAttribute;
+import java.lang.classfile.attribute.BootstrapMethodsAttribute;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.attribute.CompilationIDAttribute;
 import java.lang.classfile.attribute.ConstantValueAttribute;
 import java.lang.classfile.attribute.DeprecatedAttribute;
 import java.lang.classfile.attribute.EnclosingMethodAttribute;
@@ -44,6 +47,8 @@ import java.lang.classfile.attribute.InnerClassInfo;
 import java.lang.classfile.attribute.InnerClassesAttribute;
 import java.lang.classfile.attribute.MethodParameterInfo;
 import java.lang.classfile.attribute.MethodParametersAttribute;
+import java.lang.classfile.attribute.ModuleHashesAttribute;
+import java.lang.classfile.attribute.ModuleResolutionAttribute;
 import java.lang.classfile.attribute.ModuleAttribute;
 import java.lang.classfile.attribute.ModuleMainClassAttribute;
 import java.lang.classfile.attribute.ModulePackagesAttribute;
@@ -61,14 +66,18 @@ import java.lang.classfile.attribute.RuntimeVisibleTypeAnnotationsAttribute;
 import java.lang.classfile.attribute.SignatureAttribute;
 import java.lang.classfile.attribute.SourceDebugExtensionAttribute;
 import java.lang.classfile.attribute.SourceFileAttribute;
+import java.lang.classfile.attribute.SourceIDAttribute;
 import java.lang.classfile.attribute.StackMapFrameInfo;
 import java.lang.classfile.attribute.StackMapTableAttribute;
+import java.lang.classfile.attribute.SyntheticAttribute;
+import java.lang.classfile.attribute.UnknownAttribute;
+import java.lang.classfile.constantpool.ClassEntry;
 import java.lang.classfile.constantpool.ConstantPoolBuilder;
+import java.lang.classfile.constantpool.Utf8Entry;
 import java.lang.classfile.instruction.DiscontinuedInstruction;
 import java.lang.classfile.instruction.SwitchCase;
 import java.lang.constant.ClassDesc;
 import java.lang.constant.ConstantDesc;
-import java.lang.constant.ConstantDescs;
 import java.lang.constant.DirectMethodHandleDesc;
 import java.lang.constant.DynamicCallSiteDesc;
 import java.lang.constant.DynamicConstantDesc;
@@ -76,29 +85,68 @@ import java.lang.constant.MethodHandleDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.constant.ModuleDesc;
 import java.lang.constant.PackageDesc;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * A class visitor that creates a class file.
  */
-public class JdkClassWriter extends ClassVisitor {
+public class JdkClassWriter extends ClassVisitor implements AutoCloseable {
+
+    /**
+     * A flag to build the class file concurrently to visiting it. Fields and methods are handed to a virtual
+     * thread that runs the class file builder as soon as they are visited, such that their state does not need
+     * to be retained until the class is complete. Super classes are still resolved on the visiting thread, while
+     * it hands off elements or awaits the class file. If a class is not visited until its end, the writer should
+     * be closed or reset to stop the builder thread.
+     */
+    public static final int PIPELINED = 1 << 8;
+
+    /**
+     * A flag to release the generated class file once it was written by one of the {@code writeTo} methods,
+     * such that this writer does not retain it any longer. Afterwards, the class file cannot be retrieved again.
+     */
+    public static final int RELEASE_ON_WRITE = 1 << 9;
+
+    private static final int PIPELINE_CAPACITY = 16;
+
+    private static final int CODE_BUFFERS = 64, CODE_BUFFER_CAPACITY = 1 << 12;
+
+    private static final Consumer<ClassBuilder> END = _ -> { };
+
+    private static final Runnable DONE = () -> { }, WAKEUP = () -> { };
+
+    private static final ClassValue<Boolean> RESOLVING_SUPER_CLASS = ofOverride("getSuperClass", String.class);
+
+    private static final ClassValue<Boolean> RESOLVING_CLASS_LOADER = ofOverride("getClassLoader");
 
     private final int flags;
-    private final Function<String, String> getSuperClass;
-    private final ClassModel classModel;
+    private final ClassHierarchy getSuperClass;
+    private ClassModel classModel;
+    private byte[] original;
+    private final JdkClassFileContext context;
 
     private final List<ClassDesc> nestMembers = new ArrayList<>();
     private final List<InnerClassInfo> innerClasses = new ArrayList<>();
@@ -109,6 +157,8 @@ public class JdkClassWriter extends ClassVisitor {
     private final List<TypeAnnotation> visibleTypeAnnotations = new ArrayList<>(), invisibleTypeAnnotations = new ArrayList<>();
 
     private ClassDesc thisClass;
+    private String name, superName;
+    private boolean isInterface;
     private boolean isRecord;
     private final List<Consumer<ClassBuilder>> classConsumers = new ArrayList<>(List.of(classBuilder -> {
         for (ClassElement attribute : attributes) {
@@ -141,6 +191,13 @@ public class JdkClassWriter extends ClassVisitor {
     }));
 
     private byte[] bytes;
+    private boolean released;
+    private boolean modified = true;
+    private int unchangedFields, unchangedMethods, unchangedAttributes;
+    private Pipeline pipeline;
+
+    private final List<WritingMethodVisitor> codeVisitors = new ArrayList<>();
+    private final List<CodeBuffer> codeBuffers = new ArrayList<>();
 
     /**
      * Creates a class writer.
@@ -150,7 +207,9 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(int flags) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = null;
+        original = null;
         getSuperClass = null;
     }
 
@@ -163,7 +222,9 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(JdkClassReader classReader, int flags) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = classReader == null ? null : classReader.getClassModel();
+        original = classReader == null ? null : classReader.getBytes();
         getSuperClass = null;
     }
 
@@ -179,14 +240,10 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(int flags, Method getSuperClass, Object target) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = null;
-        this.getSuperClass = getSuperClass == null ? null : name -> {
-            try {
-                return (String) getSuperClass.invoke(target, name);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
-        };
+        original = null;
+        this.getSuperClass = ClassHierarchy.ofMethod(getSuperClass, target);
     }
 
     /**
@@ -202,14 +259,10 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(JdkClassReader classReader, int flags, Method getSuperClass, Object target) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = classReader == null ? null : classReader.getClassModel();
-        this.getSuperClass = getSuperClass == null ? null : name -> {
-            try {
-                return (String) getSuperClass.invoke(target, name);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
-        };
+        original = classReader == null ? null : classReader.getBytes();
+        this.getSuperClass = ClassHierarchy.ofMethod(getSuperClass, target);
     }
 
     /**
@@ -222,8 +275,10 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(int flags, Function<String, String> getSuperClass) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = null;
-        this.getSuperClass = getSuperClass;
+        original = null;
+        this.getSuperClass = ClassHierarchy.of(getSuperClass);
     }
 
     /**
@@ -237,15 +292,55 @@ public class JdkClassWriter extends ClassVisitor {
     public JdkClassWriter(JdkClassReader classReader, int flags, Function<String, String> getSuperClass) {
         super(Opcodes.ASM9);
         this.flags = flags;
+        context = null;
         classModel = classReader == null ? null : classReader.getClassModel();
-        this.getSuperClass = getSuperClass;
+        original = classReader == null ? null : classReader.getBytes();
+        this.getSuperClass = ClassHierarchy.of(getSuperClass);
+    }
+
+    /**
+     * Creates a class writer.
+     *
+     * @param context The context that provides the {@code ClassFile} instance and resolves super classes.
+     * @param flags   The ASM flags to consider.
+     */
+    public JdkClassWriter(JdkClassFileContext context, int flags) {
+        super(Opcodes.ASM9);
+        this.flags = flags;
+        this.context = context;
+        classModel = null;
+        original = null;
+        getSuperClass = null;
+    }
+
+    /**
+     * Creates a class writer.
+     *
+     * @param context     The context that provides the {@code ClassFile} instance and resolves super classes.
+     * @param classReader A class reader of which to retain the constant pool, if possible.
+     * @param flags       The ASM flags to consider.
+     */
+    public JdkClassWriter(JdkClassFileContext context, JdkClassReader classReader, int flags) {
+        super(Opcodes.ASM9);
+        this.flags = flags;
+        this.context = context;
+        classModel = classReader == null ? null : classReader.getClassModel();
+        original = classReader == null ? null : classReader.getBytes();
+        getSuperClass = null;
     }
 
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         thisClass = ClassDesc.ofInternalName(name);
+        this.name = name;
+        this.superName = superName;
+        isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
         isRecord = (access & Opcodes.ACC_RECORD) != 0;
-        classConsumers.add(classBuilder -> {
+        modified = classModel == null || !hasHeader(version, access, name, signature, superName, interfaces);
+        if ((flags & PIPELINED) != 0) {
+            pipeline = new Pipeline(toClassFile());
+        }
+        addClassConsumer(classBuilder -> {
             classBuilder.withVersion(version & 0xFFFF, version >>> 16);
             classBuilder.withFlags(access & ~(Opcodes.ACC_DEPRECATED | Opcodes.ACC_RECORD));
             if ((access & Opcodes.ACC_DEPRECATED) != 0) {
@@ -269,7 +364,12 @@ public class JdkClassWriter extends ClassVisitor {
 
     @Override
     public void visitSource(String source, String debug) {
-        classConsumers.add(classBuilder -> {
+        track(classModel -> Objects.equals(source, classModel.findAttribute(Attributes.sourceFile())
+                .map(attribute -> attribute.sourceFile().stringValue())
+                .orElse(null)) && Objects.equals(debug, classModel.findAttribute(Attributes.sourceDebugExtension())
+                .map(attribute -> new String(attribute.contents(), StandardCharsets.UTF_8))
+                .orElse(null)));
+        addClassConsumer(classBuilder -> {
             if (source != null) {
                 classBuilder.with(SourceFileAttribute.of(source));
             }
@@ -310,7 +410,8 @@ public class JdkClassWriter extends ClassVisitor {
         }
 
         void add(ClassElement element) {
-            classConsumers.add(classBuilder -> classBuilder.with(element));
+            unchangedAttributes++;
+            addClassConsumer(classBuilder -> classBuilder.with(element));
         }
 
         @Override
@@ -368,7 +469,8 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public void visitEnd() {
-            classConsumers.add(classBuilder -> {
+            modified = true;
+            addClassConsumer(classBuilder -> {
                 classBuilder.with(ModuleAttribute.of(ModuleDesc.of(name), moduleAttributeBuilder -> {
                     moduleAttributeBuilder.moduleFlags(access & ~Opcodes.ACC_DEPRECATED);
                     if (version != null) {
@@ -388,26 +490,64 @@ public class JdkClassWriter extends ClassVisitor {
 
     @Override
     public void visitNestHost(String nestHost) {
-        classConsumers.add(classBuilder -> classBuilder.with(NestHostAttribute.of(ClassDesc.ofInternalName(nestHost))));
+        track(classModel -> classModel.findAttribute(Attributes.nestHost())
+                .filter(attribute -> attribute.nestHost().asInternalName().equals(nestHost))
+                .isPresent());
+        addClassConsumer(classBuilder -> classBuilder.with(NestHostAttribute.of(ClassDesc.ofInternalName(nestHost))));
     }
 
     @Override
     public void visitOuterClass(String owner, String name, String descriptor) {
-        classConsumers.add(classBuilder -> classBuilder.with(EnclosingMethodAttribute.of(ClassDesc.ofInternalName(owner), Optional.ofNullable(name), Optional.ofNullable(descriptor).map(MethodTypeDesc::ofDescriptor))));
+        track(classModel -> classModel.findAttribute(Attributes.enclosingMethod())
+                .filter(attribute -> attribute.enclosingClass().asInternalName().equals(owner)
+                        && Objects.equals(name, attribute.enclosingMethodName().map(Utf8Entry::stringValue).orElse(null))
+                        && Objects.equals(descriptor, attribute.enclosingMethodType().map(Utf8Entry::stringValue).orElse(null)))
+                .isPresent());
+        addClassConsumer(classBuilder -> classBuilder.with(EnclosingMethodAttribute.of(ClassDesc.ofInternalName(owner), Optional.ofNullable(name), Optional.ofNullable(descriptor).map(MethodTypeDesc::ofDescriptor))));
+    }
+
+    boolean hasAttributes(ClassModel classModel) {
+        return Objects.equals(this.classModel, classModel);
+    }
+
+    void addAttribute(java.lang.classfile.Attribute<?> attribute) {
+        switch (attribute) {
+            case RuntimeVisibleAnnotationsAttribute value when !visibleAnnotations.isEmpty() -> visibleAnnotations.addAll(value.annotations());
+            case RuntimeInvisibleAnnotationsAttribute value when !invisibleAnnotations.isEmpty() -> invisibleAnnotations.addAll(value.annotations());
+            case RuntimeVisibleTypeAnnotationsAttribute value when !visibleTypeAnnotations.isEmpty() -> visibleTypeAnnotations.addAll(value.annotations());
+            case RuntimeInvisibleTypeAnnotationsAttribute value when !invisibleTypeAnnotations.isEmpty() -> invisibleTypeAnnotations.addAll(value.annotations());
+            default -> {
+                track(_ -> true);
+                attributes.add((ClassElement) attribute);
+            }
+        }
     }
 
     @Override
     public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        if (visible) {
+            inflate(attributes, RuntimeVisibleAnnotationsAttribute.class, RuntimeVisibleAnnotationsAttribute::annotations, visibleAnnotations);
+        } else {
+            inflate(attributes, RuntimeInvisibleAnnotationsAttribute.class, RuntimeInvisibleAnnotationsAttribute::annotations, invisibleAnnotations);
+        }
         return WritingAnnotationVisitor.of(this, descriptor, (visible ? visibleAnnotations : invisibleAnnotations)::add);
     }
 
     @Override
     public void visitAttribute(Attribute attribute) {
-        attributes.add(AsmWrappedAttribute.unwrap(attribute, ClassElement.class));
+        ClassElement element = AsmWrappedAttribute.unwrap(attribute, ClassElement.class);
+        track(classModel -> attribute instanceof AsmWrappedAttribute<?>
+                && classModel.attributes().stream().anyMatch(candidate -> candidate == element));
+        attributes.add(element);
     }
 
     @Override
     public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        if (visible) {
+            inflate(attributes, RuntimeVisibleTypeAnnotationsAttribute.class, RuntimeVisibleTypeAnnotationsAttribute::annotations, visibleTypeAnnotations);
+        } else {
+            inflate(attributes, RuntimeInvisibleTypeAnnotationsAttribute.class, RuntimeInvisibleTypeAnnotationsAttribute::annotations, invisibleTypeAnnotations);
+        }
         return WritingAnnotationVisitor.ofTypeAnnotation(this, descriptor, typeRef, typePath, (visible ? visibleTypeAnnotations : invisibleTypeAnnotations)::add);
     }
 
@@ -428,48 +568,97 @@ public class JdkClassWriter extends ClassVisitor {
 
     @Override
     public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
-        return new RecordComponentVisitor(Opcodes.ASM9) {
+        return new WritingRecordComponentVisitor(name, descriptor, signature);
+    }
 
-            private final List<java.lang.classfile.Attribute<?>> attributes = new ArrayList<>();
-            private final List<Annotation> visibleAnnotations = new ArrayList<>(), invisibleAnnotations = new ArrayList<>();
-            private final List<TypeAnnotation> visibleTypeAnnotations = new ArrayList<>(), invisibleTypeAnnotations = new ArrayList<>();
+    class WritingRecordComponentVisitor extends RecordComponentVisitor {
 
-            @Override
-            public void visitAttribute(Attribute attribute) {
-                attributes.add(AsmWrappedAttribute.unwrap(attribute, java.lang.classfile.Attribute.class));
+        private final String name;
+        private final String descriptor;
+        private final String signature;
+
+        private final List<java.lang.classfile.Attribute<?>> attributes = new ArrayList<>();
+        private final List<Annotation> visibleAnnotations = new ArrayList<>(), invisibleAnnotations = new ArrayList<>();
+        private final List<TypeAnnotation> visibleTypeAnnotations = new ArrayList<>(), invisibleTypeAnnotations = new ArrayList<>();
+
+        private WritingRecordComponentVisitor(String name, String descriptor, String signature) {
+            super(Opcodes.ASM9);
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+        }
+
+        boolean has(ClassModel classModel, String name, String descriptor, String signature) {
+            return Objects.equals(JdkClassWriter.this.classModel, classModel)
+                    && Objects.equals(this.name, name)
+                    && Objects.equals(this.descriptor, descriptor)
+                    && Objects.equals(this.signature, signature);
+        }
+
+        void add(RecordComponentInfo recordComponent) {
+            recordComponents.add(recordComponent);
+        }
+
+        boolean hasAttributes(ClassModel classModel) {
+            return Objects.equals(JdkClassWriter.this.classModel, classModel);
+        }
+
+        void addAttribute(java.lang.classfile.Attribute<?> attribute) {
+            switch (attribute) {
+                case RuntimeVisibleAnnotationsAttribute value when !visibleAnnotations.isEmpty() -> visibleAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleAnnotationsAttribute value when !invisibleAnnotations.isEmpty() -> invisibleAnnotations.addAll(value.annotations());
+                case RuntimeVisibleTypeAnnotationsAttribute value when !visibleTypeAnnotations.isEmpty() -> visibleTypeAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleTypeAnnotationsAttribute value when !invisibleTypeAnnotations.isEmpty() -> invisibleTypeAnnotations.addAll(value.annotations());
+                default -> attributes.add(attribute);
             }
+        }
 
-            @Override
-            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-                return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, (visible ? visibleAnnotations : invisibleAnnotations)::add);
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            attributes.add(AsmWrappedAttribute.unwrap(attribute, java.lang.classfile.Attribute.class));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (visible) {
+                inflate(attributes, RuntimeVisibleAnnotationsAttribute.class, RuntimeVisibleAnnotationsAttribute::annotations, visibleAnnotations);
+            } else {
+                inflate(attributes, RuntimeInvisibleAnnotationsAttribute.class, RuntimeInvisibleAnnotationsAttribute::annotations, invisibleAnnotations);
             }
+            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, (visible ? visibleAnnotations : invisibleAnnotations)::add);
+        }
 
-            @Override
-            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-                return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, (visible ? visibleTypeAnnotations : invisibleTypeAnnotations)::add);
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            if (visible) {
+                inflate(attributes, RuntimeVisibleTypeAnnotationsAttribute.class, RuntimeVisibleTypeAnnotationsAttribute::annotations, visibleTypeAnnotations);
+            } else {
+                inflate(attributes, RuntimeInvisibleTypeAnnotationsAttribute.class, RuntimeInvisibleTypeAnnotationsAttribute::annotations, invisibleTypeAnnotations);
             }
+            return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, (visible ? visibleTypeAnnotations : invisibleTypeAnnotations)::add);
+        }
 
-            @Override
-            public void visitEnd() {
-                List<java.lang.classfile.Attribute<?>> attributes = new ArrayList<>(this.attributes);
-                if (!visibleAnnotations.isEmpty()) {
-                    attributes.add(RuntimeVisibleAnnotationsAttribute.of(visibleAnnotations));
-                }
-                if (!invisibleAnnotations.isEmpty()) {
-                    attributes.add(RuntimeInvisibleAnnotationsAttribute.of(invisibleAnnotations));
-                }
-                if (!visibleTypeAnnotations.isEmpty()) {
-                    attributes.add(RuntimeVisibleTypeAnnotationsAttribute.of(visibleTypeAnnotations));
-                }
-                if (!invisibleTypeAnnotations.isEmpty()) {
-                    attributes.add(RuntimeInvisibleTypeAnnotationsAttribute.of(invisibleTypeAnnotations));
-                }
-                if (signature != null) {
-                    attributes.add(SignatureAttribute.of(ClassSignature.parseFrom(signature)));
-                } 
-                recordComponents.add(RecordComponentInfo.of(name, ClassDesc.ofDescriptor(descriptor), attributes));
+        @Override
+        public void visitEnd() {
+            modified = true;
+            List<java.lang.classfile.Attribute<?>> attributes = new ArrayList<>(this.attributes);
+            if (!visibleAnnotations.isEmpty()) {
+                attributes.add(RuntimeVisibleAnnotationsAttribute.of(visibleAnnotations));
             }
-        };
+            if (!invisibleAnnotations.isEmpty()) {
+                attributes.add(RuntimeInvisibleAnnotationsAttribute.of(invisibleAnnotations));
+            }
+            if (!visibleTypeAnnotations.isEmpty()) {
+                attributes.add(RuntimeVisibleTypeAnnotationsAttribute.of(visibleTypeAnnotations));
+            }
+            if (!invisibleTypeAnnotations.isEmpty()) {
+                attributes.add(RuntimeInvisibleTypeAnnotationsAttribute.of(invisibleTypeAnnotations));
+            }
+            if (signature != null) {
+                attributes.add(SignatureAttribute.of(ClassSignature.parseFrom(signature)));
+            }
+            recordComponents.add(RecordComponentInfo.of(name, ClassDesc.ofDescriptor(descriptor), attributes));
+        }
     }
 
     @Override
@@ -485,9 +674,9 @@ public class JdkClassWriter extends ClassVisitor {
         private final String signature;
         private final Object value;
 
-        private final List<FieldElement> attributes = new ArrayList<>();
-        private final List<Annotation> visibleAnnotations = new ArrayList<>(), invisibleAnnotations = new ArrayList<>();
-        private final List<TypeAnnotation> visibleTypeAnnotations = new ArrayList<>(), invisibleTypeAnnotations = new ArrayList<>();
+        private List<FieldElement> attributes;
+        private List<Annotation> visibleAnnotations, invisibleAnnotations;
+        private List<TypeAnnotation> visibleTypeAnnotations, invisibleTypeAnnotations;
 
         private WritingFieldVisitor(int access, String name, String descriptor, String signature, Object value) {
             super(Opcodes.ASM9);
@@ -508,27 +697,70 @@ public class JdkClassWriter extends ClassVisitor {
         }
 
         void add(FieldModel field) {
-            classConsumers.add(classBuilder -> classBuilder.with(field));
+            List<FieldModel> fields = classModel.fields();
+            if (unchangedFields < fields.size() && fields.get(unchangedFields) == field) {
+                unchangedFields++;
+            } else {
+                modified = true;
+            }
+            addClassConsumer(classBuilder -> classBuilder.with(field));
+        }
+
+        boolean hasAttributes(ClassModel classModel) {
+            return Objects.equals(JdkClassWriter.this.classModel, classModel);
+        }
+
+        void addAttribute(java.lang.classfile.Attribute<?> attribute) {
+            switch (attribute) {
+                case RuntimeVisibleAnnotationsAttribute value when visibleAnnotations != null -> visibleAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleAnnotationsAttribute value when invisibleAnnotations != null -> invisibleAnnotations.addAll(value.annotations());
+                case RuntimeVisibleTypeAnnotationsAttribute value when visibleTypeAnnotations != null -> visibleTypeAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleTypeAnnotationsAttribute value when invisibleTypeAnnotations != null -> invisibleTypeAnnotations.addAll(value.annotations());
+                default -> attributes = append(attributes, (FieldElement) attribute);
+            }
         }
 
         @Override
         public void visitAttribute(Attribute attribute) {
-            attributes.add(AsmWrappedAttribute.unwrap(attribute, FieldElement.class));
+            attributes = append(attributes, AsmWrappedAttribute.unwrap(attribute, FieldElement.class));
         }
 
         @Override
         public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, (visible ? visibleAnnotations : invisibleAnnotations)::add);
+            if (visible) {
+                visibleAnnotations = inflate(attributes, RuntimeVisibleAnnotationsAttribute.class, RuntimeVisibleAnnotationsAttribute::annotations, visibleAnnotations);
+            } else {
+                invisibleAnnotations = inflate(attributes, RuntimeInvisibleAnnotationsAttribute.class, RuntimeInvisibleAnnotationsAttribute::annotations, invisibleAnnotations);
+            }
+            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, annotation -> {
+                if (visible) {
+                    visibleAnnotations = append(visibleAnnotations, annotation);
+                } else {
+                    invisibleAnnotations = append(invisibleAnnotations, annotation);
+                }
+            });
         }
 
         @Override
         public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, (visible ? visibleTypeAnnotations : invisibleTypeAnnotations)::add);
+            if (visible) {
+                visibleTypeAnnotations = inflate(attributes, RuntimeVisibleTypeAnnotationsAttribute.class, RuntimeVisibleTypeAnnotationsAttribute::annotations, visibleTypeAnnotations);
+            } else {
+                invisibleTypeAnnotations = inflate(attributes, RuntimeInvisibleTypeAnnotationsAttribute.class, RuntimeInvisibleTypeAnnotationsAttribute::annotations, invisibleTypeAnnotations);
+            }
+            return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, annotation -> {
+                if (visible) {
+                    visibleTypeAnnotations = append(visibleTypeAnnotations, annotation);
+                } else {
+                    invisibleTypeAnnotations = append(invisibleTypeAnnotations, annotation);
+                }
+            });
         }
 
         @Override
         public void visitEnd() {
-            classConsumers.add(classBuilder -> classBuilder.withField(name, ClassDesc.ofDescriptor(descriptor), fieldBuilder -> {
+            modified = true;
+            addClassConsumer(classBuilder -> classBuilder.withField(name, ClassDesc.ofDescriptor(descriptor), fieldBuilder -> {
                 fieldBuilder.withFlags(access & ~Opcodes.ACC_DEPRECATED);
                 if ((access & Opcodes.ACC_DEPRECATED) != 0) {
                     fieldBuilder.with(DeprecatedAttribute.of());
@@ -536,19 +768,21 @@ public class JdkClassWriter extends ClassVisitor {
                 if (signature != null) {
                     fieldBuilder.with(SignatureAttribute.of(classBuilder.constantPool().utf8Entry(signature)));
                 }
-                for (FieldElement attribute : attributes) {
-                    fieldBuilder.with(attribute);
+                if (attributes != null) {
+                    for (FieldElement attribute : attributes) {
+                        fieldBuilder.with(attribute);
+                    }
                 }
-                if (!visibleAnnotations.isEmpty()) {
+                if (visibleAnnotations != null) {
                     fieldBuilder.with(RuntimeVisibleAnnotationsAttribute.of(visibleAnnotations));
                 }
-                if (!invisibleAnnotations.isEmpty()) {
+                if (invisibleAnnotations != null) {
                     fieldBuilder.with(RuntimeInvisibleAnnotationsAttribute.of(invisibleAnnotations));
                 }
-                if (!visibleTypeAnnotations.isEmpty()) {
+                if (visibleTypeAnnotations != null) {
                     fieldBuilder.with(RuntimeVisibleTypeAnnotationsAttribute.of(visibleTypeAnnotations));
                 }
-                if (!invisibleTypeAnnotations.isEmpty()) {
+                if (invisibleTypeAnnotations != null) {
                     fieldBuilder.with(RuntimeInvisibleTypeAnnotationsAttribute.of(invisibleTypeAnnotations));
                 }
                 if (value != null) {
@@ -571,34 +805,114 @@ public class JdkClassWriter extends ClassVisitor {
         private final String signature;
         private final String[] exceptions;
 
-        private List<Consumer<CodeBuilder>> codeConsumers;
+        private static final int RECORD = 3, LABEL = -1, CONSUMER = -2;
+
+        private int[] instructions;
+        private int size, pending = -1;
+        private Object[] operands;
+        private int operandCount;
 
-        private final List<MethodElement> attributes = new ArrayList<>();
-        private final List<CodeElement> codeAttributes = new ArrayList<>();
+        private List<MethodElement> attributes;
+        private List<CodeElement> codeAttributes;
         private AnnotationValue defaultValue;
+        private CodeAttribute code, expectedCode;
+        private CodeLog expectedLog = CodeLog.NONE;
         private int catchCount = -1;
-        private final List<StackMapFrameInfo.VerificationTypeInfo> locals = new ArrayList<>();
-        private final List<MethodParameterInfo> methodParameters = new ArrayList<>();
-        private final List<Annotation> visibleAnnotations = new ArrayList<>(), invisibleAnnotations = new ArrayList<>();
-        private final List<TypeAnnotation> visibleTypeAnnotations = new ArrayList<>(), invisibleTypeAnnotations = new ArrayList<>();
-        private final Map<Integer, List<Annotation>> visibleParameterAnnotations = new HashMap<>(), invisibleParameterAnnotations = new HashMap<>();
+        private List<StackMapFrameInfo.VerificationTypeInfo> locals;
+        private List<MethodParameterInfo> methodParameters;
+        private List<Annotation> visibleAnnotations, invisibleAnnotations;
+        private List<TypeAnnotation> visibleTypeAnnotations, invisibleTypeAnnotations;
+        private Map<Integer, List<Annotation>> visibleParameterAnnotations, invisibleParameterAnnotations;
         private int visibleParameterAnnotationsCount = -1, invisibleParameterAnnotationsCount = -1;
 
-        private Map<Label, Integer> lineNumbers;
+        private int[] lineNumbers;
+        private int labelCount;
+        private Map<Label, LabelBinding> labelBindings;
 
         private List<StackMapFrameInfo> stackMapFrames;
-        private Map<Label, java.lang.classfile.Label> labels;
-        private Consumer<CodeBuilder> dalayedInstruction;
+        private java.lang.classfile.Label[] labels;
 
-        private void addInstruction(Consumer<CodeBuilder> consumer) {
-            undelayInstruction();
-            dalayedInstruction = consumer;
+        private void add(int opcode, int operand, int argument) {
+            if (size == instructions.length) {
+                instructions = Arrays.copyOf(instructions, size * 2);
+            }
+            instructions[size++] = opcode;
+            instructions[size++] = operand;
+            instructions[size++] = argument;
+        }
+
+        private int operand(Object value) {
+            if (operandCount == operands.length) {
+                operands = Arrays.copyOf(operands, operandCount * 2);
+            }
+            operands[operandCount] = value;
+            return operandCount++;
+        }
+
+        private void addInstruction(int opcode, int operand, int argument) {
+            pending = size;
+            add(opcode, operand, argument);
         }
 
         private void undelayInstruction() {
-            if (dalayedInstruction != null) {
-                codeConsumers.add(dalayedInstruction);
-                dalayedInstruction = null;
+            pending = -1;
+        }
+
+        private LabelBinding bind(Label label) {
+            if (label.info instanceof LabelBinding binding && binding.visitor() == this) {
+                return binding;
+            }
+            LabelBinding binding = labelBindings.get(label);
+            if (binding == null) {
+                binding = newLabelBinding();
+                labelBindings.put(label, binding);
+                if (label.info == null) {
+                    label.info = binding;
+                }
+            }
+            return binding;
+        }
+
+        private LabelBinding newLabelBinding() {
+            if (labelCount == lineNumbers.length) {
+                lineNumbers = Arrays.copyOf(lineNumbers, labelCount * 2);
+            }
+            lineNumbers[labelCount] = -1;
+            return new LabelBinding(this, labelCount++);
+        }
+
+        private void unbindLabels() {
+            if (labelBindings != null) {
+                labelBindings.forEach((label, binding) -> {
+                    if (label.info == binding) {
+                        label.info = null;
+                    }
+                });
+                labelBindings.clear();
+            }
+        }
+
+        private CodeBuffer release() {
+            Arrays.fill(operands, 0, operandCount, null);
+            Arrays.fill(labels, null);
+            CodeBuffer buffer = new CodeBuffer(instructions, operands, lineNumbers, labelBindings, labels);
+            instructions = null;
+            operands = null;
+            lineNumbers = null;
+            labelBindings = null;
+            labels = null;
+            return buffer;
+        }
+
+        private void addCodeConsumer(Consumer<CodeBuilder> consumer) {
+            add(CONSUMER, operand(consumer), 0);
+            if (pending != -1) {
+                for (int index = 0; index < RECORD; index++) {
+                    int value = instructions[pending + index];
+                    instructions[pending + index] = instructions[size - RECORD + index];
+                    instructions[size - RECORD + index] = value;
+                }
+                pending = size - RECORD;
             }
         }
 
@@ -620,20 +934,99 @@ public class JdkClassWriter extends ClassVisitor {
                     && Arrays.equals(this.exceptions, exceptions);
         }
 
+        boolean hasCode(ClassModel classModel, int access, String name, String descriptor) {
+            return Objects.equals(JdkClassWriter.this.classModel, classModel)
+                    && instructions == null
+                    && (this.access & Opcodes.ACC_STATIC) == (access & Opcodes.ACC_STATIC)
+                    && this.name.equals("<init>") == name.equals("<init>")
+                    && Objects.equals(this.descriptor, descriptor);
+        }
+
+        void add(CodeAttribute code) {
+            this.code = code;
+        }
+
+        MethodVisitor expect(CodeAttribute code, MethodVisitor methodVisitor) {
+            if ((flags & ClassWriter.COMPUTE_FRAMES) == 0) { // The original code is only recorded if the writer might retain its stack map frames.
+                return methodVisitor;
+            }
+            CodeLog log = new CodeLog(methodVisitor);
+            expectedCode = code;
+            expectedLog = log.toExpectation();
+            return log;
+        }
+
+        boolean hasAttributes(ClassModel classModel) {
+            return Objects.equals(JdkClassWriter.this.classModel, classModel);
+        }
+
+        void addAttribute(java.lang.classfile.Attribute<?> attribute) {
+            switch (attribute) {
+                case RuntimeVisibleAnnotationsAttribute value when visibleAnnotations != null -> visibleAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleAnnotationsAttribute value when invisibleAnnotations != null -> invisibleAnnotations.addAll(value.annotations());
+                case RuntimeVisibleTypeAnnotationsAttribute value when visibleTypeAnnotations != null -> visibleTypeAnnotations.addAll(value.annotations());
+                case RuntimeInvisibleTypeAnnotationsAttribute value when invisibleTypeAnnotations != null -> invisibleTypeAnnotations.addAll(value.annotations());
+                case RuntimeVisibleParameterAnnotationsAttribute value when visibleParameterAnnotations != null -> merge(visibleParameterAnnotations, value.parameterAnnotations());
+                case RuntimeInvisibleParameterAnnotationsAttribute value when invisibleParameterAnnotations != null -> merge(invisibleParameterAnnotations, value.parameterAnnotations());
+                case AnnotationDefaultAttribute value when defaultValue != null -> defaultValue = value.defaultValue();
+                default -> attributes = append(attributes, (MethodElement) attribute);
+            }
+        }
+
+        private void inflateParameterAnnotations(boolean visible) {
+            if (visible) {
+                RuntimeVisibleParameterAnnotationsAttribute attribute = remove(attributes, RuntimeVisibleParameterAnnotationsAttribute.class);
+                if (attribute != null) {
+                    visibleParameterAnnotations = merge(visibleParameterAnnotations == null ? new HashMap<>() : visibleParameterAnnotations, attribute.parameterAnnotations());
+                    if (visibleParameterAnnotationsCount < 0) {
+                        visibleParameterAnnotationsCount = attribute.parameterAnnotations().size();
+                    }
+                }
+            } else {
+                RuntimeInvisibleParameterAnnotationsAttribute attribute = remove(attributes, RuntimeInvisibleParameterAnnotationsAttribute.class);
+                if (attribute != null) {
+                    invisibleParameterAnnotations = merge(invisibleParameterAnnotations == null ? new HashMap<>() : invisibleParameterAnnotations, attribute.parameterAnnotations());
+                    if (invisibleParameterAnnotationsCount < 0) {
+                        invisibleParameterAnnotationsCount = attribute.parameterAnnotations().size();
+                    }
+                }
+            }
+        }
+
+        private static Map<Integer, List<Annotation>> merge(Map<Integer, List<Annotation>> parameterAnnotations, List<List<Annotation>> annotations) {
+            for (int index = 0; index < annotations.size(); index++) {
+                if (!annotations.get(index).isEmpty()) {
+                    parameterAnnotations.computeIfAbsent(index, _ -> new ArrayList<>()).addAll(annotations.get(index));
+                }
+            }
+            return parameterAnnotations;
+        }
+
         void add(MethodModel model) {
-            classConsumers.add(classBuilder -> classBuilder.with(model));
+            List<MethodModel> methods = classModel.methods();
+            if (unchangedMethods < methods.size() && methods.get(unchangedMethods) == model) {
+                unchangedMethods++;
+            } else {
+                modified = true;
+            }
+            addClassConsumer(classBuilder -> classBuilder.with(model));
         }
 
         @Override
         public void visitCode() {
-            codeConsumers = new ArrayList<>();
-            lineNumbers = new IdentityHashMap<>();
-            codeConsumers.add(_ -> {
-                stackMapFrames = new ArrayList<>();
-                labels = new IdentityHashMap<>();
-                dalayedInstruction = null;
-            });
+            CodeBuffer buffer = codeBuffers.isEmpty()
+                    ? new CodeBuffer(new int[RECORD * 16], new Object[16], new int[16], new IdentityHashMap<>(), new java.lang.classfile.Label[16])
+                    : codeBuffers.remove(codeBuffers.size() - 1);
+            instructions = buffer.instructions();
+            operands = buffer.operands();
+            lineNumbers = buffer.lineNumbers();
+            labelBindings = buffer.labelBindings();
+            labels = buffer.labels();
+            if (pipeline == null) {
+                codeVisitors.add(this);
+            }
             if ((flags & ClassWriter.COMPUTE_FRAMES) == 0) {
+                locals = new ArrayList<>();
                 if ((access & Opcodes.ACC_STATIC) == 0) {
                     locals.add(name.equals("<init>") ? StackMapFrameInfo.SimpleVerificationTypeInfo.UNINITIALIZED_THIS : StackMapFrameInfo.ObjectVerificationTypeInfo.of(thisClass));
                 }
@@ -652,30 +1045,54 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public void visitAttribute(Attribute attribute) {
+            expectedLog.visitAttribute(attribute);
             if (attribute.isCodeAttribute()) {
-                codeAttributes.add(AsmWrappedAttribute.unwrap(attribute, CodeElement.class));
+                codeAttributes = append(codeAttributes, AsmWrappedAttribute.unwrap(attribute, CodeElement.class));
             } else {
-                attributes.add(AsmWrappedAttribute.unwrap(attribute, MethodElement.class));
+                attributes = append(attributes, AsmWrappedAttribute.unwrap(attribute, MethodElement.class));
             }
         }
 
         @Override
         public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, (visible ? visibleAnnotations : invisibleAnnotations)::add);
+            if (visible) {
+                visibleAnnotations = inflate(attributes, RuntimeVisibleAnnotationsAttribute.class, RuntimeVisibleAnnotationsAttribute::annotations, visibleAnnotations);
+            } else {
+                invisibleAnnotations = inflate(attributes, RuntimeInvisibleAnnotationsAttribute.class, RuntimeInvisibleAnnotationsAttribute::annotations, invisibleAnnotations);
+            }
+            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, annotation -> {
+                if (visible) {
+                    visibleAnnotations = append(visibleAnnotations, annotation);
+                } else {
+                    invisibleAnnotations = append(invisibleAnnotations, annotation);
+                }
+            });
         }
 
         @Override
         public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, (visible ? visibleTypeAnnotations : invisibleTypeAnnotations)::add);
+            if (visible) {
+                visibleTypeAnnotations = inflate(attributes, RuntimeVisibleTypeAnnotationsAttribute.class, RuntimeVisibleTypeAnnotationsAttribute::annotations, visibleTypeAnnotations);
+            } else {
+                invisibleTypeAnnotations = inflate(attributes, RuntimeInvisibleTypeAnnotationsAttribute.class, RuntimeInvisibleTypeAnnotationsAttribute::annotations, invisibleTypeAnnotations);
+            }
+            return WritingAnnotationVisitor.ofTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, annotation -> {
+                if (visible) {
+                    visibleTypeAnnotations = append(visibleTypeAnnotations, annotation);
+                } else {
+                    invisibleTypeAnnotations = append(invisibleTypeAnnotations, annotation);
+                }
+            });
         }
 
         @Override
         public void visitParameter(String name, int access) {
-            methodParameters.add(MethodParameterInfo.ofParameter(Optional.ofNullable(name), access));
+            methodParameters = append(methodParameters, MethodParameterInfo.ofParameter(Optional.ofNullable(name), access));
         }
 
         @Override
         public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+            inflateParameterAnnotations(visible);
             if (visible) {
                 visibleParameterAnnotationsCount = parameterCount;
             } else {
@@ -685,13 +1102,27 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, (visible ? visibleParameterAnnotations : invisibleParameterAnnotations).computeIfAbsent(parameter, _ -> new ArrayList<>())::add);
+            inflateParameterAnnotations(visible);
+            Map<Integer, List<Annotation>> parameterAnnotations;
+            if (visible) {
+                if (visibleParameterAnnotations == null) {
+                    visibleParameterAnnotations = new HashMap<>();
+                }
+                parameterAnnotations = visibleParameterAnnotations;
+            } else {
+                if (invisibleParameterAnnotations == null) {
+                    invisibleParameterAnnotations = new HashMap<>();
+                }
+                parameterAnnotations = invisibleParameterAnnotations;
+            }
+            return WritingAnnotationVisitor.of(JdkClassWriter.this, descriptor, parameterAnnotations.computeIfAbsent(parameter, _ -> new ArrayList<>())::add);
         }
 
         @Override
         public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            expectedLog.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible);
             int catchCount = this.catchCount;
-            return WritingAnnotationVisitor.ofExceptionTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> codeConsumers.add(codeBuilder -> {
+            return WritingAnnotationVisitor.ofExceptionTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> addCodeConsumer(codeBuilder -> {
                 TypeAnnotation annotation = function.apply(catchCount);
                 codeBuilder.with(visible ? RuntimeVisibleTypeAnnotationsAttribute.of(annotation) : RuntimeInvisibleTypeAnnotationsAttribute.of(annotation));
 
@@ -700,7 +1131,8 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-            return WritingAnnotationVisitor.ofLabeledTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> codeConsumers.add(codeBuilder -> {
+            expectedLog.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+            return WritingAnnotationVisitor.ofLabeledTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> addCodeConsumer(codeBuilder -> {
                 TypeAnnotation annotation = function.apply(codeBuilder.newBoundLabel());
                 codeBuilder.with(visible ? RuntimeVisibleTypeAnnotationsAttribute.of(annotation) : RuntimeInvisibleTypeAnnotationsAttribute.of(annotation));
 
@@ -709,16 +1141,23 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public AnnotationVisitor visitAnnotationDefault() {
+            remove(attributes, AnnotationDefaultAttribute.class);
             return WritingAnnotationVisitor.ofValue(JdkClassWriter.this, value -> defaultValue = value);
         }
 
         @Override
         public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] indices, String descriptor, boolean visible) {
+            expectedLog.visitLocalVariableAnnotation(typeRef, typePath, start, end, indices, descriptor, visible);
             undelayInstruction();
-            return WritingAnnotationVisitor.ofTargetedTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> codeConsumers.add(codeBuilder -> {
+            int[] starts = new int[start.length], ends = new int[end.length];
+            for (int index = 0; index < start.length; index++) {
+                starts[index] = bind(start[index]).id();
+                ends[index] = bind(end[index]).id();
+            }
+            return WritingAnnotationVisitor.ofTargetedTypeAnnotation(JdkClassWriter.this, descriptor, typeRef, typePath, function -> addCodeConsumer(codeBuilder -> {
                 List<TypeAnnotation.LocalVarTargetInfo> targets = new ArrayList<>();
-                for (int index = 0; index < start.length; index++) {
-                    targets.add(TypeAnnotation.LocalVarTargetInfo.of(labels.computeIfAbsent(start[index], _ -> codeBuilder.newLabel()), labels.computeIfAbsent(end[index], _ -> codeBuilder.newLabel()), indices[index]));
+                for (int index = 0; index < starts.length; index++) {
+                    targets.add(TypeAnnotation.LocalVarTargetInfo.of(toLabel(codeBuilder, starts[index]), toLabel(codeBuilder, ends[index]), indices[index]));
                 }
                 TypeAnnotation annotation = function.apply(targets);
                 codeBuilder.with(visible ? RuntimeVisibleTypeAnnotationsAttribute.of(annotation) : RuntimeInvisibleTypeAnnotationsAttribute.of(annotation));
@@ -732,17 +1171,18 @@ public class JdkClassWriter extends ClassVisitor {
             if ((flags & ClassWriter.COMPUTE_FRAMES) != 0) {
                 return;
             }
-            codeConsumers.add(codeBuilder -> {
+            Object[] frameLocal = toFrameTypes(numLocal, local), frameStack = toFrameTypes(numStack, stack);
+            addCodeConsumer(codeBuilder -> {
                 List<StackMapFrameInfo.VerificationTypeInfo> stacks = new ArrayList<>(numStack);
                 for (int index = 0; index < numStack; index++) {
-                    stacks.add(toVerificationTypeInfo(stack[index], label -> labels.computeIfAbsent(label, _ -> codeBuilder.newLabel())));
+                    stacks.add(toVerificationTypeInfo(frameStack[index], codeBuilder));
                 }
                 switch (type) {
                     case Opcodes.F_SAME, Opcodes.F_SAME1:
                         break;
                     case Opcodes.F_APPEND:
                         for (int index = 0; index < numLocal; index++) {
-                            locals.add(toVerificationTypeInfo(local[index], label -> labels.computeIfAbsent(label, _ -> codeBuilder.newLabel())));
+                            locals.add(toVerificationTypeInfo(frameLocal[index], codeBuilder));
                         }
                         break;
                     case Opcodes.F_CHOP:
@@ -752,7 +1192,7 @@ public class JdkClassWriter extends ClassVisitor {
                     case Opcodes.F_NEW:
                         locals.clear();
                         for (int index = 0; index < numLocal; index++) {
-                            locals.add(toVerificationTypeInfo(local[index], label -> labels.computeIfAbsent(label, _ -> codeBuilder.newLabel())));
+                            locals.add(toVerificationTypeInfo(frameLocal[index], codeBuilder));
                         }
                         break;
                     default:
@@ -762,7 +1202,18 @@ public class JdkClassWriter extends ClassVisitor {
             });
         }
 
-        private static StackMapFrameInfo.VerificationTypeInfo toVerificationTypeInfo(Object value, Function<Label, java.lang.classfile.Label> labels) {
+        private Object[] toFrameTypes(int count, Object[] types) {
+            if (types == null) {
+                return null;
+            }
+            Object[] frameTypes = new Object[count];
+            for (int index = 0; index < count; index++) {
+                frameTypes[index] = types[index] instanceof Label label ? bind(label) : types[index];
+            }
+            return frameTypes;
+        }
+
+        private StackMapFrameInfo.VerificationTypeInfo toVerificationTypeInfo(Object value, CodeBuilder codeBuilder) {
             if (value == Opcodes.TOP) {
                 return StackMapFrameInfo.SimpleVerificationTypeInfo.TOP;
             } else if (value == Opcodes.INTEGER) {
@@ -777,8 +1228,8 @@ public class JdkClassWriter extends ClassVisitor {
                 return StackMapFrameInfo.SimpleVerificationTypeInfo.NULL;
             } else if (value == Opcodes.UNINITIALIZED_THIS) {
                 return StackMapFrameInfo.SimpleVerificationTypeInfo.UNINITIALIZED_THIS;
-            } else if (value instanceof Label label) {
-                return StackMapFrameInfo.UninitializedVerificationTypeInfo.of(labels.apply(label));
+            } else if (value instanceof LabelBinding binding) {
+                return StackMapFrameInfo.UninitializedVerificationTypeInfo.of(toLabel(codeBuilder, binding.id()));
             } else if (value instanceof String name) {
                 return StackMapFrameInfo.ObjectVerificationTypeInfo.of(name.startsWith("[") ? ClassDesc.ofDescriptor(name) : ClassDesc.ofInternalName(name));
             } else {
@@ -788,7 +1239,22 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public void visitInsn(int opcode) {
-            Consumer<CodeBuilder> codeConsumer = switch (opcode) {
+            expectedLog.visitInsn(opcode);
+            if (opcode >= Opcodes.NOP && opcode <= Opcodes.DCONST_1
+                    || opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD
+                    || opcode >= Opcodes.IASTORE && opcode <= Opcodes.LXOR
+                    || opcode >= Opcodes.I2L && opcode <= Opcodes.DCMPG
+                    || opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN
+                    || opcode == Opcodes.ARRAYLENGTH || opcode == Opcodes.ATHROW
+                    || opcode == Opcodes.MONITORENTER || opcode == Opcodes.MONITOREXIT) {
+                addInstruction(opcode, 0, 0);
+            } else {
+                throw new IllegalArgumentException("Unexpected opcode: " + opcode);
+            }
+        }
+
+        private static Consumer<CodeBuilder> toInstruction(int opcode) {
+            return switch (opcode) {
                 case Opcodes.NOP -> CodeBuilder::nop;
                 case Opcodes.ACONST_NULL -> CodeBuilder::aconst_null;
                 case Opcodes.ICONST_M1 -> CodeBuilder::iconst_m1;
@@ -898,196 +1364,271 @@ public class JdkClassWriter extends ClassVisitor {
                 case Opcodes.MONITOREXIT -> CodeBuilder::monitorexit;
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
             };
-            addInstruction(codeConsumer);
         }
 
         @Override
         public void visitIntInsn(int opcode, int operand) {
-            Consumer<CodeBuilder> codeConsumer = switch (opcode) {
-                case Opcodes.BIPUSH -> codeBuilder -> codeBuilder.bipush(operand);
-                case Opcodes.SIPUSH -> codeBuilder -> codeBuilder.sipush(operand);
-                case Opcodes.NEWARRAY -> codeBuilder -> codeBuilder.newarray(TypeKind.fromNewarrayCode(operand));
+            expectedLog.visitIntInsn(opcode, operand);
+            switch (opcode) {
+                case Opcodes.BIPUSH, Opcodes.SIPUSH, Opcodes.NEWARRAY -> addInstruction(opcode, operand, 0);
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            };
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitVarInsn(int opcode, int varIndex) {
-            Consumer<CodeBuilder> codeConsumer = switch (opcode) {
-                case Opcodes.ILOAD -> codeBuilder -> codeBuilder.iload(varIndex);
-                case Opcodes.LLOAD -> codeBuilder -> codeBuilder.lload(varIndex);
-                case Opcodes.FLOAD -> codeBuilder -> codeBuilder.fload(varIndex);
-                case Opcodes.DLOAD -> codeBuilder -> codeBuilder.dload(varIndex);
-                case Opcodes.ALOAD -> codeBuilder -> codeBuilder.aload(varIndex);
-                case Opcodes.ISTORE -> codeBuilder -> codeBuilder.istore(varIndex);
-                case Opcodes.LSTORE -> codeBuilder -> codeBuilder.lstore(varIndex);
-                case Opcodes.FSTORE -> codeBuilder -> codeBuilder.fstore(varIndex);
-                case Opcodes.DSTORE -> codeBuilder -> codeBuilder.dstore(varIndex);
-                case Opcodes.ASTORE -> codeBuilder -> codeBuilder.astore(varIndex);
-                case Opcodes.RET -> codeBuilder -> codeBuilder.with(DiscontinuedInstruction.RetInstruction.of(varIndex));
+            expectedLog.visitVarInsn(opcode, varIndex);
+            switch (opcode) {
+                case Opcodes.ILOAD, Opcodes.LLOAD, Opcodes.FLOAD, Opcodes.DLOAD, Opcodes.ALOAD,
+                     Opcodes.ISTORE, Opcodes.LSTORE, Opcodes.FSTORE, Opcodes.DSTORE, Opcodes.ASTORE,
+                     Opcodes.RET -> addInstruction(opcode, varIndex, 0);
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            };
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.fieldAccess(switch (opcode) {
-                case Opcodes.GETFIELD -> Opcode.GETFIELD;
-                case Opcodes.PUTFIELD -> Opcode.PUTFIELD;
-                case Opcodes.GETSTATIC -> Opcode.GETSTATIC;
-                case Opcodes.PUTSTATIC -> Opcode.PUTSTATIC;
+            expectedLog.visitFieldInsn(opcode, owner, name, descriptor);
+            switch (opcode) {
+                case Opcodes.GETFIELD, Opcodes.PUTFIELD, Opcodes.GETSTATIC, Opcodes.PUTSTATIC -> {
+                    int operand = operand(owner);
+                    operand(name);
+                    operand(descriptor);
+                    addInstruction(opcode, operand, 0);
+                }
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            }, ClassDesc.ofInternalName(owner), name, ClassDesc.ofDescriptor(descriptor));
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.invoke(switch (opcode) {
-                case Opcodes.INVOKEVIRTUAL -> Opcode.INVOKEVIRTUAL;
-                case Opcodes.INVOKEINTERFACE -> Opcode.INVOKEINTERFACE;
-                case Opcodes.INVOKESPECIAL -> Opcode.INVOKESPECIAL;
-                case Opcodes.INVOKESTATIC -> Opcode.INVOKESTATIC;
+            expectedLog.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+            switch (opcode) {
+                case Opcodes.INVOKEVIRTUAL, Opcodes.INVOKEINTERFACE, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC -> {
+                    int operand = operand(owner);
+                    operand(name);
+                    operand(descriptor);
+                    addInstruction(opcode, operand, isInterface ? 1 : 0);
+                }
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            }, owner.startsWith("[") ? ClassDesc.ofDescriptor(owner) : ClassDesc.ofInternalName(owner), name, MethodTypeDesc.ofDescriptor(descriptor), isInterface);
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            expectedLog.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
             ConstantDesc[] constants = new ConstantDesc[bootstrapMethodArguments.length];
             for (int index = 0; index < bootstrapMethodArguments.length; index++) {
                 constants[index] = toConstantDesc(bootstrapMethodArguments[index]);
             }
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.invokedynamic(DynamicCallSiteDesc.of(MethodHandleDesc.of(DirectMethodHandleDesc.Kind.valueOf(bootstrapMethodHandle.getTag(), bootstrapMethodHandle.isInterface()), ClassDesc.ofInternalName(bootstrapMethodHandle.getOwner()), bootstrapMethodHandle.getName(), bootstrapMethodHandle.getDesc()), name, MethodTypeDesc.ofDescriptor(descriptor), constants));
-            addInstruction(codeConsumer);
+            addInstruction(Opcodes.INVOKEDYNAMIC, operand(DynamicCallSiteDesc.of(MethodHandleDesc.of(DirectMethodHandleDesc.Kind.valueOf(bootstrapMethodHandle.getTag(), bootstrapMethodHandle.isInterface()), ClassDesc.ofInternalName(bootstrapMethodHandle.getOwner()), bootstrapMethodHandle.getName(), bootstrapMethodHandle.getDesc()), name, MethodTypeDesc.ofDescriptor(descriptor), constants)), 0);
         }
 
         @Override
         public void visitJumpInsn(int opcode, Label label) {
-            Consumer<CodeBuilder> codeConsumer = switch (opcode) {
-                case Opcodes.IFEQ -> codeBuilder -> codeBuilder.ifeq(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFNE -> codeBuilder -> codeBuilder.ifne(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFLT -> codeBuilder -> codeBuilder.iflt(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFGE -> codeBuilder -> codeBuilder.ifge(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFGT -> codeBuilder -> codeBuilder.ifgt(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFLE -> codeBuilder -> codeBuilder.ifle(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPEQ -> codeBuilder -> codeBuilder.if_icmpeq(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPNE -> codeBuilder -> codeBuilder.if_icmpne(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPLT -> codeBuilder -> codeBuilder.if_icmplt(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPGE -> codeBuilder -> codeBuilder.if_icmpge(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPGT -> codeBuilder -> codeBuilder.if_icmpgt(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ICMPLE -> codeBuilder -> codeBuilder.if_icmple(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ACMPEQ -> codeBuilder -> codeBuilder.if_acmpeq(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IF_ACMPNE -> codeBuilder -> codeBuilder.if_acmpne(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.GOTO -> codeBuilder -> codeBuilder.goto_(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFNULL -> codeBuilder -> codeBuilder.ifnull(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.IFNONNULL -> codeBuilder -> codeBuilder.ifnonnull(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                case Opcodes.JSR -> codeBuilder -> codeBuilder.with(DiscontinuedInstruction.JsrInstruction.of(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel())));
+            expectedLog.visitJumpInsn(opcode, label);
+            switch (opcode) {
+                case Opcodes.IFEQ, Opcodes.IFNE, Opcodes.IFLT, Opcodes.IFGE, Opcodes.IFGT, Opcodes.IFLE,
+                     Opcodes.IF_ICMPEQ, Opcodes.IF_ICMPNE, Opcodes.IF_ICMPLT, Opcodes.IF_ICMPGE, Opcodes.IF_ICMPGT, Opcodes.IF_ICMPLE,
+                     Opcodes.IF_ACMPEQ, Opcodes.IF_ACMPNE, Opcodes.GOTO, Opcodes.IFNULL, Opcodes.IFNONNULL,
+                     Opcodes.JSR -> addInstruction(opcode, bind(label).id(), 0);
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            };
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitLdcInsn(Object value) {
-            ConstantDesc constant = toConstantDesc(value);
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.ldc(constant);
-            addInstruction(codeConsumer);
+            expectedLog.visitLdcInsn(value);
+            addInstruction(Opcodes.LDC, operand(toConstantDesc(value)), 0);
         }
 
         @Override
         public void visitIincInsn(int varIndex, int increment) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.iinc(varIndex, increment);
-            addInstruction(codeConsumer);
+            expectedLog.visitIincInsn(varIndex, increment);
+            addInstruction(Opcodes.IINC, varIndex, increment);
         }
 
         @Override
         public void visitLabel(Label label) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> {
-                codeBuilder.labelBinding(labels.computeIfAbsent(label, _ -> codeBuilder.newLabel()));
-                Integer lineNumber = lineNumbers.remove(label);
-                if (lineNumber != null) {
-                    codeBuilder.lineNumber(lineNumber);
-                }
-            };
-            addInstruction(codeConsumer);
+            expectedLog.visitLabel(label);
+            addInstruction(LABEL, bind(label).id(), 0);
         }
 
         @Override
         public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> {
-                List<SwitchCase> switchCases = new ArrayList<>();
-                for (int index = 0; index < labels.length; index++) {
-                    if (!Objects.equals(labels[index], dflt)) {
-                        switchCases.add(SwitchCase.of(min + index, this.labels.computeIfAbsent(labels[index], _ -> codeBuilder.newLabel())));
-                    }
-                }
-                codeBuilder.tableswitch(min, max, this.labels.computeIfAbsent(dflt, _ -> codeBuilder.newLabel()), switchCases);
-            };
-            addInstruction(codeConsumer);
+            expectedLog.visitTableSwitchInsn(min, max, dflt, labels);
+            int[] targets = new int[labels.length + 1];
+            targets[0] = bind(dflt).id();
+            for (int index = 0; index < labels.length; index++) {
+                targets[index + 1] = bind(labels[index]).id();
+            }
+            addInstruction(Opcodes.TABLESWITCH, operand(targets), min);
         }
 
         @Override
         public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> {
-                SwitchCase[] switchCases = new SwitchCase[labels.length];
-                for (int index = 0; index < labels.length; index++) {
-                    switchCases[index] = SwitchCase.of(keys[index], this.labels.computeIfAbsent(labels[index], _ -> codeBuilder.newLabel()));
-                }
-                codeBuilder.lookupswitch(this.labels.computeIfAbsent(dflt, _ -> codeBuilder.newLabel()), List.of(switchCases));
-            };
-            addInstruction(codeConsumer);
+            expectedLog.visitLookupSwitchInsn(dflt, keys, labels);
+            int[] targets = new int[labels.length];
+            for (int index = 0; index < labels.length; index++) {
+                targets[index] = bind(labels[index]).id();
+            }
+            int operand = operand(keys);
+            operand(targets);
+            addInstruction(Opcodes.LOOKUPSWITCH, operand, bind(dflt).id());
         }
 
         @Override
         public void visitTypeInsn(int opcode, String type) {
-            ClassDesc description = type.startsWith("[") ? ClassDesc.ofDescriptor(type) : ClassDesc.ofInternalName(type);
-            Consumer<CodeBuilder> codeConsumer = switch (opcode) {
-                case Opcodes.NEW -> codeBuilder -> codeBuilder.new_(description);
-                case Opcodes.ANEWARRAY -> codeBuilder -> codeBuilder.anewarray(description);
-                case Opcodes.CHECKCAST -> codeBuilder -> codeBuilder.checkcast(description);
-                case Opcodes.INSTANCEOF -> codeBuilder -> codeBuilder.instanceOf(description);
+            expectedLog.visitTypeInsn(opcode, type);
+            switch (opcode) {
+                case Opcodes.NEW, Opcodes.ANEWARRAY, Opcodes.CHECKCAST, Opcodes.INSTANCEOF -> addInstruction(opcode, operand(type), 0);
                 default -> throw new IllegalArgumentException("Unexpected opcode: " + opcode);
-            };
-            addInstruction(codeConsumer);
+            }
         }
 
         @Override
         public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
-            Consumer<CodeBuilder> codeConsumer = codeBuilder -> codeBuilder.multianewarray(ClassDesc.ofDescriptor(descriptor), numDimensions);
-            addInstruction(codeConsumer);
+            expectedLog.visitMultiANewArrayInsn(descriptor, numDimensions);
+            addInstruction(Opcodes.MULTIANEWARRAY, operand(descriptor), numDimensions);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void replay(CodeBuilder codeBuilder) {
+            stackMapFrames = new ArrayList<>();
+            if (labels.length < labelCount) {
+                labels = new java.lang.classfile.Label[lineNumbers.length];
+            } else {
+                Arrays.fill(labels, 0, labelCount, null);
+            }
+            for (int index = 0; index < size; index += RECORD) {
+                int opcode = instructions[index], operand = instructions[index + 1], argument = instructions[index + 2];
+                switch (opcode) {
+                    case CONSUMER -> ((Consumer<CodeBuilder>) operands[operand]).accept(codeBuilder);
+                    case LABEL -> {
+                        codeBuilder.labelBinding(toLabel(codeBuilder, operand));
+                        if (lineNumbers[operand] != -1) {
+                            codeBuilder.lineNumber(lineNumbers[operand]);
+                        }
+                    }
+                    case Opcodes.BIPUSH -> codeBuilder.bipush(operand);
+                    case Opcodes.SIPUSH -> codeBuilder.sipush(operand);
+                    case Opcodes.NEWARRAY -> codeBuilder.newarray(TypeKind.fromNewarrayCode(operand));
+                    case Opcodes.ILOAD -> codeBuilder.iload(operand);
+                    case Opcodes.LLOAD -> codeBuilder.lload(operand);
+                    case Opcodes.FLOAD -> codeBuilder.fload(operand);
+                    case Opcodes.DLOAD -> codeBuilder.dload(operand);
+                    case Opcodes.ALOAD -> codeBuilder.aload(operand);
+                    case Opcodes.ISTORE -> codeBuilder.istore(operand);
+                    case Opcodes.LSTORE -> codeBuilder.lstore(operand);
+                    case Opcodes.FSTORE -> codeBuilder.fstore(operand);
+                    case Opcodes.DSTORE -> codeBuilder.dstore(operand);
+                    case Opcodes.ASTORE -> codeBuilder.astore(operand);
+                    case Opcodes.RET -> codeBuilder.with(DiscontinuedInstruction.RetInstruction.of(operand));
+                    case Opcodes.IINC -> codeBuilder.iinc(operand, argument);
+                    case Opcodes.GETFIELD, Opcodes.PUTFIELD, Opcodes.GETSTATIC, Opcodes.PUTSTATIC -> codeBuilder.fieldAccess(switch (opcode) {
+                        case Opcodes.GETFIELD -> Opcode.GETFIELD;
+                        case Opcodes.PUTFIELD -> Opcode.PUTFIELD;
+                        case Opcodes.GETSTATIC -> Opcode.GETSTATIC;
+                        default -> Opcode.PUTSTATIC;
+                    }, ClassDesc.ofInternalName((String) operands[operand]), (String) operands[operand + 1], ClassDesc.ofDescriptor((String) operands[operand + 2]));
+                    case Opcodes.INVOKEVIRTUAL, Opcodes.INVOKEINTERFACE, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC -> codeBuilder.invoke(switch (opcode) {
+                        case Opcodes.INVOKEVIRTUAL -> Opcode.INVOKEVIRTUAL;
+                        case Opcodes.INVOKEINTERFACE -> Opcode.INVOKEINTERFACE;
+                        case Opcodes.INVOKESPECIAL -> Opcode.INVOKESPECIAL;
+                        default -> Opcode.INVOKESTATIC;
+                    }, toClassDesc((String) operands[operand]), (String) operands[operand + 1], MethodTypeDesc.ofDescriptor((String) operands[operand + 2]), argument != 0);
+                    case Opcodes.INVOKEDYNAMIC -> codeBuilder.invokedynamic((DynamicCallSiteDesc) operands[operand]);
+                    case Opcodes.IFEQ -> codeBuilder.ifeq(toLabel(codeBuilder, operand));
+                    case Opcodes.IFNE -> codeBuilder.ifne(toLabel(codeBuilder, operand));
+                    case Opcodes.IFLT -> codeBuilder.iflt(toLabel(codeBuilder, operand));
+                    case Opcodes.IFGE -> codeBuilder.ifge(toLabel(codeBuilder, operand));
+                    case Opcodes.IFGT -> codeBuilder.ifgt(toLabel(codeBuilder, operand));
+                    case Opcodes.IFLE -> codeBuilder.ifle(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPEQ -> codeBuilder.if_icmpeq(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPNE -> codeBuilder.if_icmpne(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPLT -> codeBuilder.if_icmplt(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPGE -> codeBuilder.if_icmpge(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPGT -> codeBuilder.if_icmpgt(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ICMPLE -> codeBuilder.if_icmple(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ACMPEQ -> codeBuilder.if_acmpeq(toLabel(codeBuilder, operand));
+                    case Opcodes.IF_ACMPNE -> codeBuilder.if_acmpne(toLabel(codeBuilder, operand));
+                    case Opcodes.GOTO -> codeBuilder.goto_(toLabel(codeBuilder, operand));
+                    case Opcodes.IFNULL -> codeBuilder.ifnull(toLabel(codeBuilder, operand));
+                    case Opcodes.IFNONNULL -> codeBuilder.ifnonnull(toLabel(codeBuilder, operand));
+                    case Opcodes.JSR -> codeBuilder.with(DiscontinuedInstruction.JsrInstruction.of(toLabel(codeBuilder, operand)));
+                    case Opcodes.LDC -> codeBuilder.ldc((ConstantDesc) operands[operand]);
+                    case Opcodes.TABLESWITCH -> {
+                        int[] targets = (int[]) operands[operand];
+                        List<SwitchCase> switchCases = new ArrayList<>(targets.length - 1);
+                        for (int target = 1; target < targets.length; target++) {
+                            if (targets[target] != targets[0]) {
+                                switchCases.add(SwitchCase.of(argument + target - 1, toLabel(codeBuilder, targets[target])));
+                            }
+                        }
+                        codeBuilder.tableswitch(argument, argument + targets.length - 2, toLabel(codeBuilder, targets[0]), switchCases);
+                    }
+                    case Opcodes.LOOKUPSWITCH -> {
+                        int[] keys = (int[]) operands[operand], targets = (int[]) operands[operand + 1];
+                        SwitchCase[] switchCases = new SwitchCase[targets.length];
+                        for (int target = 0; target < targets.length; target++) {
+                            switchCases[target] = SwitchCase.of(keys[target], toLabel(codeBuilder, targets[target]));
+                        }
+                        codeBuilder.lookupswitch(toLabel(codeBuilder, argument), List.of(switchCases));
+                    }
+                    case Opcodes.NEW -> codeBuilder.new_(toClassDesc((String) operands[operand]));
+                    case Opcodes.ANEWARRAY -> codeBuilder.anewarray(toClassDesc((String) operands[operand]));
+                    case Opcodes.CHECKCAST -> codeBuilder.checkcast(toClassDesc((String) operands[operand]));
+                    case Opcodes.INSTANCEOF -> codeBuilder.instanceOf(toClassDesc((String) operands[operand]));
+                    case Opcodes.MULTIANEWARRAY -> codeBuilder.multianewarray(ClassDesc.ofDescriptor((String) operands[operand]), argument);
+                    default -> toInstruction(opcode).accept(codeBuilder);
+                }
+            }
+        }
+
+        private java.lang.classfile.Label toLabel(CodeBuilder codeBuilder, int id) {
+            java.lang.classfile.Label label = labels[id];
+            if (label == null) {
+                label = labels[id] = codeBuilder.newLabel();
+            }
+            return label;
+        }
+
+        private static ClassDesc toClassDesc(String type) {
+            return type.startsWith("[") ? ClassDesc.ofDescriptor(type) : ClassDesc.ofInternalName(type);
         }
 
         @Override
         public void visitLineNumber(int line, Label start) {
-            lineNumbers.put(start, line);
+            expectedLog.visitLineNumber(line, start);
+            lineNumbers[bind(start).id()] = line;
         }
 
         @Override
         public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+            expectedLog.visitLocalVariable(name, descriptor, signature, start, end, index);
             undelayInstruction();
-            codeConsumers.add(codeBuilder -> {
+            int startId = bind(start).id(), endId = bind(end).id();
+            addCodeConsumer(codeBuilder -> {
                 if (descriptor != null) {
-                    codeBuilder.localVariable(index, name, ClassDesc.ofDescriptor(descriptor), labels.computeIfAbsent(start, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(end, _ -> codeBuilder.newLabel()));
+                    codeBuilder.localVariable(index, name, ClassDesc.ofDescriptor(descriptor), toLabel(codeBuilder, startId), toLabel(codeBuilder, endId));
                 }
                 if (signature != null) {
-                    codeBuilder.localVariableType(index, name, Signature.parseFrom(signature), labels.computeIfAbsent(start, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(end, _ -> codeBuilder.newLabel()));
+                    codeBuilder.localVariableType(index, name, Signature.parseFrom(signature), toLabel(codeBuilder, startId), toLabel(codeBuilder, endId));
                 }
             });
         }
 
         @Override
         public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            expectedLog.visitTryCatchBlock(start, end, handler, type);
             undelayInstruction();
             catchCount += 1;
-            codeConsumers.add(codeBuilder -> {
+            int startId = bind(start).id(), endId = bind(end).id(), handlerId = bind(handler).id();
+            addCodeConsumer(codeBuilder -> {
                 if (type == null) {
-                    codeBuilder.exceptionCatchAll(labels.computeIfAbsent(start, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(end, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(handler, _ -> codeBuilder.newLabel()));
+                    codeBuilder.exceptionCatchAll(toLabel(codeBuilder, startId), toLabel(codeBuilder, endId), toLabel(codeBuilder, handlerId));
                 } else {
-                    codeBuilder.exceptionCatch(labels.computeIfAbsent(start, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(end, _ -> codeBuilder.newLabel()), labels.computeIfAbsent(handler, _ -> codeBuilder.newLabel()), ClassDesc.ofInternalName(type));
+                    codeBuilder.exceptionCatch(toLabel(codeBuilder, startId), toLabel(codeBuilder, endId), toLabel(codeBuilder, handlerId), ClassDesc.ofInternalName(type));
                 }
             });
         }
@@ -1098,8 +1639,13 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public void visitEnd() {
+            modified = true;
+            unbindLabels();
+            if (expectedLog.matches()) {
+                code = expectedCode; // The original stack map frames remain valid as the instructions are unchanged.
+            }
             MethodTypeDesc methodTypeDesc = MethodTypeDesc.ofDescriptor(descriptor);
-            classConsumers.add(classBuilder -> classBuilder.withMethod(name, methodTypeDesc, access & ~Opcodes.ACC_DEPRECATED, methodBuilder -> {
+            addClassConsumer(classBuilder -> classBuilder.withMethod(name, methodTypeDesc, access & ~Opcodes.ACC_DEPRECATED, methodBuilder -> {
                 if ((access & Opcodes.ACC_DEPRECATED) != 0) {
                     methodBuilder.with(DeprecatedAttribute.of());
                 }
@@ -1113,28 +1659,30 @@ public class JdkClassWriter extends ClassVisitor {
                     }
                     methodBuilder.with(ExceptionsAttribute.ofSymbols(entries));
                 }
-                for (MethodElement attribute : attributes) {
-                    methodBuilder.with(attribute);
+                if (attributes != null) {
+                    for (MethodElement attribute : attributes) {
+                        methodBuilder.with(attribute);
+                    }
                 }
                 if (defaultValue != null) {
                     methodBuilder.with(AnnotationDefaultAttribute.of(defaultValue));
                 }
-                if (!visibleAnnotations.isEmpty()) {
+                if (visibleAnnotations != null) {
                     methodBuilder.with(RuntimeVisibleAnnotationsAttribute.of(visibleAnnotations));
                 }
-                if (!invisibleAnnotations.isEmpty()) {
+                if (invisibleAnnotations != null) {
                     methodBuilder.with(RuntimeInvisibleAnnotationsAttribute.of(invisibleAnnotations));
                 }
-                if (!visibleTypeAnnotations.isEmpty()) {
+                if (visibleTypeAnnotations != null) {
                     methodBuilder.with(RuntimeVisibleTypeAnnotationsAttribute.of(visibleTypeAnnotations));
                 }
-                if (!invisibleTypeAnnotations.isEmpty()) {
+                if (invisibleTypeAnnotations != null) {
                     methodBuilder.with(RuntimeInvisibleTypeAnnotationsAttribute.of(invisibleTypeAnnotations));
                 }
-                if (!methodParameters.isEmpty()) {
+                if (methodParameters != null) {
                     methodBuilder.with(MethodParametersAttribute.of(methodParameters));
                 }
-                if (!visibleParameterAnnotations.isEmpty()) {
+                if (visibleParameterAnnotations != null) {
                     List<List<Annotation>> annotations = new ArrayList<>();
                     for (int index = 0; index < (visibleParameterAnnotationsCount < 0
                             ? methodTypeDesc.parameterCount()
@@ -1143,7 +1691,7 @@ public class JdkClassWriter extends ClassVisitor {
                     }
                     methodBuilder.with(RuntimeVisibleParameterAnnotationsAttribute.of(annotations));
                 }
-                if (!invisibleParameterAnnotations.isEmpty()) {
+                if (invisibleParameterAnnotations != null) {
                     List<List<Annotation>> annotations = new ArrayList<>();
                     for (int index = 0; index < (invisibleParameterAnnotationsCount < 0
                             ? methodTypeDesc.parameterCount()
@@ -1152,56 +1700,498 @@ public class JdkClassWriter extends ClassVisitor {
                     }
                     methodBuilder.with(RuntimeInvisibleParameterAnnotationsAttribute.of(annotations));
                 }
-                if (codeConsumers != null) {
+                if (code != null) {
+                    methodBuilder.with(code);
+                } else if (instructions != null) {
                     undelayInstruction();
                     methodBuilder.withCode(codeBuilder -> {
-                        codeConsumers.forEach(codeConsumer -> codeConsumer.accept(codeBuilder));
+                        replay(codeBuilder);
                         if (!stackMapFrames.isEmpty()) {
                             codeBuilder.with(StackMapTableAttribute.of(stackMapFrames));
                         }
-                        for (CodeElement attribute : codeAttributes) {
-                            codeBuilder.with(attribute);
+                        if (codeAttributes != null) {
+                            for (CodeElement attribute : codeAttributes) {
+                                codeBuilder.with(attribute);
+                            }
                         }
                     });
                 }
             }));
         }
+
+        private record LabelBinding(WritingMethodVisitor visitor, int id) {
+        }
     }
 
-    @Override
-    public void visitEnd() {
-        if (getClassFile(flags) instanceof ClassFile classFile) {
-            if (classModel == null) {
-                bytes = classFile.build(thisClass, classBuilder -> classConsumers.forEach(classConsumer -> classConsumer.accept(classBuilder)));
+    private record CodeBuffer(int[] instructions,
+                              Object[] operands,
+                              int[] lineNumbers,
+                              Map<Label, WritingMethodVisitor.LabelBinding> labelBindings,
+                              java.lang.classfile.Label[] labels) {
+
+        private boolean isRetainable() {
+            return operands.length <= CODE_BUFFER_CAPACITY && lineNumbers.length <= CODE_BUFFER_CAPACITY && instructions.length <= WritingMethodVisitor.RECORD * CODE_BUFFER_CAPACITY;
+        }
+    }
+
+    private class Pipeline {
+
+        private final BlockingQueue<Consumer<ClassBuilder>> queue = new ArrayBlockingQueue<>(PIPELINE_CAPACITY);
+        private final BlockingQueue<Runnable> requests = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        private volatile boolean waiting;
+        private boolean done;
+
+        private byte[] bytes;
+        private Throwable throwable;
+
+        private Pipeline(ClassFile classFile) {
+            thread = Thread.ofVirtual().unstarted(() -> {
+                try {
+                    bytes = build(classFile, classBuilder -> {
+                        Consumer<ClassBuilder> classConsumer;
+                        while ((classConsumer = take()) != END) {
+                            classConsumer.accept(classBuilder);
+                        }
+                    });
+                } catch (Throwable t) {
+                    throwable = t;
+                } finally {
+                    requests.add(DONE);
+                }
+            });
+            thread.start();
+        }
+
+        private Consumer<ClassBuilder> take() {
+            try {
+                Consumer<ClassBuilder> classConsumer = queue.take();
+                if (waiting) {
+                    requests.add(WAKEUP);
+                }
+                return classConsumer;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while awaiting class elements", e);
+            }
+        }
+
+        private String resolve(Function<String, String> getSuperClass, String name) {
+            if (Thread.currentThread() != thread) {
+                return getSuperClass.apply(name);
+            }
+            FutureTask<String> request = new FutureTask<>(() -> getSuperClass.apply(name));
+            requests.add(request);
+            try {
+                return request.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException exception) {
+                    throw exception;
+                } else if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while awaiting super class of " + name, e);
+            }
+        }
+
+        private void add(Consumer<ClassBuilder> classConsumer) {
+            try {
+                serve(false);
+                while (!done && !queue.offer(classConsumer)) {
+                    waiting = true;
+                    try {
+                        if (queue.offer(classConsumer)) {
+                            return;
+                        }
+                        serve(true);
+                    } finally {
+                        waiting = false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while handing off class elements", e);
+            }
+        }
+
+        private void serve(boolean await) throws InterruptedException {
+            Runnable request = await ? requests.take() : requests.poll();
+            while (request != null) {
+                if (request == DONE) {
+                    done = true;
+                    return;
+                }
+                request.run();
+                request = requests.poll();
+            }
+        }
+
+        private byte[] complete() {
+            add(END);
+            try {
+                while (!done) {
+                    serve(true);
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while awaiting class file", e);
+            }
+            join();
+            if (throwable instanceof RuntimeException exception) {
+                throw exception;
+            } else if (throwable instanceof Error error) {
+                throw error;
+            } else if (throwable != null) {
+                throw new IllegalStateException(throwable);
+            }
+            return bytes;
+        }
+
+        private void cancel() {
+            thread.interrupt();
+            join();
+        }
+
+        private void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while awaiting class file", e);
+            }
+        }
+    }
+
+    private void track(Predicate<ClassModel> unchanged) {
+        if (!modified) {
+            if (unchanged.test(classModel)) {
+                unchangedAttributes++;
             } else {
-                ConstantPoolBuilder constantPoolBuilder = ConstantPoolBuilder.of(classModel);
-                bytes = classFile.build(constantPoolBuilder.classEntry(thisClass), constantPoolBuilder, classBuilder -> classConsumers.forEach(classConsumer -> classConsumer.accept(classBuilder)));
+                modified = true;
             }
+        }
+    }
+
+    private boolean hasHeader(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        return version == (classModel.minorVersion() << 16 | classModel.majorVersion())
+                && access == (classModel.flags().flagsMask()
+                        | (classModel.findAttribute(Attributes.deprecated()).isPresent() ? Opcodes.ACC_DEPRECATED : 0)
+                        | (classModel.findAttribute(Attributes.synthetic()).isPresent() ? Opcodes.ACC_SYNTHETIC : 0)
+                        | (classModel.findAttribute(Attributes.record()).isPresent() ? Opcodes.ACC_RECORD : 0))
+                && name.equals(classModel.thisClass().asInternalName())
+                && Objects.equals(signature, classModel.findAttribute(Attributes.signature()).map(attribute -> attribute.signature().stringValue()).orElse(null))
+                && Objects.equals(superName, classModel.superclass().map(ClassEntry::asInternalName).orElse(null))
+                && Arrays.equals(interfaces == null ? new String[0] : interfaces, classModel.interfaces().stream().map(ClassEntry::asInternalName).toArray(String[]::new));
+    }
+
+    private boolean isUnchanged() {
+        if (modified || unchangedFields != classModel.fields().size() || unchangedMethods != classModel.methods().size()) {
+            return false;
+        }
+        int expectedAttributes = 0;
+        boolean source = false;
+        for (java.lang.classfile.Attribute<?> attribute : classModel.attributes()) {
+            switch (attribute) {
+                case SourceFileAttribute _, SourceDebugExtensionAttribute _ -> source = true;
+                case RuntimeVisibleAnnotationsAttribute _, RuntimeInvisibleAnnotationsAttribute _,
+                     RuntimeVisibleTypeAnnotationsAttribute _, RuntimeInvisibleTypeAnnotationsAttribute _, AsmAttribute _ when isRaw(attribute) -> expectedAttributes++;
+                case NestHostAttribute _, EnclosingMethodAttribute _, ModuleAttribute _, ModuleMainClassAttribute _, ModulePackagesAttribute _,
+                     SourceIDAttribute _, CompilationIDAttribute _, ModuleResolutionAttribute _, ModuleHashesAttribute _, UnknownAttribute _ -> expectedAttributes++;
+                case DeprecatedAttribute _, SyntheticAttribute _, SignatureAttribute _, RecordAttribute _, BootstrapMethodsAttribute _,
+                     NestMembersAttribute _, PermittedSubclassesAttribute _, InnerClassesAttribute _,
+                     RuntimeVisibleAnnotationsAttribute _, RuntimeInvisibleAnnotationsAttribute _ -> {
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        if (source) {
+            expectedAttributes++;
+        }
+        return unchangedAttributes == expectedAttributes
+                && visibleTypeAnnotations.isEmpty()
+                && invisibleTypeAnnotations.isEmpty()
+                && recordComponents.equals(classModel.findAttribute(Attributes.record())
+                        .map(RecordAttribute::components)
+                        .orElse(List.of()))
+                && nestMembers.equals(classModel.findAttribute(Attributes.nestMembers())
+                        .map(attribute -> attribute.nestMembers().stream().map(ClassEntry::asSymbol).toList())
+                        .orElse(List.of()))
+                && permittedSubclasses.equals(classModel.findAttribute(Attributes.permittedSubclasses())
+                        .map(attribute -> attribute.permittedSubclasses().stream().map(ClassEntry::asSymbol).toList())
+                        .orElse(List.of()))
+                && equalsInnerClasses(innerClasses, classModel.findAttribute(Attributes.innerClasses())
+                        .map(InnerClassesAttribute::classes)
+                        .orElse(List.of()))
+                && equalsAnnotations(visibleAnnotations, classModel.findAttribute(Attributes.runtimeVisibleAnnotations())
+                        .filter(attribute -> !isRaw(attribute))
+                        .map(RuntimeVisibleAnnotationsAttribute::annotations)
+                        .orElse(List.of()))
+                && equalsAnnotations(invisibleAnnotations, classModel.findAttribute(Attributes.runtimeInvisibleAnnotations())
+                        .filter(attribute -> !isRaw(attribute))
+                        .map(RuntimeInvisibleAnnotationsAttribute::annotations)
+                        .orElse(List.of()));
+    }
+
+    private boolean isRaw(java.lang.classfile.Attribute<?> attribute) {
+        for (ClassElement element : attributes) {
+            if (element == attribute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsInnerClasses(List<InnerClassInfo> left, List<InnerClassInfo> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int index = 0; index < left.size(); index++) {
+            InnerClassInfo leftInfo = left.get(index), rightInfo = right.get(index);
+            if (leftInfo.flagsMask() != rightInfo.flagsMask()
+                    || !leftInfo.innerClass().asInternalName().equals(rightInfo.innerClass().asInternalName())
+                    || !leftInfo.outerClass().map(ClassEntry::asInternalName).equals(rightInfo.outerClass().map(ClassEntry::asInternalName))
+                    || !leftInfo.innerName().map(Utf8Entry::stringValue).equals(rightInfo.innerName().map(Utf8Entry::stringValue))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAnnotations(List<Annotation> left, List<Annotation> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int index = 0; index < left.size(); index++) {
+            if (!equalsAnnotation(left.get(index), right.get(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAnnotation(Annotation left, Annotation right) {
+        if (!left.className().equalsString(right.className().stringValue()) || left.elements().size() != right.elements().size()) {
+            return false;
+        }
+        for (int index = 0; index < left.elements().size(); index++) {
+            AnnotationElement leftElement = left.elements().get(index), rightElement = right.elements().get(index);
+            if (!leftElement.name().equalsString(rightElement.name().stringValue()) || !equalsAnnotationValue(leftElement.value(), rightElement.value())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAnnotationValue(AnnotationValue left, AnnotationValue right) {
+        if (left == right) {
+            return true;
+        } else if (left.tag() != right.tag()) {
+            return false;
+        }
+        return switch (left) {
+            case AnnotationValue.OfConstant value -> value.resolvedValue().equals(((AnnotationValue.OfConstant) right).resolvedValue());
+            case AnnotationValue.OfClass value -> value.className().equalsString(((AnnotationValue.OfClass) right).className().stringValue());
+            case AnnotationValue.OfEnum value -> value.className().equalsString(((AnnotationValue.OfEnum) right).className().stringValue())
+                    && value.constantName().equalsString(((AnnotationValue.OfEnum) right).constantName().stringValue());
+            case AnnotationValue.OfAnnotation value -> equalsAnnotation(value.annotation(), ((AnnotationValue.OfAnnotation) right).annotation());
+            case AnnotationValue.OfArray value -> {
+                List<AnnotationValue> values = value.values(), others = ((AnnotationValue.OfArray) right).values();
+                if (values.size() != others.size()) {
+                    yield false;
+                }
+                for (int index = 0; index < values.size(); index++) {
+                    if (!equalsAnnotationValue(values.get(index), others.get(index))) {
+                        yield false;
+                    }
+                }
+                yield true;
+            }
+        };
+    }
+
+    private void addClassConsumer(Consumer<ClassBuilder> classConsumer) {
+        if (pipeline == null) {
+            classConsumers.add(classConsumer);
+        } else {
+            pipeline.add(classConsumer);
+        }
+    }
+
+    private ClassFile toClassFile() {
+        if (getClassFile(flags) instanceof ClassFile classFile) {
+            return classFile;
         } else {
             throw new IllegalStateException("Expected a JDK ClassFile instance to be returned from getClassFile(int) method");
         }
     }
 
+    private byte[] build(ClassFile classFile, Consumer<ClassBuilder> handler) {
+        if (classModel == null) {
+            return classFile.build(thisClass, handler);
+        } else {
+            ConstantPoolBuilder constantPoolBuilder = ConstantPoolBuilder.of(classModel);
+            return classFile.build(constantPoolBuilder.classEntry(thisClass), constantPoolBuilder, handler);
+        }
+    }
+
+    @Override
+    public void visitEnd() {
+        if (isUnchanged()) {
+            if (pipeline != null) {
+                pipeline.cancel();
+                pipeline = null;
+            }
+            bytes = original;
+        } else if (pipeline == null) {
+            bytes = build(toClassFile(), classBuilder -> classConsumers.forEach(classConsumer -> classConsumer.accept(classBuilder)));
+        } else {
+            pipeline.add(classConsumers.getFirst());
+            try {
+                bytes = pipeline.complete();
+            } finally {
+                pipeline = null;
+            }
+        }
+    }
+
     /**
-     * Returns an appropriate {@code ClassFile} instance. Can be overridden to return custom instances.
+     * Returns an appropriate {@code ClassFile} instance. Can be overridden to return custom instances. If this
+     * writer was created with a {@link JdkClassFileContext}, the context's instance is returned, unless this
+     * writer overrides {@link #getSuperClass(String)} or {@link #getClassLoader()}.
      *
      * @param flags {@link ClassWriter} flags.
      * @return An instance of {@code ClassFile} configured according to the given flags.
      */
     protected Object getClassFile(int flags) {
         if ((flags & ClassWriter.COMPUTE_FRAMES) == 0) {
-            return ClassFile.of(ClassFile.DeadCodeOption.KEEP_DEAD_CODE, ClassFile.StackMapsOption.DROP_STACK_MAPS);
-        } else {
-            return ClassFile.of(ClassFile.DeadCodeOption.PATCH_DEAD_CODE, ClassFile.StackMapsOption.STACK_MAPS_WHEN_REQUIRED, ClassFile.ClassHierarchyResolverOption.of(classDesc -> {
-                if (!classDesc.isClassOrInterface()) {
-                    return null;
-                } else if (classDesc.equals(ConstantDescs.CD_Object)) {
-                    return ClassHierarchyResolver.ClassHierarchyInfo.ofClass(null);
-                }
-                String descriptor = classDesc.descriptorString(), superClass = getSuperClass(descriptor.substring(1, descriptor.length()  - 1));
-                return superClass == null ? ClassHierarchyResolver.ClassHierarchyInfo.ofInterface() : ClassHierarchyResolver.ClassHierarchyInfo.ofClass(ClassDesc.ofInternalName(superClass));
-            }));
+            return JdkClassFileContext.WRITING;
+        }
+        Function<String, String> getSuperClass = context != null && !RESOLVING_SUPER_CLASS.get(getClass()) && !RESOLVING_CLASS_LOADER.get(getClass())
+                ? context.getClassHierarchy(name, superName, isInterface)
+                : this::getSuperClass;
+        return JdkClassFileContext.ofFrames((flags & PIPELINED) == 0 ? getSuperClass : name -> {
+            Pipeline pipeline = this.pipeline;
+            return pipeline == null ? getSuperClass.apply(name) : pipeline.resolve(getSuperClass, name);
+        });
+    }
+
+    private static <A> A remove(List<?> attributes, Class<A> type) {
+        if (attributes != null) {
+            for (Iterator<?> iterator = attributes.iterator(); iterator.hasNext(); ) {
+                Object attribute = iterator.next();
+                if (type.isInstance(attribute)) {
+                    iterator.remove();
+                    return type.cast(attribute);
+                }
+            }
         }
+        return null;
+    }
+
+    private static <A, T> List<T> inflate(List<?> attributes, Class<A> type, Function<A, List<T>> annotations, List<T> values) {
+        A attribute = remove(attributes, type);
+        if (attribute == null) {
+            return values;
+        } else if (values == null) {
+            values = new ArrayList<>();
+        }
+        values.addAll(0, annotations.apply(attribute));
+        return values;
+    }
+
+    private static <T> List<T> append(List<T> list, T value) {
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        list.add(value);
+        return list;
+    }
+
+    static AnnotationValue toAnnotationValue(Object asm) {
+        return switch (asm) {
+            case Boolean value -> AnnotationValue.ofBoolean(value);
+            case Byte value -> AnnotationValue.ofByte(value);
+            case Short value -> AnnotationValue.ofShort(value);
+            case Character value -> AnnotationValue.ofChar(value);
+            case Integer value -> AnnotationValue.ofInt(value);
+            case Long value -> AnnotationValue.ofLong(value);
+            case Float value -> AnnotationValue.ofFloat(value);
+            case Double value -> AnnotationValue.ofDouble(value);
+            case String value -> AnnotationValue.ofString(value);
+            case boolean[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofBoolean(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case byte[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofByte(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case short[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofShort(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case char[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofChar(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case int[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofInt(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case long[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofLong(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case float[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofFloat(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case double[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofDouble(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case String[] array -> {
+                AnnotationValue[] values = new AnnotationValue[array.length];
+                for (int index = 0; index < array.length; index++) {
+                    values[index] = AnnotationValue.ofString(array[index]);
+                }
+                yield AnnotationValue.ofArray(values);
+            }
+            case Type type -> AnnotationValue.ofClass(ClassDesc.ofDescriptor(type.getDescriptor()));
+            case null, default -> throw new IllegalArgumentException("Unknown annotation value: " + asm);
+        };
     }
 
     static ConstantDesc toConstantDesc(Object asm) {
@@ -1230,21 +2220,138 @@ public class JdkClassWriter extends ClassVisitor {
     }
 
     /**
-     * Returns the generated class file.
+     * Returns the generated class file. If this writer was created with a class reader and the visited class
+     * was passed through without any change, the reader's class file is returned as is, without being rebuilt.
+     * The returned array is then shared with the class reader, for example being the array it was created from, and
+     * must not be modified.
      *
      * @return The class file as a byte array.
      */
     public byte[] toByteArray() {
+        return toBytes();
+    }
+
+    /**
+     * Returns the size of the generated class file.
+     *
+     * @return The size of the class file in bytes.
+     */
+    public int size() {
+        return toBytes().length;
+    }
+
+    /**
+     * Writes the generated class file to an output stream.
+     *
+     * @param outputStream The output stream to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(toBytes());
+        written();
+    }
+
+    /**
+     * Writes the generated class file to a channel.
+     *
+     * @param channel The channel to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        written();
+    }
+
+    /**
+     * Writes the generated class file to a buffer at its current position.
+     *
+     * @param buffer The buffer to write the class file to, which must have {@link #size()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(toBytes());
+        written();
+    }
+
+    private byte[] toBytes() {
         if (bytes == null) {
-            throw new IllegalStateException("Did not visitEnd, and no byte array was created");
+            close();
+            throw new IllegalStateException(released
+                    ? "Class file was already written and released"
+                    : "Did not visitEnd, and no byte array was created");
         }
         return bytes;
     }
 
+    private void written() {
+        if ((flags & RELEASE_ON_WRITE) != 0) {
+            bytes = null;
+            released = true;
+        }
+    }
+
+    /**
+     * Resets this writer such that it can write another class. Any state of a previously visited class is
+     * discarded, while collections and instruction buffers are retained for reuse. A previously returned
+     * byte array is not affected. Visitors that were returned for a previous class must no longer be used.
+     * A class reader that was supplied to this writer only seeds the constant pool of the first class, such
+     * that classes that are written after a reset do not inherit the constant pool of the supplied reader.
+     */
+    public void reset() {
+        close();
+        nestMembers.clear();
+        innerClasses.clear();
+        permittedSubclasses.clear();
+        recordComponents.clear();
+        attributes.clear();
+        visibleAnnotations.clear();
+        invisibleAnnotations.clear();
+        visibleTypeAnnotations.clear();
+        invisibleTypeAnnotations.clear();
+        thisClass = null;
+        name = null;
+        superName = null;
+        isInterface = false;
+        isRecord = false;
+        classConsumers.subList(1, classConsumers.size()).clear();
+        for (WritingMethodVisitor codeVisitor : codeVisitors) {
+            CodeBuffer buffer = codeVisitor.release();
+            if (codeBuffers.size() < CODE_BUFFERS && buffer.isRetainable()) {
+                codeBuffers.add(buffer);
+            }
+        }
+        codeVisitors.clear();
+        classModel = null;
+        original = null;
+        bytes = null;
+        released = false;
+        modified = true;
+        unchangedFields = 0;
+        unchangedMethods = 0;
+        unchangedAttributes = 0;
+    }
+
+    /**
+     * Stops the builder thread of a {@link #PIPELINED} writer whose class was not visited until its end, for
+     * example because a visit was aborted or failed. A closed writer must be reset before it is used again.
+     */
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            Pipeline pipeline = this.pipeline;
+            this.pipeline = null;
+            pipeline.cancel();
+        }
+    }
+
     /**
      * Returns the super class of the class that is provided by name. The default implementation
      * resolves the super class from this instance's class' {@link ClassLoader}, unless
-     * {@link #getClassLoader()} is overridden.
+     * {@link #getClassLoader()} is overridden. If this writer was created with a {@link JdkClassFileContext},
+     * the super class is resolved by the context, unless {@link #getClassLoader()} is overridden. The class
+     * that is being written is resolved from its visited header without loading it.
      * <p>
      * This is used for generating stack map frames.
      *
@@ -1252,10 +2359,33 @@ public class JdkClassWriter extends ClassVisitor {
      * @return The name of the resolved super class.
      */
     protected String getSuperClass(String name) {
-        if (getSuperClass != null) {
+        if (name.equals(this.name)) {
+            return isInterface ? null : superName;
+        } else if (getSuperClass != null) {
             return getSuperClass.apply(name);
+        } else if (context != null && !RESOLVING_CLASS_LOADER.get(getClass())) {
+            return context.getClassHierarchy().apply(name);
         }
-        ClassLoader classLoader = getClassLoader();
+        return getSuperClass(getClassLoader(), name);
+    }
+
+    private static ClassValue<Boolean> ofOverride(String name, Class<?>... parameterTypes) {
+        return new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                for (Class<?> current = type; current != JdkClassWriter.class; current = current.getSuperclass()) {
+                    try {
+                        current.getDeclaredMethod(name, parameterTypes);
+                        return true;
+                    } catch (NoSuchMethodException ignored) {
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    static String getSuperClass(ClassLoader classLoader, String name) {
         Class<?> type;
         try {
             type = Class.forName(name.replace('/', '.'), false, classLoader);
@@ -1270,7 +2400,8 @@ public class JdkClassWriter extends ClassVisitor {
     }
 
     /**
-     * Returns the class loader to use for resolving the super class of a discovered class.
+     * Returns the class loader to use for resolving the super class of a discovered class. The default
+     * implementation returns the class loader of this writer's class.
      *
      * @return The class loader to use for resolving a super class's name.
      */
@@ -1379,82 +2510,7 @@ public class JdkClassWriter extends ClassVisitor {
 
         @Override
         public void visit(String name, Object asm) {
-            consumer.accept(name, switch (asm) {
-                case Boolean value -> AnnotationValue.ofBoolean(value);
-                case Byte value -> AnnotationValue.ofByte(value);
-                case Short value -> AnnotationValue.ofShort(value);
-                case Character value -> AnnotationValue.ofChar(value);
-                case Integer value -> AnnotationValue.ofInt(value);
-                case Long value -> AnnotationValue.ofLong(value);
-                case Float value -> AnnotationValue.ofFloat(value);
-                case Double value -> AnnotationValue.ofDouble(value);
-                case String value -> AnnotationValue.ofString(value);
-                case boolean[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofBoolean(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case byte[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofByte(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case short[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofShort(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case char[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofChar(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case int[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofInt(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case long[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofLong(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case float[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofFloat(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case double[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofDouble(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case String[] array -> {
-                    AnnotationValue[] values = new AnnotationValue[array.length];
-                    for (int index = 0; index < array.length; index++) {
-                        values[index] = AnnotationValue.ofString(array[index]);
-                    }
-                    yield AnnotationValue.ofArray(values);
-                }
-                case Type type -> AnnotationValue.ofClass(ClassDesc.ofDescriptor(type.getDescriptor()));
-                case null, default -> throw new IllegalArgumentException("Unknown annotation value: " + asm);
-            });
+            consumer.accept(name, toAnnotationValue(asm));
         }
 
         @Override
@@ -1,4 +1,5 @@
 module codes.rafael.asmjdkbridge {
     requires org.objectweb.asm;
+    requires static org.objectweb.asm.commons;
     exports codes.rafael.asmjdkbridge;
 }
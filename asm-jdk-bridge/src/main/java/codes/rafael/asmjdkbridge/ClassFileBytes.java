@@ -0,0 +1,89 @@
+package codes.rafael.asmjdkbridge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+final class ClassFileBytes {
+
+    private static final int DEFAULT_SIZE = 1024 * 8;
+
+    private ClassFileBytes() {
+        throw new UnsupportedOperationException();
+    }
+
+    static byte[] of(byte[] classFile, int offset, int length) {
+        if (offset == 0 && length == classFile.length) {
+            return classFile;
+        }
+        return Arrays.copyOfRange(classFile, offset, offset + length);
+    }
+
+    static byte[] of(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] classFile = new byte[buffer.remaining()];
+        buffer.duplicate().get(classFile);
+        return classFile;
+    }
+
+    static byte[] of(Path path) throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    static byte[] of(FileChannel channel) throws IOException {
+        long size = channel.size() - channel.position();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Class file is too large: " + size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+        }
+        return buffer.array();
+    }
+
+    static byte[] of(String className) throws IOException {
+        return of(ClassFileLocator.ForClassLoader.ofSystemLoader(), className);
+    }
+
+    static byte[] of(ClassFileLocator classFileLocator, String className) throws IOException {
+        byte[] classFile = classFileLocator.locate(className.replace('.', '/'));
+        if (classFile == null) {
+            throw new IOException("Cannot locate class file for " + className);
+        }
+        return classFile;
+    }
+
+    static byte[] of(InputStream inputStream) throws IOException {
+        return of(inputStream, DEFAULT_SIZE);
+    }
+
+    static byte[] of(InputStream inputStream, int sizeHint) throws IOException {
+        byte[] classFile = new byte[sizeHint > 0 ? sizeHint : DEFAULT_SIZE];
+        int position = 0;
+        while (true) {
+            int length = inputStream.read(classFile, position, classFile.length - position);
+            if (length == -1) {
+                break;
+            }
+            position += length;
+            if (position == classFile.length) {
+                int next = inputStream.read();
+                if (next == -1) {
+                    return classFile;
+                }
+                classFile = Arrays.copyOf(classFile, Math.max(classFile.length * 2, DEFAULT_SIZE));
+                classFile[position++] = (byte) next;
+            }
+        }
+        return position == classFile.length ? classFile : Arrays.copyOf(classFile, position);
+    }
+}
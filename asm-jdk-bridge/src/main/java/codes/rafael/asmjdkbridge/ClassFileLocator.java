@@ -0,0 +1,363 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.Opcodes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A locator for class files by their internal name. A locator might hold resources such as open jar files
+ * which are released when the locator is closed.
+ */
+public interface ClassFileLocator extends Closeable {
+
+    /**
+     * Locates the class file of a class. The returned array might be shared and must not be modified.
+     *
+     * @param name The internal name of the class.
+     * @return The class file or {@code null} if the class file cannot be located.
+     * @throws IOException If the class file cannot be read.
+     */
+    byte[] locate(String name) throws IOException;
+
+    /**
+     * Releases any resources that are held by this locator. By default, no resources are held.
+     *
+     * @throws IOException If a resource cannot be released.
+     */
+    @Override
+    default void close() throws IOException {
+        /* do nothing */
+    }
+
+    /**
+     * A class file locator that reads class files as resources from a class loader.
+     */
+    class ForClassLoader implements ClassFileLocator {
+
+        private final ClassLoader classLoader;
+
+        /**
+         * Creates a new class file locator for a class loader.
+         *
+         * @param classLoader The class loader to read class files from or {@code null} for the system loader.
+         */
+        public ForClassLoader(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        /**
+         * Creates a class file locator for the system loader.
+         *
+         * @return A class file locator for the system loader.
+         */
+        public static ClassFileLocator ofSystemLoader() {
+            return new ForClassLoader(null);
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            try (InputStream inputStream = classLoader == null
+                    ? ClassLoader.getSystemResourceAsStream(name + ".class")
+                    : classLoader.getResourceAsStream(name + ".class")) {
+                return inputStream == null ? null : ClassFileBytes.of(inputStream);
+            }
+        }
+    }
+
+    /**
+     * A class file locator that reads class files from a folder that represents the root package.
+     */
+    class ForFolder implements ClassFileLocator {
+
+        private final Path folder;
+
+        /**
+         * Creates a new class file locator for a folder.
+         *
+         * @param folder The folder that represents the root package.
+         */
+        public ForFolder(Path folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            Path file = folder.resolve(name + ".class");
+            return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+        }
+    }
+
+    /**
+     * A class file locator that reads class files from a jar file which is kept open until the locator is closed.
+     */
+    class ForJarFile implements ClassFileLocator {
+
+        private final ZipFile zipFile;
+
+        /**
+         * Creates a new class file locator for a jar file.
+         *
+         * @param zipFile The jar file to read class files from.
+         */
+        public ForJarFile(ZipFile zipFile) {
+            this.zipFile = zipFile;
+        }
+
+        /**
+         * Opens a jar file and creates a class file locator for it.
+         *
+         * @param jar The path of the jar file.
+         * @return A class file locator for the jar file.
+         * @throws IOException If the jar file cannot be opened.
+         */
+        public static ClassFileLocator of(Path jar) throws IOException {
+            return new ForJarFile(new ZipFile(jar.toFile()));
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            ZipEntry entry = zipFile.getEntry(name + ".class");
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                return ClassFileBytes.of(inputStream, (int) entry.getSize());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * A class file locator that reads class files of the current JVM's modules from the {@code jrt:/} file system.
+     */
+    class ForJrtFileSystem implements ClassFileLocator {
+
+        private final FileSystem fileSystem;
+
+        private final ConcurrentMap<String, List<Path>> modules = new ConcurrentHashMap<>();
+
+        /**
+         * Creates a new class file locator for a {@code jrt:/} file system.
+         *
+         * @param fileSystem The {@code jrt:/} file system.
+         */
+        public ForJrtFileSystem(FileSystem fileSystem) {
+            this.fileSystem = fileSystem;
+        }
+
+        /**
+         * Creates a class file locator for the current JVM's {@code jrt:/} file system.
+         *
+         * @return A class file locator for the current JVM's {@code jrt:/} file system.
+         * @throws IOException If the current JVM does not provide a {@code jrt:/} file system.
+         */
+        public static ClassFileLocator ofCurrentJvm() throws IOException {
+            try {
+                return new ForJrtFileSystem(FileSystems.getFileSystem(URI.create("jrt:/")));
+            } catch (RuntimeException e) {
+                throw new IOException("The current JVM does not provide a jrt file system", e);
+            }
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            int index = name.lastIndexOf('/');
+            if (index == -1) {
+                return null;
+            }
+            String packageName = name.substring(0, index).replace('/', '.');
+            List<Path> roots = modules.get(packageName);
+            if (roots == null) {
+                roots = new ArrayList<>(1);
+                Path packages = fileSystem.getPath("/packages", packageName);
+                if (Files.isDirectory(packages)) {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(packages)) {
+                        for (Path module : stream) {
+                            roots.add(fileSystem.getPath("/modules", module.getFileName().toString()));
+                        }
+                    }
+                }
+                List<Path> previous = modules.putIfAbsent(packageName, roots);
+                if (previous != null) {
+                    roots = previous;
+                }
+            }
+            for (Path root : roots) {
+                Path file = root.resolve(name + ".class");
+                if (Files.isRegularFile(file)) {
+                    return Files.readAllBytes(file);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A class file locator that queries several locators in their order and returns the first located class file.
+     */
+    class Compound implements ClassFileLocator {
+
+        private final List<ClassFileLocator> classFileLocators;
+
+        /**
+         * Creates a new compound class file locator.
+         *
+         * @param classFileLocator The class file locators to query.
+         */
+        public Compound(ClassFileLocator... classFileLocator) {
+            this(Arrays.asList(classFileLocator));
+        }
+
+        /**
+         * Creates a new compound class file locator.
+         *
+         * @param classFileLocators The class file locators to query.
+         */
+        public Compound(List<? extends ClassFileLocator> classFileLocators) {
+            this.classFileLocators = Collections.unmodifiableList(new ArrayList<>(classFileLocators));
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            for (ClassFileLocator classFileLocator : classFileLocators) {
+                byte[] classFile = classFileLocator.locate(name);
+                if (classFile != null) {
+                    return classFile;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+            for (ClassFileLocator classFileLocator : classFileLocators) {
+                try {
+                    classFileLocator.close();
+                } catch (IOException e) {
+                    if (exception == null) {
+                        exception = e;
+                    } else {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * A class file locator that retains the most recently located class files of another locator. Class files
+     * that cannot be located are retained as well.
+     */
+    class Cached implements ClassFileLocator {
+
+        private static final byte[] MISSING = new byte[0];
+
+        private final ClassFileLocator classFileLocator;
+
+        private final Map<String, byte[]> classFiles;
+
+        /**
+         * Creates a new caching class file locator.
+         *
+         * @param classFileLocator The class file locator to query for class files that are not yet retained.
+         * @param maximumSize      The maximum number of class files to retain.
+         */
+        public Cached(ClassFileLocator classFileLocator, int maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("Cache must retain at least one class file: " + maximumSize);
+            }
+            this.classFileLocator = classFileLocator;
+            classFiles = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        @Override
+        public byte[] locate(String name) throws IOException {
+            byte[] classFile;
+            synchronized (classFiles) {
+                classFile = classFiles.get(name);
+            }
+            if (classFile == null) {
+                classFile = classFileLocator.locate(name);
+                synchronized (classFiles) {
+                    classFiles.put(name, classFile == null ? MISSING : classFile);
+                }
+            }
+            return classFile == MISSING ? null : classFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (classFiles) {
+                classFiles.clear();
+            }
+            classFileLocator.close();
+        }
+    }
+
+    /**
+     * A resolver for the internal super class name of a class that reads the class file header of a class as
+     * it is located by a class file locator. For an interface, {@code null} is returned. This resolver can be
+     * supplied to the constructors of the class readers and writers that accept a resolver for super classes.
+     */
+    class SuperClassResolver implements Function<String, String> {
+
+        private final ClassFileLocator classFileLocator;
+
+        /**
+         * Creates a new resolver for super classes.
+         *
+         * @param classFileLocator The class file locator to use.
+         */
+        public SuperClassResolver(ClassFileLocator classFileLocator) {
+            this.classFileLocator = classFileLocator;
+        }
+
+        @Override
+        public String apply(String name) {
+            byte[] classFile;
+            try {
+                classFile = classFileLocator.locate(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (classFile == null) {
+                throw new TypeNotPresentException(name.replace('/', '.'), null);
+            }
+            ClassHeader header = new ClassHeader(classFile);
+            return (header.getAccess() & Opcodes.ACC_INTERFACE) == 0 ? header.getSuperName() : null;
+        }
+    }
+}
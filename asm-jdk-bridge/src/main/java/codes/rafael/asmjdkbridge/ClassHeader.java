@@ -0,0 +1,144 @@
+package codes.rafael.asmjdkbridge;
+
+/**
+ * A view on the header of a class file that only decodes the constant pool entries that are referenced by the
+ * {@code this_class}, {@code super_class} and {@code interfaces} fields. Decoded values are cached.
+ */
+final class ClassHeader {
+
+    private static final String[] NO_INTERFACES = new String[0];
+
+    private final byte[] classFile;
+    private final int[] offsets;
+    private final int header;
+
+    private String className, superName;
+    private volatile String[] interfaces;
+
+    ClassHeader(byte[] classFile) {
+        if (classFile.length < 10 || readInt(classFile, 0) != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        this.classFile = classFile;
+        offsets = new int[readUnsignedShort(classFile, 8)];
+        int offset = 10;
+        for (int index = 1; index < offsets.length; index++) {
+            offsets[index] = offset;
+            int tag = classFile[offset];
+            switch (tag) {
+                case 1:
+                    offset += 3 + readUnsignedShort(classFile, offset + 1);
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    offset += 3;
+                    break;
+                case 15:
+                    offset += 4;
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    offset += 5;
+                    break;
+                case 5:
+                case 6:
+                    offset += 9;
+                    index++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected constant pool tag: " + tag);
+            }
+        }
+        header = offset;
+    }
+
+    int getMajorVersion() {
+        return readUnsignedShort(classFile, 6);
+    }
+
+    int getAccess() {
+        return readUnsignedShort(classFile, header);
+    }
+
+    String getClassName() {
+        String className = this.className;
+        if (className == null) {
+            className = toClassName(readUnsignedShort(classFile, header + 2));
+            this.className = className;
+        }
+        return className;
+    }
+
+    String getSuperName() {
+        String superName = this.superName;
+        if (superName == null) {
+            int index = readUnsignedShort(classFile, header + 4);
+            if (index == 0) {
+                return null;
+            }
+            superName = toClassName(index);
+            this.superName = superName;
+        }
+        return superName;
+    }
+
+    String[] getInterfaces() {
+        String[] interfaces = this.interfaces;
+        if (interfaces == null) {
+            int count = readUnsignedShort(classFile, header + 6);
+            if (count == 0) {
+                interfaces = NO_INTERFACES;
+            } else {
+                interfaces = new String[count];
+                for (int index = 0; index < count; index++) {
+                    interfaces[index] = toClassName(readUnsignedShort(classFile, header + 8 + 2 * index));
+                }
+            }
+            this.interfaces = interfaces;
+        }
+        return interfaces;
+    }
+
+    private String toClassName(int index) {
+        return toUtf8(readUnsignedShort(classFile, offsets[index] + 1));
+    }
+
+    private String toUtf8(int index) {
+        int offset = offsets[index], length = readUnsignedShort(classFile, offset + 1);
+        char[] chars = new char[length];
+        int position = offset + 3, end = position + length, count = 0;
+        while (position < end) {
+            int current = classFile[position++];
+            if ((current & 0x80) == 0) {
+                chars[count++] = (char) (current & 0x7F);
+            } else if ((current & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((current & 0x1F) << 6) + (classFile[position++] & 0x3F));
+            } else {
+                chars[count++] = (char) (((current & 0xF) << 12)
+                        + ((classFile[position++] & 0x3F) << 6)
+                        + (classFile[position++] & 0x3F));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int readUnsignedShort(byte[] classFile, int offset) {
+        return ((classFile[offset] & 0xFF) << 8) | (classFile[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] classFile, int offset) {
+        return ((classFile[offset] & 0xFF) << 24)
+                | ((classFile[offset + 1] & 0xFF) << 16)
+                | ((classFile[offset + 2] & 0xFF) << 8)
+                | (classFile[offset + 3] & 0xFF);
+    }
+}
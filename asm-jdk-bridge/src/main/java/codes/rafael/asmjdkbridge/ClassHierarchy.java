@@ -0,0 +1,371 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache of a class hierarchy that memoizes the super class and interface property of every type
+ * it resolves, including types that cannot be resolved. A class hierarchy can be shared among any number of class
+ * writers to avoid resolving the same types repeatedly when computing stack map frames. As a function, a class
+ * hierarchy returns the internal super class name of a class or {@code null} for an interface. Types that do not
+ * yet exist, such as classes that are generated in the same batch, can be registered explicitly. Class writers
+ * that resolve super classes through a class hierarchy resolve the class they are writing from its visited header,
+ * but do not register it.
+ */
+public class ClassHierarchy implements Function<String, String> {
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final String[] ROOT_ANCESTORS = new String[]{OBJECT};
+
+    private static final Node ROOT = new Node(null, false), MISSING = new Node(null, false);
+
+    private final Function<String, String> getSuperClass;
+
+    private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger version = new AtomicInteger();
+
+    /**
+     * Creates a new class hierarchy.
+     *
+     * @param getSuperClass A resolver for the supplied internal class name's internal super class name. If
+     *                      a class is an interface, {@code null} should be returned. If a class cannot be
+     *                      resolved, a {@link TypeNotPresentException} should be thrown.
+     */
+    public ClassHierarchy(Function<String, String> getSuperClass) {
+        this.getSuperClass = getSuperClass;
+    }
+
+    /**
+     * Creates a class hierarchy that resolves types by loading them from a class loader without initializing them.
+     *
+     * @param classLoader The class loader to load types from or {@code null} for the bootstrap loader.
+     * @return A class hierarchy for the supplied class loader.
+     */
+    public static ClassHierarchy ofClassLoader(ClassLoader classLoader) {
+        return new ClassHierarchy(name -> {
+            Class<?> type;
+            try {
+                type = Class.forName(name.replace('/', '.'), false, classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new TypeNotPresentException(name.replace('/', '.'), e);
+            }
+            return type.isInterface() ? null : Type.getInternalName(type.getSuperclass());
+        });
+    }
+
+    /**
+     * Creates a class hierarchy that resolves types by reading the header of their class files without loading them.
+     *
+     * @param classFileLocator The class file locator to locate class files with.
+     * @return A class hierarchy for the supplied class file locator.
+     */
+    public static ClassHierarchy ofClassFileLocator(ClassFileLocator classFileLocator) {
+        return new ClassHierarchy(new ClassFileLocator.SuperClassResolver(classFileLocator));
+    }
+
+    /**
+     * Returns a class hierarchy for a resolver of super classes. If the resolver is already a class hierarchy,
+     * it is returned as is.
+     *
+     * @param getSuperClass A resolver for the supplied internal class name's internal super class name or {@code null}.
+     * @return A class hierarchy for the supplied resolver or {@code null} if the resolver is {@code null}.
+     */
+    public static ClassHierarchy of(Function<String, String> getSuperClass) {
+        if (getSuperClass == null || getSuperClass instanceof ClassHierarchy) {
+            return (ClassHierarchy) getSuperClass;
+        }
+        return new ClassHierarchy(getSuperClass);
+    }
+
+    static ClassHierarchy ofMethod(Method getSuperClass, Object target) {
+        if (getSuperClass == null) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(getSuperClass);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + getSuperClass, e);
+        }
+        if (!Modifier.isStatic(getSuperClass.getModifiers())) {
+            handle = handle.bindTo(target);
+        }
+        MethodHandle adapted = handle.asType(MethodType.methodType(String.class, String.class));
+        return new ClassHierarchy(name -> {
+            try {
+                return (String) adapted.invokeExact(name);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        });
+    }
+
+    /**
+     * Registers a type with this class hierarchy, replacing any previously resolved information, including the
+     * information that a type could not be resolved. If a registration alters a previously resolved type, the
+     * memoized ancestors of all types are discarded.
+     *
+     * @param name        The internal name of the type.
+     * @param superName   The internal name of the type's super class.
+     * @param isInterface {@code true} if the type is an interface.
+     */
+    public void register(String name, String superName, boolean isInterface) {
+        if (name.equals(OBJECT)) {
+            return;
+        }
+        Node node = new Node(isInterface ? null : superName, isInterface || superName == null);
+        boolean[] altered = new boolean[1];
+        nodes.compute(name, (ignored, previous) -> {
+            if (previous == null || previous == MISSING) {
+                return node;
+            } else if (previous.isInterface == node.isInterface && Objects.equals(previous.superClass, node.superClass)) {
+                return previous;
+            }
+            altered[0] = true;
+            return node;
+        });
+        if (altered[0]) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registers the type that is represented by a class file with this class hierarchy.
+     *
+     * @param classFile The class file of the type.
+     */
+    public void register(byte[] classFile) {
+        ClassHeader header = new ClassHeader(classFile);
+        register(header.getClassName(), header.getSuperName(), (header.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+    }
+
+    /**
+     * Returns the internal super class name of a class.
+     *
+     * @param name The internal name of the class.
+     * @return The internal name of the super class or {@code null} if the class is an interface or {@code java.lang.Object}.
+     */
+    @Override
+    public String apply(String name) {
+        return node(name).superClass;
+    }
+
+    /**
+     * Checks if a type is an interface.
+     *
+     * @param name The internal name of the type.
+     * @return {@code true} if the type is an interface.
+     */
+    public boolean isInterface(String name) {
+        return node(name).isInterface;
+    }
+
+    /**
+     * Returns the internal name of the most specific common super class of two types. If either type is an
+     * interface, {@code java.lang.Object} is returned.
+     *
+     * @param left  The internal name of the first type.
+     * @param right The internal name of the second type.
+     * @return The internal name of the most specific common super class.
+     */
+    public String getCommonSuperClass(String left, String right) {
+        if (left.equals(right)) {
+            return left;
+        }
+        Node leftNode = node(left), rightNode = node(right);
+        if (leftNode.isInterface || rightNode.isInterface) {
+            return OBJECT;
+        }
+        String[] leftAncestors = ancestors(left, leftNode), rightAncestors = ancestors(right, rightNode);
+        int index = 0, limit = Math.min(leftAncestors.length, rightAncestors.length);
+        while (index < limit && leftAncestors[index].equals(rightAncestors[index])) {
+            index++;
+        }
+        return index == 0 ? OBJECT : leftAncestors[index - 1];
+    }
+
+    /**
+     * Returns a view of this class hierarchy in which the supplied type is resolved from the supplied information,
+     * without registering the type with this class hierarchy. Any other type is resolved and memoized by this
+     * class hierarchy.
+     *
+     * @param name        The internal name of the type.
+     * @param superName   The internal name of the type's super class.
+     * @param isInterface {@code true} if the type is an interface.
+     * @return A view of this class hierarchy that resolves the supplied type.
+     */
+    ClassHierarchy local(String name, String superName, boolean isInterface) {
+        return name.equals(OBJECT) ? this : new Local(this, name, new Node(isInterface ? null : superName, isInterface || superName == null));
+    }
+
+    int version() {
+        return version.get();
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    boolean isLocal(Node node) {
+        return false;
+    }
+
+    Node node(String name) {
+        if (name.equals(OBJECT)) {
+            return ROOT;
+        }
+        Node node = nodes.get(name);
+        if (node == null) {
+            try {
+                String superClass = getSuperClass.apply(name);
+                node = new Node(superClass, superClass == null);
+            } catch (TypeNotPresentException e) {
+                node = MISSING;
+            }
+            Node previous = nodes.putIfAbsent(name, node);
+            if (previous != null) {
+                node = previous;
+            }
+        }
+        if (node == MISSING) {
+            throw new TypeNotPresentException(name.replace('/', '.'), null);
+        }
+        return node;
+    }
+
+    private String[] ancestors(String name, Node node) {
+        int version = version();
+        String[] ancestors = node.ancestors(version);
+        if (ancestors != null) {
+            return ancestors;
+        }
+        List<String> names = new ArrayList<>();
+        List<Node> chain = new ArrayList<>();
+        String current = name;
+        Node currentNode = node;
+        while ((ancestors = currentNode.ancestors(version)) == null) {
+            names.add(current);
+            chain.add(currentNode);
+            current = currentNode.superClass;
+            currentNode = node(current);
+            if (currentNode.isInterface) {
+                throw new IllegalStateException("Interface " + current + " declared as super class of " + names.get(names.size() - 1));
+            } else if (chain.size() > size() + 1) {
+                throw new IllegalStateException("Circular class hierarchy for " + name);
+            }
+        }
+        boolean local = isLocal(currentNode);
+        for (int index = chain.size() - 1; index >= 0; index--) {
+            String[] extended = new String[ancestors.length + 1];
+            System.arraycopy(ancestors, 0, extended, 0, ancestors.length);
+            extended[ancestors.length] = names.get(index);
+            ancestors = extended;
+            local |= isLocal(chain.get(index));
+            if (!local || isLocal(chain.get(index))) { // Shared subtypes of a local type are not memoized.
+                chain.get(index).memoize(version, ancestors);
+            }
+        }
+        return ancestors;
+    }
+
+    static class Node {
+
+        private final String superClass;
+
+        private final boolean isInterface;
+
+        private volatile Memo memo;
+
+        private Node(String superClass, boolean isInterface) {
+            this.superClass = superClass;
+            this.isInterface = isInterface;
+        }
+
+        private String[] ancestors(int version) {
+            if (this == ROOT) {
+                return ROOT_ANCESTORS;
+            }
+            Memo memo = this.memo;
+            return memo == null || memo.version != version ? null : memo.ancestors;
+        }
+
+        private void memoize(int version, String[] ancestors) {
+            memo = new Memo(version, ancestors);
+        }
+    }
+
+    private static class Memo {
+
+        private final int version;
+
+        private final String[] ancestors;
+
+        private Memo(int version, String[] ancestors) {
+            this.version = version;
+            this.ancestors = ancestors;
+        }
+    }
+
+    private static class Local extends ClassHierarchy {
+
+        private final ClassHierarchy delegate;
+
+        private final String name;
+
+        private final Node node;
+
+        private Local(ClassHierarchy delegate, String name, Node node) {
+            super(delegate.getSuperClass);
+            this.delegate = delegate;
+            this.name = name;
+            this.node = node;
+        }
+
+        @Override
+        public void register(String name, String superName, boolean isInterface) {
+            delegate.register(name, superName, isInterface);
+        }
+
+        @Override
+        ClassHierarchy local(String name, String superName, boolean isInterface) {
+            return delegate.local(name, superName, isInterface);
+        }
+
+        @Override
+        int version() {
+            return delegate.version();
+        }
+
+        @Override
+        int size() {
+            return delegate.size() + 1;
+        }
+
+        @Override
+        boolean isLocal(Node node) {
+            return node == this.node;
+        }
+
+        @Override
+        Node node(String name) {
+            return name.equals(this.name) ? node : delegate.node(name);
+        }
+    }
+}
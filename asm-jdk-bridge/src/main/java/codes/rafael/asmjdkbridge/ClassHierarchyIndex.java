@@ -0,0 +1,382 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A precomputed index of internal class names to their internal super class name and interface property. The
+ * index is stored as a sorted table of strings that is binary-searched in place, such that a memory-mapped index
+ * file does not need to be deserialized. As a function, an index returns the internal super class name of a class
+ * or {@code null} for an interface, and throws a {@link TypeNotPresentException} for classes that are not indexed.
+ * An index can therefore be supplied as a resolver of super classes to class writers or to a {@link ClassHierarchy}.
+ * <p>
+ * An index file is created by {@link Builder} or by running this class with the index file as its first argument
+ * and any number of folders, jar files or {@code jrt:/} for the current JVM's modules as further arguments.
+ */
+public class ClassHierarchyIndex implements Function<String, String> {
+
+    private static final int MAGIC = 0x43484958, VERSION = 1, HEADER = 12;
+
+    private static final int INTERFACE = 1;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    /**
+     * Creates an index of a buffer that contains an index file.
+     *
+     * @param buffer The buffer that contains the index file, starting at its position.
+     */
+    public ClassHierarchyIndex(ByteBuffer buffer) {
+        ByteBuffer duplicate = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if (duplicate.remaining() < HEADER || duplicate.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a class hierarchy index");
+        } else if (duplicate.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported class hierarchy index version: " + duplicate.getInt(4));
+        }
+        this.buffer = duplicate;
+        size = duplicate.getInt(8);
+    }
+
+    /**
+     * Maps an index file into memory.
+     *
+     * @param file The index file.
+     * @return An index of the supplied file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static ClassHierarchyIndex of(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ClassHierarchyIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the number of indexed classes.
+     *
+     * @return The number of indexed classes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if a class is indexed.
+     *
+     * @param name The internal name of the class.
+     * @return {@code true} if the class is indexed.
+     */
+    public boolean contains(String name) {
+        return find(name.getBytes(StandardCharsets.UTF_8)) != -1;
+    }
+
+    /**
+     * Returns the internal super class name of an indexed class.
+     *
+     * @param name The internal name of the class.
+     * @return The internal name of the super class or {@code null} if the class is an interface or {@code java.lang.Object}.
+     * @throws TypeNotPresentException If the class is not indexed.
+     */
+    @Override
+    public String apply(String name) {
+        int offset = find(name.getBytes(StandardCharsets.UTF_8));
+        if (offset == -1) {
+            throw new TypeNotPresentException(name.replace('/', '.'), null);
+        }
+        return superName(offset);
+    }
+
+    /**
+     * Returns a resolver of super classes that queries this index first and the supplied resolver for classes
+     * that are not indexed.
+     *
+     * @param getSuperClass The resolver for classes that are not indexed.
+     * @return A resolver of super classes.
+     */
+    public Function<String, String> orElse(Function<String, String> getSuperClass) {
+        return name -> {
+            int offset = find(name.getBytes(StandardCharsets.UTF_8));
+            return offset == -1 ? getSuperClass.apply(name) : superName(offset);
+        };
+    }
+
+    private String superName(int offset) {
+        offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        if ((buffer.get(offset) & INTERFACE) != 0) {
+            return null;
+        }
+        int length = buffer.getShort(offset + 1) & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] superName = new byte[length];
+        for (int index = 0; index < length; index++) {
+            superName[index] = buffer.get(offset + 3 + index);
+        }
+        return new String(superName, StandardCharsets.UTF_8);
+    }
+
+    private int find(byte[] name) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1, offset = buffer.getInt(HEADER + middle * 4), comparison = compare(name, offset);
+            if (comparison < 0) {
+                high = middle - 1;
+            } else if (comparison > 0) {
+                low = middle + 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(byte[] name, int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF, limit = Math.min(name.length, length);
+        for (int index = 0; index < limit; index++) {
+            int comparison = (name[index] & 0xFF) - (buffer.get(offset + 2 + index) & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return name.length - length;
+    }
+
+    /**
+     * Creates an index file from the class files of folders, jar files or the current JVM's modules.
+     *
+     * @param args The index file to create, followed by folders, jar files or {@code jrt:/} for the current JVM's modules.
+     * @throws IOException If a source cannot be read or the index file cannot be written.
+     * @throws IllegalArgumentException If no index file or no source is supplied.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ClassHierarchyIndex <index file> (<folder> | <jar file> | jrt:/)...");
+        }
+        Builder builder = new Builder();
+        for (int index = 1; index < args.length; index++) {
+            if (args[index].equals("jrt:/")) {
+                builder.addCurrentJvm();
+            } else {
+                Path source = Paths.get(args[index]);
+                if (Files.isDirectory(source)) {
+                    builder.addFolder(source);
+                } else {
+                    builder.addJarFile(source);
+                }
+            }
+        }
+        builder.write(Paths.get(args[0]));
+    }
+
+    /**
+     * A builder for an index file. If a class is added more than once, the first addition is retained.
+     */
+    public static class Builder {
+
+        private final Map<String, Entry> entries = new TreeMap<>(Builder::compare);
+
+        /**
+         * Adds a class to the index.
+         *
+         * @param name        The internal name of the class.
+         * @param superName   The internal name of the class's super class or {@code null} if no super class exists.
+         * @param isInterface {@code true} if the class is an interface.
+         * @return This builder.
+         */
+        public Builder add(String name, String superName, boolean isInterface) {
+            entries.putIfAbsent(name, new Entry(superName, isInterface));
+            return this;
+        }
+
+        /**
+         * Adds the class that is represented by a class file to the index.
+         *
+         * @param classFile The class file to add.
+         * @return This builder.
+         */
+        public Builder add(byte[] classFile) {
+            ClassHeader header = new ClassHeader(classFile);
+            return add(header.getClassName(), header.getSuperName(), (header.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        }
+
+        /**
+         * Adds all classes of a folder that represents the root package to the index.
+         *
+         * @param folder The folder to add.
+         * @return This builder.
+         * @throws IOException If a class file cannot be read.
+         */
+        public Builder addFolder(Path folder) throws IOException {
+            try (Stream<Path> files = Files.walk(folder)) {
+                files.filter(file -> isClassFile(file.toString()) && Files.isRegularFile(file)).forEach(file -> {
+                    try {
+                        add(Files.readAllBytes(file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return this;
+        }
+
+        /**
+         * Adds all classes of a jar file to the index. Versioned entries of multi-release jar files are not added.
+         *
+         * @param jar The jar file to add.
+         * @return This builder.
+         * @throws IOException If a class file cannot be read.
+         */
+        public Builder addJarFile(Path jar) throws IOException {
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+                while (enumeration.hasMoreElements()) {
+                    ZipEntry entry = enumeration.nextElement();
+                    if (!entry.isDirectory() && !entry.getName().startsWith("META-INF/") && isClassFile(entry.getName())) {
+                        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                            add(ClassFileBytes.of(inputStream, (int) entry.getSize()));
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds all classes of the current JVM's modules, as found in the {@code jrt:/} file system, to the index.
+         *
+         * @return This builder.
+         * @throws IOException If the current JVM does not provide a {@code jrt:/} file system or a class file cannot be read.
+         */
+        public Builder addCurrentJvm() throws IOException {
+            Path modules;
+            try {
+                modules = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+            } catch (RuntimeException e) {
+                throw new IOException("The current JVM does not provide a jrt file system", e);
+            }
+            try (DirectoryStream<Path> folders = Files.newDirectoryStream(modules)) {
+                for (Path folder : folders) {
+                    addFolder(folder);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Creates the index file.
+         *
+         * @return A buffer that contains the index file.
+         */
+        public ByteBuffer toByteBuffer() {
+            byte[][] names = new byte[entries.size()][], superNames = new byte[entries.size()][];
+            boolean[] interfaces = new boolean[entries.size()];
+            int index = 0, length = HEADER + entries.size() * 4;
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                names[index] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                superNames[index] = entry.getValue().superName == null
+                        ? new byte[0]
+                        : entry.getValue().superName.getBytes(StandardCharsets.UTF_8);
+                interfaces[index] = entry.getValue().isInterface;
+                if (names[index].length > 0xFFFF || superNames[index].length > 0xFFFF) {
+                    throw new IllegalStateException("Class name exceeds maximum length: " + entry.getKey());
+                }
+                length += 5 + names[index].length + superNames[index].length;
+                index++;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(names.length);
+            int offset = HEADER + names.length * 4;
+            for (index = 0; index < names.length; index++) {
+                buffer.putInt(offset);
+                offset += 5 + names[index].length + superNames[index].length;
+            }
+            for (index = 0; index < names.length; index++) {
+                buffer.putShort((short) names[index].length).put(names[index]);
+                buffer.put((byte) (interfaces[index] ? INTERFACE : 0));
+                buffer.putShort((short) superNames[index].length).put(superNames[index]);
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * Creates the index file and writes it to a file.
+         *
+         * @param file The file to write the index to.
+         * @throws IOException If the file cannot be written.
+         */
+        public void write(Path file) throws IOException {
+            ByteBuffer buffer = toByteBuffer();
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        /**
+         * Creates an index of the classes that were added to this builder.
+         *
+         * @return An index of the added classes.
+         */
+        public ClassHierarchyIndex build() {
+            return new ClassHierarchyIndex(toByteBuffer());
+        }
+
+        private static boolean isClassFile(String name) {
+            return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+        }
+
+        private static int compare(String left, String right) {
+            byte[] leftBytes = left.getBytes(StandardCharsets.UTF_8), rightBytes = right.getBytes(StandardCharsets.UTF_8);
+            int limit = Math.min(leftBytes.length, rightBytes.length);
+            for (int index = 0; index < limit; index++) {
+                int comparison = (leftBytes[index] & 0xFF) - (rightBytes[index] & 0xFF);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return leftBytes.length - rightBytes.length;
+        }
+
+        private static class Entry {
+
+            private final String superName;
+
+            private final boolean isInterface;
+
+            private Entry(String superName, boolean isInterface) {
+                this.superName = superName;
+                this.isInterface = isInterface;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+class CodeLog extends MethodVisitor {
+
+    static final CodeLog NONE = new CodeLog(null, Collections.emptyList(), null, false);
+
+    private final List<Object> events;
+
+    private final Map<Label, Integer> labels = new IdentityHashMap<>();
+
+    private final CodeLog recording;
+
+    private boolean comparable;
+
+    private int position;
+
+    CodeLog(MethodVisitor methodVisitor) {
+        this(methodVisitor, new ArrayList<>(), null, true);
+    }
+
+    private CodeLog(MethodVisitor methodVisitor, List<Object> events, CodeLog recording, boolean comparable) {
+        super(Opcodes.ASM9, methodVisitor);
+        this.events = events;
+        this.recording = recording;
+        this.comparable = comparable;
+    }
+
+    CodeLog toExpectation() { // Events are compared against the recorded events as they arrive, while they are still recorded.
+        return new CodeLog(null, events, this, comparable);
+    }
+
+    boolean matches() {
+        return comparable && recording != null && recording.comparable && position == events.size();
+    }
+
+    private void add(int event, Object... values) {
+        if (!comparable) {
+            return;
+        } else if (recording == null) {
+            events.add(event);
+            for (Object value : values) {
+                events.add(normalize(value));
+            }
+        } else if (recording.comparable && position + values.length < events.size() && events.get(position++).equals(event)) {
+            for (Object value : values) {
+                if (!Objects.equals(events.get(position++), normalize(value))) {
+                    reject();
+                    return;
+                }
+            }
+        } else {
+            reject();
+        }
+    }
+
+    private void reject() {
+        if (comparable) {
+            comparable = false;
+            if (recording == null) {
+                events.clear();
+            }
+        }
+    }
+
+    private Object normalize(Object value) {
+        if (value instanceof Label) {
+            Integer id = labels.get(value);
+            if (id == null) {
+                id = labels.size();
+                labels.put((Label) value, id);
+            }
+            return id;
+        } else if (value instanceof Object[]) {
+            List<Object> values = new ArrayList<>();
+            for (Object element : (Object[]) value) {
+                values.add(normalize(element));
+            }
+            return values;
+        } else if (value instanceof int[]) {
+            List<Object> values = new ArrayList<>();
+            for (int element : (int[]) value) {
+                values.add(element);
+            }
+            return values;
+        } else {
+            return value;
+        }
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+        if (attribute.isCodeAttribute()) {
+            add(0, attribute);
+        }
+        super.visitAttribute(attribute);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+        add(1, opcode);
+        super.visitInsn(opcode);
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+        add(2, opcode, operand);
+        super.visitIntInsn(opcode, operand);
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int varIndex) {
+        add(3, opcode, varIndex);
+        super.visitVarInsn(opcode, varIndex);
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+        add(4, opcode, type);
+        super.visitTypeInsn(opcode, type);
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+        add(5, opcode, owner, name, descriptor);
+        super.visitFieldInsn(opcode, owner, name, descriptor);
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        add(6, opcode, owner, name, descriptor, isInterface);
+        super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+        add(7, name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+        add(8, opcode, label);
+        super.visitJumpInsn(opcode, label);
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+        add(9, label);
+        super.visitLabel(label);
+    }
+
+    @Override
+    public void visitLdcInsn(Object value) {
+        add(10, value);
+        super.visitLdcInsn(value);
+    }
+
+    @Override
+    public void visitIincInsn(int varIndex, int increment) {
+        add(11, varIndex, increment);
+        super.visitIincInsn(varIndex, increment);
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        add(12, min, max, dflt, labels);
+        super.visitTableSwitchInsn(min, max, dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        add(13, dflt, keys, labels);
+        super.visitLookupSwitchInsn(dflt, keys, labels);
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+        add(14, descriptor, numDimensions);
+        super.visitMultiANewArrayInsn(descriptor, numDimensions);
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+        add(15, start, end, handler, type);
+        super.visitTryCatchBlock(start, end, handler, type);
+    }
+
+    @Override
+    public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+        add(16, name, descriptor, signature, start, end, index);
+        super.visitLocalVariable(name, descriptor, signature, start, end, index);
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+        add(17, line, start);
+        super.visitLineNumber(line, start);
+    }
+
+    @Override
+    public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        reject(); // Annotation values are not recorded, such that code with type annotations is never considered equal.
+        return super.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        reject();
+        return super.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] index, String descriptor, boolean visible) {
+        reject();
+        return super.visitLocalVariableAnnotation(typeRef, typePath, start, end, index, descriptor, visible);
+    }
+}
@@ -0,0 +1,33 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class FilteringClassVisitor extends ClassVisitor {
+
+    private static final int CLASS_FILE_FLAGS = 0xFFFF;
+
+    private final MemberPredicate fieldPredicate, methodPredicate;
+
+    FilteringClassVisitor(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate) {
+        super(Opcodes.ASM9, classVisitor);
+        this.fieldPredicate = fieldPredicate;
+        this.methodPredicate = methodPredicate;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        return fieldPredicate.test(access & CLASS_FILE_FLAGS, name, descriptor)
+                ? super.visitField(access, name, descriptor, signature, value)
+                : null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        return methodPredicate.test(access & CLASS_FILE_FLAGS, name, descriptor)
+                ? super.visitMethod(access, name, descriptor, signature, exceptions)
+                : null;
+    }
+}
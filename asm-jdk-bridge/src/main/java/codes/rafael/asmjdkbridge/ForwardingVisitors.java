@@ -0,0 +1,232 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.ModuleVisitor;
+import org.objectweb.asm.RecordComponentVisitor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+final class ForwardingVisitors {
+
+    private static final Set<String> NON_CODE_METHODS = new HashSet<String>(Arrays.asList(
+            "visitParameter",
+            "visitAnnotationDefault",
+            "visitAnnotation",
+            "visitTypeAnnotation",
+            "visitAnnotableParameterCount",
+            "visitParameterAnnotation",
+            "visitEnd"));
+
+    private static final Set<String> ANNOTATION_METHODS = new HashSet<String>(Arrays.asList(
+            "visitAnnotationDefault",
+            "visitAnnotation",
+            "visitTypeAnnotation",
+            "visitAnnotableParameterCount",
+            "visitParameterAnnotation"));
+
+    private static final ClassValue<Boolean> FORWARDING = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (MethodVisitor.class.isAssignableFrom(type)) {
+                return isForwarding(type, MethodVisitor.class, Collections.<String>emptySet(), false);
+            } else if (FieldVisitor.class.isAssignableFrom(type)) {
+                return isForwarding(type, FieldVisitor.class, Collections.<String>emptySet(), false);
+            } else if (AnnotationVisitor.class.isAssignableFrom(type)) {
+                return isForwarding(type, AnnotationVisitor.class, Collections.<String>emptySet(), false);
+            } else if (ModuleVisitor.class.isAssignableFrom(type)) {
+                return isForwarding(type, ModuleVisitor.class, Collections.<String>emptySet(), false);
+            } else if (RecordComponentVisitor.class.isAssignableFrom(type)) {
+                return isForwarding(type, RecordComponentVisitor.class, Collections.<String>emptySet(), false);
+            } else {
+                return false;
+            }
+        }
+    };
+
+    private static final ClassValue<Boolean> CODE_FORWARDING = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return isForwarding(type, MethodVisitor.class, NON_CODE_METHODS, false);
+        }
+    };
+
+    private static final ClassValue<Boolean> ANNOTATION_FORWARDING = ofMembers(ANNOTATION_METHODS);
+
+    private static final ClassValue<Boolean> ATTRIBUTE_FORWARDING = ofMembers(Collections.singleton("visitAttribute"));
+
+    private static final ClassValue<Boolean> WRITER_ANNOTATION_FORWARDING = ofWriterMembers(ANNOTATION_METHODS);
+
+    private static final ClassValue<Boolean> WRITER_ATTRIBUTE_FORWARDING = ofWriterMembers(Collections.singleton("visitAttribute"));
+
+    private ForwardingVisitors() {
+        throw new UnsupportedOperationException();
+    }
+
+    static MethodVisitor unwrap(MethodVisitor methodVisitor) {
+        while (methodVisitor != null && methodVisitor.getDelegate() != null && FORWARDING.get(methodVisitor.getClass())) {
+            methodVisitor = methodVisitor.getDelegate();
+        }
+        return methodVisitor;
+    }
+
+    static FieldVisitor unwrap(FieldVisitor fieldVisitor) {
+        while (fieldVisitor != null && fieldVisitor.getDelegate() != null && FORWARDING.get(fieldVisitor.getClass())) {
+            fieldVisitor = fieldVisitor.getDelegate();
+        }
+        return fieldVisitor;
+    }
+
+    static AnnotationVisitor unwrap(AnnotationVisitor annotationVisitor) {
+        while (annotationVisitor != null && annotationVisitor.getDelegate() != null && FORWARDING.get(annotationVisitor.getClass())) {
+            annotationVisitor = annotationVisitor.getDelegate();
+        }
+        return annotationVisitor;
+    }
+
+    static ModuleVisitor unwrap(ModuleVisitor moduleVisitor) {
+        while (moduleVisitor != null && moduleVisitor.getDelegate() != null && FORWARDING.get(moduleVisitor.getClass())) {
+            moduleVisitor = moduleVisitor.getDelegate();
+        }
+        return moduleVisitor;
+    }
+
+    static RecordComponentVisitor unwrap(RecordComponentVisitor recordComponentVisitor) {
+        while (recordComponentVisitor != null && recordComponentVisitor.getDelegate() != null && FORWARDING.get(recordComponentVisitor.getClass())) {
+            recordComponentVisitor = recordComponentVisitor.getDelegate();
+        }
+        return recordComponentVisitor;
+    }
+
+    static MethodVisitor unwrapCode(MethodVisitor methodVisitor) {
+        while (methodVisitor != null && methodVisitor.getDelegate() != null && CODE_FORWARDING.get(methodVisitor.getClass())) {
+            methodVisitor = methodVisitor.getDelegate();
+        }
+        return methodVisitor;
+    }
+
+    static ClassVisitor unwrapAnnotations(ClassVisitor classVisitor) {
+        return unwrap(classVisitor, ANNOTATION_FORWARDING);
+    }
+
+    static FieldVisitor unwrapAnnotations(FieldVisitor fieldVisitor) {
+        return unwrap(fieldVisitor, ANNOTATION_FORWARDING);
+    }
+
+    static MethodVisitor unwrapAnnotations(MethodVisitor methodVisitor) {
+        return unwrap(methodVisitor, ANNOTATION_FORWARDING);
+    }
+
+    static RecordComponentVisitor unwrapAnnotations(RecordComponentVisitor recordComponentVisitor) {
+        return unwrap(recordComponentVisitor, ANNOTATION_FORWARDING);
+    }
+
+    static ClassVisitor unwrapAttributes(ClassVisitor classVisitor) {
+        return unwrap(classVisitor, ATTRIBUTE_FORWARDING);
+    }
+
+    static FieldVisitor unwrapAttributes(FieldVisitor fieldVisitor) {
+        return unwrap(fieldVisitor, ATTRIBUTE_FORWARDING);
+    }
+
+    static MethodVisitor unwrapAttributes(MethodVisitor methodVisitor) {
+        return unwrap(methodVisitor, ATTRIBUTE_FORWARDING);
+    }
+
+    static RecordComponentVisitor unwrapAttributes(RecordComponentVisitor recordComponentVisitor) {
+        return unwrap(recordComponentVisitor, ATTRIBUTE_FORWARDING);
+    }
+
+    static boolean isForwardingAnnotations(JdkClassWriter classWriter) {
+        return classWriter.getClass() == JdkClassWriter.class || WRITER_ANNOTATION_FORWARDING.get(classWriter.getClass());
+    }
+
+    static boolean isForwardingAttributes(JdkClassWriter classWriter) {
+        return classWriter.getClass() == JdkClassWriter.class || WRITER_ATTRIBUTE_FORWARDING.get(classWriter.getClass());
+    }
+
+    private static ClassVisitor unwrap(ClassVisitor classVisitor, ClassValue<Boolean> forwarding) {
+        while (classVisitor != null && classVisitor.getDelegate() != null && forwarding.get(classVisitor.getClass())) {
+            classVisitor = classVisitor.getDelegate();
+        }
+        return classVisitor;
+    }
+
+    private static FieldVisitor unwrap(FieldVisitor fieldVisitor, ClassValue<Boolean> forwarding) {
+        while (fieldVisitor != null && fieldVisitor.getDelegate() != null && forwarding.get(fieldVisitor.getClass())) {
+            fieldVisitor = fieldVisitor.getDelegate();
+        }
+        return fieldVisitor;
+    }
+
+    private static MethodVisitor unwrap(MethodVisitor methodVisitor, ClassValue<Boolean> forwarding) {
+        while (methodVisitor != null && methodVisitor.getDelegate() != null && forwarding.get(methodVisitor.getClass())) {
+            methodVisitor = methodVisitor.getDelegate();
+        }
+        return methodVisitor;
+    }
+
+    private static RecordComponentVisitor unwrap(RecordComponentVisitor recordComponentVisitor, ClassValue<Boolean> forwarding) {
+        while (recordComponentVisitor != null && recordComponentVisitor.getDelegate() != null && forwarding.get(recordComponentVisitor.getClass())) {
+            recordComponentVisitor = recordComponentVisitor.getDelegate();
+        }
+        return recordComponentVisitor;
+    }
+
+    private static ClassValue<Boolean> ofMembers(final Set<String> names) {
+        return new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                if (ClassVisitor.class.isAssignableFrom(type)) {
+                    return isForwarding(type, ClassVisitor.class, names, true);
+                } else if (MethodVisitor.class.isAssignableFrom(type)) {
+                    return isForwarding(type, MethodVisitor.class, names, true);
+                } else if (FieldVisitor.class.isAssignableFrom(type)) {
+                    return isForwarding(type, FieldVisitor.class, names, true);
+                } else if (RecordComponentVisitor.class.isAssignableFrom(type)) {
+                    return isForwarding(type, RecordComponentVisitor.class, names, true);
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    private static ClassValue<Boolean> ofWriterMembers(final Set<String> names) {
+        return new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                return isForwarding(type, JdkClassWriter.class, names, true); // Subclasses of the writer might override its visitation methods.
+            }
+        };
+    }
+
+    private static boolean isForwarding(Class<?> type, Class<?> base, Set<String> names, boolean included) {
+        for (Class<?> current = type; current != base; current = current.getSuperclass()) {
+            Method[] methods;
+            try {
+                methods = current.getDeclaredMethods();
+            } catch (LinkageError ignored) {
+                return false; // Signatures cannot be resolved, the visitor is not known to be a pure forwarder.
+            }
+            for (Method method : methods) {
+                if (Modifier.isStatic(method.getModifiers()) || Modifier.isPrivate(method.getModifiers()) || names.contains(method.getName()) != included) {
+                    continue;
+                }
+                try {
+                    base.getMethod(method.getName(), method.getParameterTypes());
+                    return false; // Overrides a visitation method, the visitor is not a pure forwarder.
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package codes.rafael.asmjdkbridge;
+
+import org.objectweb.asm.Attribute;
+
+import java.util.function.Function;
+
+/**
+ * A context for reading and writing class files with the JDK class file API. A context holds the mapping of
+ * ASM attribute prototypes, the {@code ClassFile} instances that are used by class readers and the class hierarchy
+ * that is used by class writers, such that these are only created once. Custom attributes that are read by the same
+ * class reader share a view of its class file, which is not retained by the context. A context is thread-safe and can
+ * be shared among any number of readers and writers, given that the supplied super class resolver is thread-safe.
+ */
+public class JdkClassFileContext {
+
+    /**
+     * Creates a new context where super classes are resolved by {@link #getSuperClass(String)}.
+     *
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassFileContext(Attribute... attributePrototypes) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new context.
+     *
+     * @param getSuperClass       A resolver for the supplied internal class name's internal super class name. If
+     *                            a class is an interface, {@code null} should be returned. If {@code null}, super
+     *                            classes are resolved by loading classes from {@link #getClassLoader()}. If
+     *                            a {@link ClassHierarchy}, the hierarchy is used as is.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassFileContext(Function<String, String> getSuperClass, Attribute... attributePrototypes) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the super class of the class that is provided by name. The default implementation applies the
+     * resolver that was supplied to this context or, if no resolver was supplied, loads the class from
+     * {@link #getClassLoader()} without initializing it. Resolved super classes are memoized by this context.
+     * <p>
+     * This is used for generating stack map frames.
+     *
+     * @param name The name of the class for which to resolve the super class.
+     * @return The name of the resolved super class.
+     */
+    protected String getSuperClass(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the class loader to use for resolving the super class of a discovered class. The default
+     * implementation returns the class loader of this context's class, which is the class loader of
+     * this library unless the context is subclassed.
+     *
+     * @return The class loader to use for resolving a super class's name.
+     */
+    protected ClassLoader getClassLoader() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -3,12 +3,18 @@ package codes.rafael.asmjdkbridge;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Remapper;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 /**
- * A reader for class files that uses the JDK class file API. The created class reader is immutable.
+ * A reader for class files that uses the JDK class file API. The created class reader is immutable. The access
+ * flags, class name, super class name and interface names are decoded from the class file's header, the class
+ * file is only parsed in its entirety when it is first visited.
  */
 public class JdkClassReader {
 
@@ -22,6 +28,30 @@ public class JdkClassReader {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Creates a new class reader.
+     *
+     * @param classFile           An array that contains the class file to represent. The array is only copied if
+     *                            the class file does not span the entire array.
+     * @param offset              The offset of the class file within the array.
+     * @param length              The length of the class file.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassReader(byte[] classFile, int offset, int length, Attribute... attributePrototypes) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param buffer              A buffer that contains the class file to represent between its position and its
+     *                            limit. The buffer's position is not altered.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public JdkClassReader(ByteBuffer buffer, Attribute... attributePrototypes) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Creates a new class reader.
      *
@@ -33,6 +63,40 @@ public class JdkClassReader {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Creates a new class reader.
+     *
+     * @param inputStream         An input stream of the class file to represent.
+     * @param sizeHint            The expected size of the class file in bytes.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the stream cannot be read.
+     */
+    public JdkClassReader(InputStream inputStream, int sizeHint, Attribute... attributePrototypes) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param path                The path of the class file to represent.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be read.
+     */
+    public JdkClassReader(Path path, Attribute... attributePrototypes) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param channel             A file channel from whose current position the class file is read.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the channel cannot be read.
+     */
+    public JdkClassReader(FileChannel channel, Attribute... attributePrototypes) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Creates a new class reader.
      *
@@ -44,6 +108,86 @@ public class JdkClassReader {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Creates a new class reader.
+     *
+     * @param className           The name of the class to represent.
+     * @param classFileLocator    The class file locator to resolve the class file from.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public JdkClassReader(String className, ClassFileLocator classFileLocator, Attribute... attributePrototypes) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context   The context to use for parsing the class file.
+     * @param classFile The class file to represent.
+     */
+    public JdkClassReader(JdkClassFileContext context, byte[] classFile) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context   The context to use for parsing the class file.
+     * @param classFile An array that contains the class file to represent. The array is only copied if
+     *                  the class file does not span the entire array.
+     * @param offset    The offset of the class file within the array.
+     * @param length    The length of the class file.
+     */
+    public JdkClassReader(JdkClassFileContext context, byte[] classFile, int offset, int length) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context The context to use for parsing the class file.
+     * @param buffer  A buffer that contains the class file to represent between its position and its
+     *                limit. The buffer's position is not altered.
+     */
+    public JdkClassReader(JdkClassFileContext context, ByteBuffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context     The context to use for parsing the class file.
+     * @param inputStream An input stream of the class file to represent.
+     * @throws IOException If the stream cannot be read.
+     */
+    public JdkClassReader(JdkClassFileContext context, InputStream inputStream) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context The context to use for parsing the class file.
+     * @param path    The path of the class file to represent.
+     * @throws IOException If the class file cannot be read.
+     */
+    public JdkClassReader(JdkClassFileContext context, Path path) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param context          The context to use for parsing the class file.
+     * @param className        The name of the class to represent.
+     * @param classFileLocator The class file locator to resolve the class file from.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public JdkClassReader(JdkClassFileContext context, String className, ClassFileLocator classFileLocator) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Returns the access flags of this class as stored in the class file.
      *
@@ -82,6 +226,7 @@ public class JdkClassReader {
 
     /**
      * Accepts a class visitor for the represented class file.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
      *
      * @param classVisitor The class visitor to delegate calls to.
      * @param flags        The ASM flags to consider when visiting the class file.
@@ -89,4 +234,31 @@ public class JdkClassReader {
     public void accept(ClassVisitor classVisitor, int flags) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Accepts a class visitor for the represented class file where only selected fields and methods are visited.
+     * Members that are not selected are skipped without being processed.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
+     *
+     * @param classVisitor    The class visitor to delegate calls to.
+     * @param fieldPredicate  A predicate to select the fields to visit.
+     * @param methodPredicate A predicate to select the methods to visit.
+     * @param flags           The ASM flags to consider when visiting the class file.
+     */
+    public void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Remaps the represented class file with the supplied remapper. The class file is transformed by the class file
+     * API directly, without translating it to ASM visitor calls. The result is equivalent to visiting the class file
+     * with ASM's {@code ClassRemapper}, where fields and methods that do not reference any remapped name are copied
+     * as they are. Using this method requires {@code asm-commons} to be available.
+     *
+     * @param remapper The remapper to apply.
+     * @return The remapped class file.
+     */
+    public byte[] remap(Remapper remapper) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -11,13 +11,32 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.RecordComponentVisitor;
 import org.objectweb.asm.TypePath;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.function.Function;
 
 /**
  * A class visitor that creates a class file which is based upon the JDK Class File API.
  */
-public class JdkClassWriter extends ClassVisitor {
+public class JdkClassWriter extends ClassVisitor implements AutoCloseable {
+
+    /**
+     * A flag to build the class file concurrently to visiting it. Fields and methods are handed to a virtual
+     * thread that runs the class file builder as soon as they are visited, such that their state does not need
+     * to be retained until the class is complete. Super classes are still resolved on the visiting thread, while
+     * it hands off elements or awaits the class file. If a class is not visited until its end, the writer should
+     * be closed or reset to stop the builder thread.
+     */
+    public static final int PIPELINED = 1 << 8;
+
+    /**
+     * A flag to release the generated class file once it was written by one of the {@code writeTo} methods,
+     * such that this writer does not retain it any longer. Afterwards, the class file cannot be retrieved again.
+     */
+    public static final int RELEASE_ON_WRITE = 1 << 9;
 
     /**
      * Creates a class writer.
@@ -95,7 +114,33 @@ public class JdkClassWriter extends ClassVisitor {
     }
 
     /**
-     * Returns the generated class file.
+     * Creates a class writer.
+     *
+     * @param context The context that provides the {@code ClassFile} instance and resolves super classes.
+     * @param flags   The ASM flags to consider.
+     */
+    public JdkClassWriter(JdkClassFileContext context, int flags) {
+        super(Opcodes.ASM9);
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a class writer.
+     *
+     * @param context     The context that provides the {@code ClassFile} instance and resolves super classes.
+     * @param classReader A class reader of which to retain the constant pool, if possible.
+     * @param flags       The ASM flags to consider.
+     */
+    public JdkClassWriter(JdkClassFileContext context, JdkClassReader classReader, int flags) {
+        super(Opcodes.ASM9);
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the generated class file. If this writer was created with a class reader and the visited class
+     * was passed through without any change, the reader's class file is returned as is, without being rebuilt.
+     * The returned array is then shared with the class reader, for example being the array it was created from, and
+     * must not be modified.
      *
      * @return The class file as a byte array.
      */
@@ -103,10 +148,70 @@ public class JdkClassWriter extends ClassVisitor {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns the size of the generated class file.
+     *
+     * @return The size of the class file in bytes.
+     */
+    public int size() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Writes the generated class file to an output stream.
+     *
+     * @param outputStream The output stream to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Writes the generated class file to a channel.
+     *
+     * @param channel The channel to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Writes the generated class file to a buffer at its current position.
+     *
+     * @param buffer The buffer to write the class file to, which must have {@link #size()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Resets this writer such that it can write another class. Any state of a previously visited class is
+     * discarded, while collections and instruction buffers are retained for reuse. A previously returned
+     * byte array is not affected. Visitors that were returned for a previous class must no longer be used.
+     * A class reader that was supplied to this writer only seeds the constant pool of the first class, such
+     * that classes that are written after a reset do not inherit the constant pool of the supplied reader.
+     */
+    public void reset() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the builder thread of a {@link #PIPELINED} writer whose class was not visited until its end, for
+     * example because a visit was aborted or failed. A closed writer must be reset before it is used again.
+     */
+    @Override
+    public void close() {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Returns the super class of the class that is provided by name. The default implementation
      * resolves the super class from this instance's class' {@link ClassLoader}, unless
-     * {@link #getClassLoader()} is overridden.
+     * {@link #getClassLoader()} is overridden. If this writer was created with a {@link JdkClassFileContext},
+     * the super class is resolved by the context, unless {@link #getClassLoader()} is overridden. The class
+     * that is being written is resolved from its visited header without loading it.
      * <p>
      * This is used for generating stack map frames.
      *
@@ -118,7 +223,8 @@ public class JdkClassWriter extends ClassVisitor {
     }
 
     /**
-     * Returns the class loader to use for resolving the super class of a discovered class.
+     * Returns the class loader to use for resolving the super class of a discovered class. The default
+     * implementation returns the class loader of this writer's class.
      *
      * @return The class loader to use for resolving a super class's name.
      */
@@ -201,7 +307,9 @@ public class JdkClassWriter extends ClassVisitor {
     }
 
     /**
-     * Returns an appropriate {@code ClassFile} instance. Can be overridden to return custom instances.
+     * Returns an appropriate {@code ClassFile} instance. Can be overridden to return custom instances. If this
+     * writer was created with a {@link JdkClassFileContext}, the context's instance is returned, unless this
+     * writer overrides {@link #getSuperClass(String)} or {@link #getClassLoader()}.
      *
      * @param flags {@link ClassWriter} flags.
      * @return An instance of {@code ClassFile} configured according to the given flags.
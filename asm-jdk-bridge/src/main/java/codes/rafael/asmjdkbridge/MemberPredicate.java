@@ -0,0 +1,30 @@
+package codes.rafael.asmjdkbridge;
+
+/**
+ * A predicate to select the fields or methods of a class file that are visited. Members that are not selected
+ * are skipped by a class reader without being processed.
+ */
+@FunctionalInterface
+public interface MemberPredicate {
+
+    /**
+     * A predicate that selects all members.
+     */
+    MemberPredicate ALL = (access, name, descriptor) -> true;
+
+    /**
+     * A predicate that selects no members.
+     */
+    MemberPredicate NONE = (access, name, descriptor) -> false;
+
+    /**
+     * Determines if a member should be visited.
+     *
+     * @param access     The access flags of the member as passed to a visitor, including {@code ACC_SYNTHETIC} and
+     *                   {@code ACC_DEPRECATED} if the member declares the corresponding attributes.
+     * @param name       The name of the member.
+     * @param descriptor The descriptor of the member.
+     * @return {@code true} if the member should be visited.
+     */
+    boolean test(int access, String name, String descriptor);
+}
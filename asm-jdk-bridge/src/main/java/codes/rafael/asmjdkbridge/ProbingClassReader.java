@@ -4,11 +4,14 @@ import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.function.Function;
 
 /**
@@ -26,7 +29,31 @@ public class ProbingClassReader {
      * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
      */
     public ProbingClassReader(byte[] classFile, Attribute... attributePrototypes) {
-        resolver = ProbingResolver.ofClassFile(null, classFile, attributePrototypes);
+        resolver = ProbingResolver.ofClassFile(null, classFile, 0, classFile.length, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param classFile           An array that contains the class file to represent. The array is not copied if
+     *                            the class file is processed by ASM.
+     * @param offset              The offset of the class file within the array.
+     * @param length              The length of the class file.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public ProbingClassReader(byte[] classFile, int offset, int length, Attribute... attributePrototypes) {
+        resolver = ProbingResolver.ofClassFile(null, classFile, offset, length, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param buffer              A buffer that contains the class file to represent between its position and its
+     *                            limit. The buffer's position is not altered.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public ProbingClassReader(ByteBuffer buffer, Attribute... attributePrototypes) {
+        resolver = ProbingResolver.ofClassFile(null, buffer, attributePrototypes);
     }
 
     /**
@@ -37,7 +64,41 @@ public class ProbingClassReader {
      * @throws IOException If the stream cannot be read.
      */
     public ProbingClassReader(InputStream inputStream, Attribute... attributePrototypes) throws IOException {
-        this(readAllBytes(inputStream), null, attributePrototypes);
+        this(ClassFileBytes.of(inputStream), null, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param inputStream         An input stream of the class file to represent.
+     * @param sizeHint            The expected size of the class file in bytes.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the stream cannot be read.
+     */
+    public ProbingClassReader(InputStream inputStream, int sizeHint, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(inputStream, sizeHint), null, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param path                The path of the class file to represent.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be read.
+     */
+    public ProbingClassReader(Path path, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(path), null, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param channel             A file channel from whose current position the class file is read.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the channel cannot be read.
+     */
+    public ProbingClassReader(FileChannel channel, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(channel), null, attributePrototypes);
     }
 
     /**
@@ -48,11 +109,19 @@ public class ProbingClassReader {
      * @throws IOException If the class file cannot be read.
      */
     public ProbingClassReader(String className, Attribute... attributePrototypes) throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = ClassLoader.getSystemResourceAsStream(className.replace('.', '/') + ".class")) {
-            classFile = readAllBytes(inputStream);
-        }
-        resolver = ProbingResolver.ofClassFile(null, classFile, attributePrototypes);
+        this(ClassFileBytes.of(className), null, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param className           The name of the class to represent.
+     * @param classFileLocator    The class file locator to resolve the class file from.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public ProbingClassReader(String className, ClassFileLocator classFileLocator, Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(classFileLocator, className), null, attributePrototypes);
     }
 
     /**
@@ -65,7 +134,37 @@ public class ProbingClassReader {
     public ProbingClassReader(byte[] classFile,
                               Function<String, String> getSuperClass,
                               Attribute... attributePrototypes) {
-        resolver = ProbingResolver.ofClassFile(getSuperClass, classFile, attributePrototypes);
+        resolver = ProbingResolver.ofClassFile(getSuperClass, classFile, 0, classFile.length, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param classFile           An array that contains the class file to represent. The array is not copied if
+     *                            the class file is processed by ASM.
+     * @param offset              The offset of the class file within the array.
+     * @param length              The length of the class file.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public ProbingClassReader(byte[] classFile, int offset, int length,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) {
+        resolver = ProbingResolver.ofClassFile(getSuperClass, classFile, offset, length, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param buffer              A buffer that contains the class file to represent between its position and its
+     *                            limit. The buffer's position is not altered.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     */
+    public ProbingClassReader(ByteBuffer buffer,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) {
+        resolver = ProbingResolver.ofClassFile(getSuperClass, buffer, attributePrototypes);
     }
 
     /**
@@ -79,7 +178,50 @@ public class ProbingClassReader {
     public ProbingClassReader(InputStream inputStream,
                               Function<String, String> getSuperClass,
                               Attribute... attributePrototypes) throws IOException {
-        this(readAllBytes(inputStream), getSuperClass, attributePrototypes);
+        this(ClassFileBytes.of(inputStream), getSuperClass, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param inputStream         An input stream of the class file to represent.
+     * @param sizeHint            The expected size of the class file in bytes.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the stream cannot be read.
+     */
+    public ProbingClassReader(InputStream inputStream, int sizeHint,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(inputStream, sizeHint), getSuperClass, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param path                The path of the class file to represent.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be read.
+     */
+    public ProbingClassReader(Path path,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(path), getSuperClass, attributePrototypes);
+    }
+
+    /**
+     * Creates a new class reader.
+     *
+     * @param channel             A file channel from whose current position the class file is read.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the channel cannot be read.
+     */
+    public ProbingClassReader(FileChannel channel,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(channel), getSuperClass, attributePrototypes);
     }
 
     /**
@@ -93,21 +235,23 @@ public class ProbingClassReader {
     public ProbingClassReader(String className,
                               Function<String, String> getSuperClass,
                               Attribute... attributePrototypes) throws IOException {
-        byte[] classFile;
-        try (InputStream inputStream = ClassLoader.getSystemResourceAsStream(className.replace('.', '/') + ".class")) {
-            classFile = readAllBytes(inputStream);
-        }
-        resolver = ProbingResolver.ofClassFile(getSuperClass, classFile, attributePrototypes);
+        this(ClassFileBytes.of(className), getSuperClass, attributePrototypes);
     }
 
-    private static byte[] readAllBytes(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024 * 8];
-        int length;
-        while ((length = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, length);
-        }
-        return outputStream.toByteArray();
+    /**
+     * Creates a new class reader.
+     *
+     * @param className           The name of the class to represent.
+     * @param classFileLocator    The class file locator to resolve the class file from.
+     * @param getSuperClass       A resolver to use for finding super classes when computing stack map frames.
+     * @param attributePrototypes Prototypes of ASM attributes to map if discovered.
+     * @throws IOException If the class file cannot be located or read.
+     */
+    public ProbingClassReader(String className,
+                              ClassFileLocator classFileLocator,
+                              Function<String, String> getSuperClass,
+                              Attribute... attributePrototypes) throws IOException {
+        this(ClassFileBytes.of(classFileLocator, className), getSuperClass, attributePrototypes);
     }
 
     /**
@@ -148,12 +292,40 @@ public class ProbingClassReader {
 
     /**
      * Accepts a class visitor for the represented class file.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
      *
      * @param classVisitor The class visitor to delegate calls to.
      * @param flags        The ASM flags to consider when visiting the class file.
      */
     public void accept(ClassVisitor classVisitor, int flags) {
-        resolver.accept(classVisitor, flags);
+        resolver.accept(classVisitor, MemberPredicate.ALL, MemberPredicate.ALL, flags);
+    }
+
+    /**
+     * Accepts a class visitor for the represented class file where only selected fields and methods are visited.
+     * Members that are not selected are skipped without being processed.
+     * A visitor can abort the visitation by throwing a {@link VisitAbortedException}.
+     *
+     * @param classVisitor    The class visitor to delegate calls to.
+     * @param fieldPredicate  A predicate to select the fields to visit.
+     * @param methodPredicate A predicate to select the methods to visit.
+     * @param flags           The ASM flags to consider when visiting the class file.
+     */
+    public void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+        resolver.accept(classVisitor, fieldPredicate, methodPredicate, flags);
+    }
+
+    /**
+     * Remaps the represented class file with the supplied remapper. If ASM supports the class file's version, the
+     * class file is visited by ASM's {@code ClassRemapper}. Otherwise, the class file is transformed by the class
+     * file API directly, without translating it to ASM visitor calls. Using this method requires {@code asm-commons}
+     * to be available.
+     *
+     * @param remapper The remapper to apply.
+     * @return The remapped class file.
+     */
+    public byte[] remap(Remapper remapper) {
+        return resolver.remap(remapper);
     }
 
     /**
@@ -199,35 +371,24 @@ public class ProbingClassReader {
         static class OfAsm extends ClassWriterContainer<ClassWriter> {
 
             OfAsm(ClassReader classReader, int flags, Function<String, String> getSuperClass) {
+                this(classReader, flags, getSuperClass == null
+                        ? null
+                        : ClassHierarchy.of(getSuperClass).local(classReader.getClassName(), classReader.getSuperName(), (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0));
+            }
+
+            private OfAsm(ClassReader classReader, int flags, ClassHierarchy classHierarchy) {
                 super(new ClassWriter(classReader, flags) {
                     @Override
                     protected String getCommonSuperClass(String left, String right) {
-                        if (getSuperClass == null) {
+                        if (classHierarchy == null) {
                             return super.getCommonSuperClass(left, right);
                         } else {
-                            String resolved = doGetCommonSuperClass(left, right, getSuperClass);
-                            if (resolved == null) {
-                                resolved = doGetCommonSuperClass(right, left, getSuperClass);
-                            }
-                            if (resolved == null) {
-                                return "java/lang/Object";
-                            } else {
-                                return resolved;
-                            }
+                            return classHierarchy.getCommonSuperClass(left, right);
                         }
                     }
                 });
             }
 
-            private static String doGetCommonSuperClass(String constant,
-                                                        String dynamic,
-                                                        Function<String, String> getSuperClass) {
-                while (!Objects.equals(constant, dynamic) && dynamic != null) {
-                    dynamic = getSuperClass.apply(dynamic);
-                }
-                return dynamic;
-            }
-
             @Override
             public byte[] toByteArray() {
                 return delegate.toByteArray();
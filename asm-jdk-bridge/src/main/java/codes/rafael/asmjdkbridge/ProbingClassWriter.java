@@ -4,8 +4,11 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.function.Function;
 
 /**
@@ -15,7 +18,8 @@ import java.util.function.Function;
 public class ProbingClassWriter extends ClassVisitor {
 
     private final int flags;
-    private final Function<String, String> getSuperClass;
+    private final ClassHierarchy getSuperClass;
+    private byte[] bytes;
 
     /**
      * Creates a class writer.
@@ -40,13 +44,7 @@ public class ProbingClassWriter extends ClassVisitor {
     public ProbingClassWriter(int flags, Method getSuperClass, Object target) {
         super(Opcodes.ASM9);
         this.flags = flags;
-        this.getSuperClass = getSuperClass == null ? null : name -> {
-            try {
-                return (String) getSuperClass.invoke(target, name);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
-        };
+        this.getSuperClass = ClassHierarchy.ofMethod(getSuperClass, target);
     }
 
     /**
@@ -59,15 +57,24 @@ public class ProbingClassWriter extends ClassVisitor {
     public ProbingClassWriter(int flags, Function<String, String> getSuperClass) {
         super(Opcodes.ASM9);
         this.flags = flags;
-        this.getSuperClass = getSuperClass;
+        this.getSuperClass = ClassHierarchy.of(getSuperClass);
     }
 
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-        cv = ProbingResolver.ofVersion(flags, version, getSuperClass);
+        bytes = null;
+        cv = ProbingResolver.ofVersion(flags, version, getSuperClass == null
+                ? null
+                : getSuperClass.local(name, superName, (access & Opcodes.ACC_INTERFACE) != 0));
         super.visit(version, access, name, signature, superName, interfaces);
     }
 
+    @Override
+    public void visitEnd() {
+        bytes = null;
+        super.visitEnd();
+    }
+
     /**
      * Returns the generated class file.
      *
@@ -77,7 +84,10 @@ public class ProbingClassWriter extends ClassVisitor {
         if (cv instanceof JdkClassWriter) {
             return ((JdkClassWriter) cv).toByteArray();
         } else if (cv instanceof ClassWriter) {
-            return ((ClassWriter) cv).toByteArray();
+            if (bytes == null) {
+                bytes = ((ClassWriter) cv).toByteArray();
+            }
+            return bytes;
         } else if (cv instanceof ProbingClassWriter) {
             return ((ProbingClassWriter) cv).toByteArray();
         } else if (cv == null) {
@@ -86,4 +96,69 @@ public class ProbingClassWriter extends ClassVisitor {
             throw new IllegalStateException("Unexpected type: " + cv.getClass().getTypeName());
         }
     }
+
+    /**
+     * Returns the size of the generated class file.
+     *
+     * @return The size of the class file in bytes.
+     */
+    public int size() {
+        if (cv instanceof JdkClassWriter) {
+            return ((JdkClassWriter) cv).size();
+        } else if (cv instanceof ProbingClassWriter) {
+            return ((ProbingClassWriter) cv).size();
+        } else {
+            return toByteArray().length;
+        }
+    }
+
+    /**
+     * Writes the generated class file to an output stream.
+     *
+     * @param outputStream The output stream to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (cv instanceof JdkClassWriter) {
+            ((JdkClassWriter) cv).writeTo(outputStream);
+        } else if (cv instanceof ProbingClassWriter) {
+            ((ProbingClassWriter) cv).writeTo(outputStream);
+        } else {
+            outputStream.write(toByteArray());
+        }
+    }
+
+    /**
+     * Writes the generated class file to a channel.
+     *
+     * @param channel The channel to write the class file to.
+     * @throws IOException If an I/O exception occurs.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        if (cv instanceof JdkClassWriter) {
+            ((JdkClassWriter) cv).writeTo(channel);
+        } else if (cv instanceof ProbingClassWriter) {
+            ((ProbingClassWriter) cv).writeTo(channel);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the generated class file to a buffer at its current position.
+     *
+     * @param buffer The buffer to write the class file to, which must have {@link #size()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (cv instanceof JdkClassWriter) {
+            ((JdkClassWriter) cv).writeTo(buffer);
+        } else if (cv instanceof ProbingClassWriter) {
+            ((ProbingClassWriter) cv).writeTo(buffer);
+        } else {
+            buffer.put(toByteArray());
+        }
+    }
 }
@@ -5,13 +5,14 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
 
+import java.nio.ByteBuffer;
 import java.util.function.Function;
 
 abstract class ProbingResolver {
 
-    private static final String OBJECT = "java/lang/Object";
-
     private static final int SUPPORTED;
 
     static {
@@ -34,33 +35,14 @@ abstract class ProbingResolver {
         if (version > SUPPORTED) {
             return new JdkClassWriter(flags, getSuperClass);
         } else {
+            ClassHierarchy classHierarchy = ClassHierarchy.of(getSuperClass);
             return new ClassWriter(flags) {
                 @Override
                 protected String getCommonSuperClass(String type1, String type2) {
-                    if (getSuperClass == null) {
+                    if (classHierarchy == null) {
                         return super.getCommonSuperClass(type1, type2);
                     }
-                    if (type1.equals(type2)) {
-                        return type1;
-                    }
-                    String class1 = getSuperClass.apply(type1), class2 = getSuperClass.apply(type2);
-                    if (class1 == null || class2 == null) {
-                        return OBJECT;
-                    } else {
-                        while (!class1.equals(OBJECT)) {
-                            if (class1.equals(type2)) {
-                                return type2;
-                            }
-                            class1 = getSuperClass.apply(class1);
-                        }
-                        while (!class2.equals(OBJECT)) {
-                            if (class2.equals(type1)) {
-                                return type1;
-                            }
-                            class2 = getSuperClass.apply(class2);
-                        }
-                        return OBJECT;
-                    }
+                    return classHierarchy.getCommonSuperClass(type1, type2);
                 }
             };
         }
@@ -68,13 +50,25 @@ abstract class ProbingResolver {
 
     static ProbingResolver ofClassFile(Function<String, String> getSuperClass,
                                        byte[] classFile,
+                                       int offset,
+                                       int length,
                                        Attribute[] attributePrototypes) {
-        int majorVersion = classFile[6] << 8 | classFile[7];
+        int majorVersion = (classFile[offset + 6] & 0xFF) << 8 | classFile[offset + 7] & 0xFF;
         if (majorVersion > SUPPORTED) {
-            return new OfJdk(getSuperClass, classFile, attributePrototypes);
+            return new OfJdk(getSuperClass, ClassFileBytes.of(classFile, offset, length), attributePrototypes);
         } else {
-            return new OfAsm(getSuperClass, classFile, attributePrototypes);
+            return new OfAsm(getSuperClass, classFile, offset, length, attributePrototypes);
+        }
+    }
+
+    static ProbingResolver ofClassFile(Function<String, String> getSuperClass,
+                                       ByteBuffer buffer,
+                                       Attribute[] attributePrototypes) {
+        if (buffer.hasArray()) {
+            return ofClassFile(getSuperClass, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), attributePrototypes);
         }
+        byte[] classFile = ClassFileBytes.of(buffer);
+        return ofClassFile(getSuperClass, classFile, 0, classFile.length, attributePrototypes);
     }
 
     final Function<String, String> getSuperClass;
@@ -87,18 +81,20 @@ abstract class ProbingResolver {
 
     abstract String[] getInterfaces();
 
-    abstract void accept(ClassVisitor classVisitor, int flags);
+    abstract void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags);
 
     abstract ProbingClassReader.ClassWriterContainer<?> toClassWriter(int flags);
 
+    abstract byte[] remap(Remapper remapper);
+
     static class OfAsm extends ProbingResolver {
 
         private final ClassReader classReader;
         private final Attribute[] attributePrototypes;
 
-        OfAsm(Function<String, String> getSuperClass, byte[] classFile, Attribute[] attributePrototypes) {
+        OfAsm(Function<String, String> getSuperClass, byte[] classFile, int offset, int length, Attribute[] attributePrototypes) {
             super(getSuperClass);
-            classReader = new ClassReader(classFile);
+            classReader = new ClassReader(classFile, offset, length);
             this.attributePrototypes = attributePrototypes;
         }
 
@@ -123,14 +119,24 @@ abstract class ProbingResolver {
         }
 
         @Override
-        void accept(ClassVisitor classVisitor, int flags) {
-            classReader.accept(classVisitor, attributePrototypes, flags);
+        void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+            try {
+                classReader.accept(fieldPredicate == MemberPredicate.ALL && methodPredicate == MemberPredicate.ALL
+                        ? classVisitor
+                        : new FilteringClassVisitor(classVisitor, fieldPredicate, methodPredicate), attributePrototypes, flags);
+            } catch (VisitAbortedException ignored) {
+            }
         }
 
         @Override
         ProbingClassReader.ClassWriterContainer<?> toClassWriter(int flags) {
             return new ProbingClassReader.ClassWriterContainer.OfAsm(classReader, flags, getSuperClass);
         }
+
+        @Override
+        byte[] remap(Remapper remapper) {
+            return Remapping.remap(classReader, attributePrototypes, remapper);
+        }
     }
 
     static class OfJdk extends ProbingResolver {
@@ -163,13 +169,28 @@ abstract class ProbingResolver {
         }
 
         @Override
-        void accept(ClassVisitor classVisitor, int flags) {
-            classReader.accept(classVisitor, flags);
+        void accept(ClassVisitor classVisitor, MemberPredicate fieldPredicate, MemberPredicate methodPredicate, int flags) {
+            classReader.accept(classVisitor, fieldPredicate, methodPredicate, flags);
         }
 
         @Override
         ProbingClassReader.ClassWriterContainer<?> toClassWriter(int flags) {
             return new ProbingClassReader.ClassWriterContainer.OfJdk(classReader, flags, getSuperClass);
         }
+
+        @Override
+        byte[] remap(Remapper remapper) {
+            return classReader.remap(remapper);
+        }
+    }
+
+    // Kept separate from OfAsm such that asm-commons is only loaded if a class file is remapped.
+    static class Remapping {
+
+        static byte[] remap(ClassReader classReader, Attribute[] attributePrototypes, Remapper remapper) {
+            ClassWriter classWriter = new ClassWriter(classReader, 0);
+            classReader.accept(new ClassRemapper(classWriter, remapper), attributePrototypes, 0);
+            return classWriter.toByteArray();
+        }
     }
 }
@@ -0,0 +1,18 @@
+package codes.rafael.asmjdkbridge;
+
+/**
+ * A marker for ASM attribute prototypes whose content does not reference any offsets within a method's code.
+ * Such attributes are copied as they are when a class file is written with the constant pool of the class file
+ * it was read from, without reading and writing them via ASM. Attributes that do not implement this interface
+ * are always read and written via ASM.
+ */
+public interface StableAttribute {
+
+    /**
+     * Determines if the attribute's content references entries of the constant pool. If so, the attribute is only
+     * copied as it is if the constant pool is retained.
+     *
+     * @return {@code true} if the attribute's content references entries of the constant pool.
+     */
+    boolean hasConstantPoolReferences();
+}
@@ -0,0 +1,24 @@
+package codes.rafael.asmjdkbridge;
+
+/**
+ * An exception that can be thrown by a visitor to abort the visitation of a class file. A class reader that
+ * catches this exception returns from its {@code accept} method without processing the remainder of the class
+ * file and without invoking any further visitor methods. The exception does not capture a stack trace such
+ * that the shared {@link VisitAbortedException#INSTANCE} can be thrown without allocation.
+ */
+public class VisitAbortedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A shared instance of this exception.
+     */
+    public static final VisitAbortedException INSTANCE = new VisitAbortedException();
+
+    /**
+     * Creates a new exception for aborting a visitation.
+     */
+    public VisitAbortedException() {
+        super(null, null, false, false);
+    }
+}